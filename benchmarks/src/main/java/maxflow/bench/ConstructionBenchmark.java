@@ -0,0 +1,56 @@
+package maxflow.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Building a Graph edge by edge with Graph.addEdge
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ConstructionBenchmark {
+    @Param({"sparse", "dense", "grid", "bipartite", "ak"})
+    public String family;
+
+    @Param({"100000"})
+    public int edges;
+
+    private int numNodes;
+    private int[] sources;
+    private int[] destinations;
+    private int[] capacities;
+
+    @Setup
+    public void setUp() {
+        Object graph = Core.generate(family, edges, 42);
+        int[][] arrays = Core.edgeArrays(graph);
+        numNodes = Core.numNodes(graph);
+        sources = arrays[0];
+        destinations = arrays[1];
+        capacities = arrays[2];
+    }
+
+    @Benchmark
+    public Object addEdges() {
+        Object graph = Core.newGraph(numNodes);
+        for (int i = 0; i < sources.length; i++) {
+            Core.addEdge(graph, sources[i], destinations[i], capacities[i]);
+        }
+        return graph;
+    }
+}
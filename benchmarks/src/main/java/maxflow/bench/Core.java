@@ -0,0 +1,185 @@
+package maxflow.bench;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Typed access to the solver classes for the benchmarks.
+ *
+ * The solver lives in the unnamed package, which classes in a named package cannot import,
+ * and JMH refuses benchmarks in the unnamed package. The entry points are therefore looked
+ * up once by name; the handles are static finals, so the JIT inlines them like direct calls.
+ */
+final class Core {
+    private static final Class<?> GRAPH = load("Graph");
+    private static final Class<?> EDGE = load("Edge");
+    private static final Class<?> ALGORITHM = load("MaxFlowAlgorithm");
+    private static final Class<?> SOLVER = load("MaxFlowSolver");
+
+    private static final MethodHandle GENERATE = findStatic("GraphGenerator", "generate",
+            MethodType.methodType(GRAPH, String.class, int.class, long.class));
+    private static final MethodHandle WRITE_TEXT = findStatic("GraphGenerator", "writeText",
+            MethodType.methodType(void.class, GRAPH, int.class, int.class, Path.class));
+    private static final MethodHandle PARSE_FILE = findStatic("Parser", "parseFile",
+            MethodType.methodType(load("GraphWithSourceSink"), String.class));
+    private static final MethodHandle PARSE_PARALLEL = findStatic("ParallelParser", "parse",
+            MethodType.methodType(load("EdgeList"), String.class));
+    private static final MethodHandle FOR_NAME = findStatic("MaxFlowAlgorithm", "forName",
+            MethodType.methodType(ALGORITHM, String.class));
+    private static final MethodHandle NEW_GRAPH = findConstructor(GRAPH, MethodType.methodType(void.class, int.class));
+    private static final MethodHandle NEW_SOLVER = findConstructor(SOLVER,
+            MethodType.methodType(void.class, GRAPH, ALGORITHM));
+    private static final MethodHandle ADD_EDGE = findVirtual(GRAPH, "addEdge",
+            MethodType.methodType(void.class, int.class, int.class, int.class));
+    private static final MethodHandle NUM_NODES = findVirtual(GRAPH, "getNumNodes", MethodType.methodType(int.class));
+    private static final MethodHandle ALL_EDGES = findVirtual(GRAPH, "getAllEdges", MethodType.methodType(List.class));
+    private static final MethodHandle EDGE_SOURCE = findVirtual(EDGE, "getSource", MethodType.methodType(int.class));
+    private static final MethodHandle EDGE_DESTINATION = findVirtual(EDGE, "getDestination",
+            MethodType.methodType(int.class));
+    private static final MethodHandle EDGE_CAPACITY = findVirtual(EDGE, "getCapacity", MethodType.methodType(int.class));
+    private static final MethodHandle FIND_MAX_FLOW = findVirtual(SOLVER, "findMaxFlowLong",
+            MethodType.methodType(long.class, int.class, int.class));
+    private static final MethodHandle SET_MATCHING_FAST_PATH = findVirtual(SOLVER, "setMatchingFastPath",
+            MethodType.methodType(void.class, boolean.class));
+
+    private Core() {
+    }
+
+    static Object generate(String family, int numEdges, long seed) {
+        try {
+            return GENERATE.invoke(family, numEdges, seed);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    static void writeText(Object graph, int source, int sink, Path path) {
+        try {
+            WRITE_TEXT.invoke(graph, source, sink, path);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    static Object parseFile(String path) {
+        try {
+            return PARSE_FILE.invoke(path);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    static Object parseFileParallel(String path) {
+        try {
+            return PARSE_PARALLEL.invoke(path);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    static Object algorithm(String name) {
+        try {
+            return FOR_NAME.invoke(name);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    static Object newGraph(int numNodes) {
+        try {
+            return NEW_GRAPH.invoke(numNodes);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    static void addEdge(Object graph, int source, int destination, int capacity) {
+        try {
+            ADD_EDGE.invoke(graph, source, destination, capacity);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    static int numNodes(Object graph) {
+        try {
+            return (int) NUM_NODES.invoke(graph);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    /**
+     * @return The edges of the graph as {sources, destinations, capacities}
+     */
+    static int[][] edgeArrays(Object graph) {
+        try {
+            List<?> edges = (List<?>) ALL_EDGES.invoke(graph);
+            int[][] arrays = new int[3][edges.size()];
+            for (int i = 0; i < edges.size(); i++) {
+                Object edge = edges.get(i);
+                arrays[0][i] = (int) EDGE_SOURCE.invoke(edge);
+                arrays[1][i] = (int) EDGE_DESTINATION.invoke(edge);
+                arrays[2][i] = (int) EDGE_CAPACITY.invoke(edge);
+            }
+            return arrays;
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    static long findMaxFlow(Object graph, Object algorithm, int source, int sink, boolean matchingFastPath) {
+        try {
+            Object solver = NEW_SOLVER.invoke(graph, algorithm);
+            SET_MATCHING_FAST_PATH.invoke(solver, matchingFastPath);
+            return (long) FIND_MAX_FLOW.invoke(solver, source, sink);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    private static Class<?> load(String name) {
+        try {
+            return Class.forName(name);
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException("Solver class not on the classpath: " + name, e);
+        }
+    }
+
+    private static MethodHandle findStatic(String owner, String name, MethodType type) {
+        try {
+            return MethodHandles.publicLookup().findStatic(load(owner), name, type);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Missing solver method " + owner + "." + name, e);
+        }
+    }
+
+    private static MethodHandle findVirtual(Class<?> owner, String name, MethodType type) {
+        try {
+            return MethodHandles.publicLookup().findVirtual(owner, name, type);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Missing solver method " + owner.getName() + "." + name, e);
+        }
+    }
+
+    private static MethodHandle findConstructor(Class<?> owner, MethodType type) {
+        try {
+            return MethodHandles.publicLookup().findConstructor(owner, type);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Missing solver constructor " + owner.getName(), e);
+        }
+    }
+
+    private static RuntimeException rethrow(Throwable e) {
+        if (e instanceof RuntimeException) {
+            return (RuntimeException) e;
+        }
+        if (e instanceof Error) {
+            throw (Error) e;
+        }
+        return new IllegalStateException(e);
+    }
+}
@@ -0,0 +1,60 @@
+package maxflow.bench;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Parser.parseFile and ParallelParser on a generated network written to a temporary text file
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ParseBenchmark {
+    @Param({"sparse", "dense", "grid", "bipartite", "ak"})
+    public String family;
+
+    @Param({"100000"})
+    public int edges;
+
+    private Path file;
+
+    @Setup
+    public void setUp() throws IOException {
+        Object graph = Core.generate(family, edges, 42);
+        file = Files.createTempFile("maxflow-bench", ".txt");
+        Core.writeText(graph, 0, Core.numNodes(graph) - 1, file);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public Object parseFile() {
+        return Core.parseFile(file.toString());
+    }
+
+    @Benchmark
+    public Object parseFileParallel() {
+        return Core.parseFileParallel(file.toString());
+    }
+}
@@ -0,0 +1,56 @@
+package maxflow.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * MaxFlowSolver.findMaxFlow with each engine. A fresh solver is created per operation, as
+ * its step log grows with every call; the engine itself is reused like in a long-lived caller.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class SolverBenchmark {
+    @Param({"sparse", "wide", "dense", "grid", "bipartite", "ak"})
+    public String family;
+
+    @Param({"10000"})
+    public int edges;
+
+    @Param({"edmonds-karp", "capacity-scaling", "dinic", "push-relabel", "parallel-push-relabel"})
+    public String algorithm;
+
+    /** Off so that every engine is measured on the bipartite family too */
+    @Param({"false"})
+    public boolean matchingFastPath;
+
+    private Object graph;
+    private Object engine;
+    private int sink;
+
+    @Setup
+    public void setUp() {
+        graph = Core.generate(family, edges, 42);
+        engine = Core.algorithm(algorithm);
+        sink = Core.numNodes(graph) - 1;
+    }
+
+    @Benchmark
+    public long findMaxFlow() {
+        return Core.findMaxFlow(graph, engine, 0, sink, matchingFastPath);
+    }
+}
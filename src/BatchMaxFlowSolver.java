@@ -0,0 +1,244 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Answers many source/sink queries on one graph.
+ *
+ * The graph is compiled once into a ResidualNetwork that is never solved itself. Each worker
+ * thread owns a copy that shares the topology arrays and is reset to zero flow by a single
+ * array copy between queries, together with its own engine instance. Queries are spread over
+ * a ForkJoinPool. The graph's Edge objects are never written, so batches can run
+ * concurrently; per-query edge flows are returned as arrays instead.
+ *
+ * The graph is read once, when the solver is created: later changes to it are not seen.
+ * Graphs with capacities above the int range are not supported.
+ */
+public class BatchMaxFlowSolver {
+    private final ResidualNetwork topology;
+    private final Supplier<MaxFlowAlgorithm> algorithmFactory;
+    private final ForkJoinPool pool;
+    private final ConcurrentLinkedQueue<Worker> idleWorkers;
+
+    /**
+     * Batch solver using Dinic's algorithm on the common pool
+     *
+     * @param graph The flow network graph
+     */
+    public BatchMaxFlowSolver(Graph graph) {
+        this(graph, DinicAlgorithm::new, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param graph The flow network graph
+     * @param algorithmFactory Creates one engine per worker, as engines keep per-call state
+     * @param pool The pool the queries run on
+     */
+    public BatchMaxFlowSolver(Graph graph, Supplier<MaxFlowAlgorithm> algorithmFactory, ForkJoinPool pool) {
+        if (graph == null) {
+            throw new IllegalArgumentException("Graph cannot be null");
+        }
+        if (algorithmFactory == null) {
+            throw new IllegalArgumentException("Algorithm factory cannot be null");
+        }
+        if (pool == null) {
+            throw new IllegalArgumentException("Pool cannot be null");
+        }
+        this.topology = new ResidualNetwork(graph);
+        this.algorithmFactory = algorithmFactory;
+        this.pool = pool;
+        this.idleWorkers = new ConcurrentLinkedQueue<>();
+    }
+
+    /**
+     * Compute the maximum flow of every query
+     *
+     * @param queries The source/sink pairs
+     * @param includeFlows Whether each result should carry the edge flows of its query
+     * @return One result per query, in the same order
+     * @throws IllegalArgumentException if a query has an invalid source or sink
+     */
+    public List<Result> solve(List<Query> queries, boolean includeFlows) {
+        for (Query query : queries) {
+            checkQuery(query);
+        }
+
+        Result[] results = new Result[queries.size()];
+        AtomicInteger next = new AtomicInteger();
+
+        // One task per pool thread, each pulling queries until none are left
+        int numTasks = Math.max(1, Math.min(pool.getParallelism(), queries.size()));
+        List<Callable<Void>> tasks = new ArrayList<>(numTasks);
+        for (int t = 0; t < numTasks; t++) {
+            tasks.add(() -> {
+                Worker worker = acquireWorker();
+                try {
+                    for (int i = next.getAndIncrement(); i < results.length; i = next.getAndIncrement()) {
+                        results[i] = worker.solve(queries.get(i), includeFlows);
+                    }
+                } finally {
+                    idleWorkers.add(worker);
+                }
+                return null;
+            });
+        }
+
+        try {
+            for (Future<Void> future : pool.invokeAll(tasks)) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while solving the batch", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException("Query failed", e.getCause());
+        }
+        return Arrays.asList(results);
+    }
+
+    /**
+     * Compute the maximum flow of one query on the calling thread instead of the pool. Safe to
+     * call from many threads at once: each call borrows an idle worker or creates one.
+     *
+     * @param query The source/sink pair
+     * @param includeFlows Whether the result should carry the edge flows
+     * @throws IllegalArgumentException if the query has an invalid source or sink
+     */
+    public Result solve(Query query, boolean includeFlows) {
+        checkQuery(query);
+        Worker worker = acquireWorker();
+        try {
+            return worker.solve(query, includeFlows);
+        } finally {
+            idleWorkers.add(worker);
+        }
+    }
+
+    /**
+     * @param workers The number of workers to account for, e.g. the parallelism of the pool
+     * @return Bytes held by the shared topology plus the residual capacities of that many workers
+     */
+    public long getMemoryBytes(int workers) {
+        return topology.getMemoryBytes() + 4L * topology.getNumArcs() * workers;
+    }
+
+    private void checkQuery(Query query) {
+        int numNodes = topology.getNumNodes();
+        if (query.getSource() < 0 || query.getSource() >= numNodes) {
+            throw new IllegalArgumentException("Invalid source node: " + query.getSource());
+        }
+        if (query.getSink() < 0 || query.getSink() >= numNodes) {
+            throw new IllegalArgumentException("Invalid sink node: " + query.getSink());
+        }
+        if (query.getSource() == query.getSink()) {
+            throw new IllegalArgumentException("Source and sink cannot be the same node");
+        }
+    }
+
+    /**
+     * Compute the maximum flow of every query, without edge flows
+     *
+     * @param sources Source node of each query
+     * @param sinks Sink node of each query
+     * @return The flow value of each query
+     */
+    public long[] findMaxFlows(int[] sources, int[] sinks) {
+        if (sources.length != sinks.length) {
+            throw new IllegalArgumentException("Got " + sources.length + " sources but " + sinks.length + " sinks");
+        }
+        List<Query> queries = new ArrayList<>(sources.length);
+        for (int i = 0; i < sources.length; i++) {
+            queries.add(new Query(sources[i], sinks[i]));
+        }
+        List<Result> results = solve(queries, false);
+        long[] flows = new long[results.size()];
+        for (int i = 0; i < flows.length; i++) {
+            flows[i] = results.get(i).getMaxFlow();
+        }
+        return flows;
+    }
+
+    private Worker acquireWorker() {
+        Worker worker = idleWorkers.poll();
+        return worker != null ? worker : new Worker();
+    }
+
+    // Residual buffers and engine owned by one thread at a time
+    private final class Worker {
+        private final ResidualNetwork residual = topology.copy();
+        private final MaxFlowAlgorithm algorithm = algorithmFactory.get();
+
+        Result solve(Query query, boolean includeFlows) {
+            residual.resetTo(topology);
+            long maxFlow = algorithm.computeMaxFlow(residual, query.getSource(), query.getSink(), FlowTracer.NONE);
+            return new Result(query.getSource(), query.getSink(), maxFlow, includeFlows ? residual.getEdgeFlows() : null);
+        }
+    }
+
+    /**
+     * A source/sink pair to solve
+     */
+    public static class Query {
+        private final int source;
+        private final int sink;
+
+        public Query(int source, int sink) {
+            this.source = source;
+            this.sink = sink;
+        }
+
+        public int getSource() {
+            return source;
+        }
+
+        public int getSink() {
+            return sink;
+        }
+    }
+
+    /**
+     * The answer to one query
+     */
+    public static class Result {
+        private final int source;
+        private final int sink;
+        private final long maxFlow;
+        private final int[] edgeFlows;
+
+        Result(int source, int sink, long maxFlow, int[] edgeFlows) {
+            this.source = source;
+            this.sink = sink;
+            this.maxFlow = maxFlow;
+            this.edgeFlows = edgeFlows;
+        }
+
+        public int getSource() {
+            return source;
+        }
+
+        public int getSink() {
+            return sink;
+        }
+
+        public long getMaxFlow() {
+            return maxFlow;
+        }
+
+        /**
+         * @return The flow of every edge in getAllEdges() order, or null if flows were not requested
+         */
+        public int[] getEdgeFlows() {
+            return edgeFlows;
+        }
+    }
+}
@@ -0,0 +1,84 @@
+import java.util.Arrays;
+
+/**
+ * Reusable scratch space for breadth-first searches over a ResidualNetwork.
+ *
+ * Holds a primitive int ring-buffer queue, the arc used to reach each node and a
+ * generation-stamped visited array, so starting a new search is O(1) and allocates nothing.
+ */
+public class BfsWorkspace {
+    private final int numNodes;
+    private final int[] queue;
+    private final int mask;
+    private final int[] visitStamp;
+    private final int[] parentArc;
+    private int generation;
+    private int head;
+    private int tail;
+
+    /**
+     * @param numNodes Number of nodes in the networks this workspace will search
+     */
+    public BfsWorkspace(int numNodes) {
+        this.numNodes = numNodes;
+        // Round the queue up to a power of two so indices wrap with a mask
+        int capacity = Integer.highestOneBit(Math.max(1, numNodes));
+        if (capacity < numNodes) {
+            capacity <<= 1;
+        }
+        this.queue = new int[capacity];
+        this.mask = capacity - 1;
+        this.visitStamp = new int[numNodes];
+        this.parentArc = new int[numNodes];
+        this.generation = 0;
+    }
+
+    public int getNumNodes() {
+        return numNodes;
+    }
+
+    /**
+     * Start a new search: forgets every visited mark and empties the queue
+     */
+    public void reset() {
+        generation++;
+        if (generation == 0) {
+            // The stamp wrapped around, so old marks could collide with the new generation
+            Arrays.fill(visitStamp, 0);
+            generation = 1;
+        }
+        head = 0;
+        tail = 0;
+    }
+
+    public boolean isVisited(int node) {
+        return visitStamp[node] == generation;
+    }
+
+    /**
+     * Mark a node visited, remember how it was reached and enqueue it
+     *
+     * @param node The node being discovered
+     * @param arc The arc used to reach it, or -1 for a search root
+     */
+    public void visit(int node, int arc) {
+        visitStamp[node] = generation;
+        parentArc[node] = arc;
+        queue[tail++ & mask] = node;
+    }
+
+    public boolean isQueueEmpty() {
+        return head == tail;
+    }
+
+    public int poll() {
+        return queue[head++ & mask];
+    }
+
+    /**
+     * @return The arc used to reach the node in the current search, or -1 for the root
+     */
+    public int getParentArc(int node) {
+        return parentArc[node];
+    }
+}
@@ -0,0 +1,53 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Paths;
+
+/**
+ * Command-line converter from the text input format to the binary graph format.
+ *
+ * Usage: java BinaryGraphConverter <input.txt | directory> [output.bin]
+ *
+ * Without an output path the binary file is written next to the input with a .bin
+ * extension. Given a directory, every .txt file in it is converted.
+ */
+public class BinaryGraphConverter {
+
+    public static void main(String[] args) {
+        if (args.length < 1) {
+            System.err.println("Error: Missing input file argument");
+            System.out.println("Usage: java BinaryGraphConverter <input.txt | directory> [output.bin]");
+            return;
+        }
+
+        File input = new File(args[0]);
+        if (input.isDirectory()) {
+            File[] textFiles = input.listFiles((dir, name) -> name.endsWith(".txt"));
+            if (textFiles == null || textFiles.length == 0) {
+                System.out.println("No .txt files found in " + input);
+                return;
+            }
+            for (File file : textFiles) {
+                convert(file.getPath(), binaryPathFor(file.getPath()));
+            }
+        } else {
+            convert(args[0], args.length >= 2 ? args[1] : binaryPathFor(args[0]));
+        }
+    }
+
+    private static void convert(String inputPath, String outputPath) {
+        try {
+            long start = System.nanoTime();
+            EdgeList edges = Parser.parseFileMapped(inputPath);
+            BinaryGraphFormat.write(edges, Paths.get(outputPath));
+            System.out.println("Converted " + inputPath + " -> " + outputPath + " (" + edges.getNumNodes()
+                    + " nodes, " + edges.getNumEdges() + " edges, "
+                    + (System.nanoTime() - start) / 1_000_000 + " ms)");
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("Error converting " + inputPath + ": " + e.getMessage());
+        }
+    }
+
+    private static String binaryPathFor(String textPath) {
+        return (textPath.endsWith(".txt") ? textPath.substring(0, textPath.length() - 4) : textPath) + ".bin";
+    }
+}
@@ -0,0 +1,204 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Versioned binary on-disk format for flow networks.
+ *
+ * Layout, all values little-endian:
+ * <pre>
+ *   offset  size  field
+ *   0       4     magic "MFGB"
+ *   4       4     version (1)
+ *   8       4     flags (bit 0: edges sorted by source, i.e. CSR order)
+ *   12      4     number of nodes
+ *   16      4     number of edges E
+ *   20      4     source node, -1 if not specified
+ *   24      4     sink node, -1 if not specified
+ *   28      4     reserved (0)
+ *   32      4*E   edge sources
+ *   ...     4*E   edge destinations
+ *   ...     4*E   edge capacities
+ * </pre>
+ * The writer always stores edges in CSR order; the loader memory-maps the file and copies
+ * the three arrays in bulk into an EdgeList, so no Edge objects are created.
+ */
+public class BinaryGraphFormat {
+    public static final int MAGIC = 'M' | 'F' << 8 | 'G' << 16 | 'B' << 24;
+    public static final int VERSION = 1;
+    public static final int FLAG_CSR_SORTED = 1;
+    static final int HEADER_SIZE = 32;
+
+    // Largest region mapped at once when copying the arrays
+    private static final long MAP_WINDOW = 1L << 30;
+
+    /**
+     * Write a network in binary form, with its edges sorted by source
+     *
+     * @param edges The network to write
+     * @param path Destination file, replaced if it exists
+     * @throws IOException if the file cannot be written
+     * @throws IllegalArgumentException if the edges have costs or source and sink sets, which the
+     *         format does not store
+     */
+    public static void write(EdgeList edges, Path path) throws IOException {
+        if (edges.hasCosts()) {
+            throw new IllegalArgumentException("The binary graph format does not store edge costs");
+        }
+        if (edges.hasTerminalSets()) {
+            throw new IllegalArgumentException("The binary graph format does not store source and sink sets");
+        }
+        int numNodes = edges.getNumNodes();
+        int numEdges = edges.getNumEdges();
+
+        // Stable counting sort of the edge indices by source node
+        int[] start = new int[numNodes + 1];
+        for (int i = 0; i < numEdges; i++) {
+            start[edges.getSource(i) + 1]++;
+        }
+        for (int v = 0; v < numNodes; v++) {
+            start[v + 1] += start[v];
+        }
+        int[] order = new int[numEdges];
+        for (int i = 0; i < numEdges; i++) {
+            order[start[edges.getSource(i)]++] = i;
+        }
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putInt(MAGIC)
+                  .putInt(VERSION)
+                  .putInt(FLAG_CSR_SORTED)
+                  .putInt(numNodes)
+                  .putInt(numEdges)
+                  .putInt(edges.getSource())
+                  .putInt(edges.getSink())
+                  .putInt(0);
+
+            for (int i = 0; i < numEdges; i++) {
+                if (!buffer.hasRemaining()) {
+                    flush(channel, buffer);
+                }
+                buffer.putInt(edges.getSource(order[i]));
+            }
+            for (int i = 0; i < numEdges; i++) {
+                if (!buffer.hasRemaining()) {
+                    flush(channel, buffer);
+                }
+                buffer.putInt(edges.getDestination(order[i]));
+            }
+            for (int i = 0; i < numEdges; i++) {
+                if (!buffer.hasRemaining()) {
+                    flush(channel, buffer);
+                }
+                buffer.putInt(edges.getCapacity(order[i]));
+            }
+            flush(channel, buffer);
+        }
+    }
+
+    private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Load a binary network by memory-mapping it
+     *
+     * @param path The file to load
+     * @return EdgeList wrapping the loaded arrays, with source and sink from the header
+     * @throws IOException if the file cannot be read or is not a valid binary graph
+     */
+    public static EdgeList read(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            throw new IOException("File does not exist: " + path);
+        }
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_SIZE) {
+                throw new IOException("Not a binary graph file: " + path);
+            }
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            if (header.getInt(0) != MAGIC) {
+                throw new IOException("Not a binary graph file: " + path);
+            }
+            int version = header.getInt(4);
+            if (version != VERSION) {
+                throw new IOException("Unsupported binary graph version: " + version);
+            }
+            int numNodes = header.getInt(12);
+            int numEdges = header.getInt(16);
+            int source = header.getInt(20);
+            int sink = header.getInt(24);
+            if (numNodes <= 0) {
+                throw new IOException("Invalid number of nodes: must be positive");
+            }
+            if (numEdges < 0 || size != HEADER_SIZE + 12L * numEdges) {
+                throw new IOException("Corrupt binary graph: expected " + numEdges
+                        + " edges but file size is " + size + " bytes");
+            }
+
+            int[] sources = new int[numEdges];
+            int[] destinations = new int[numEdges];
+            int[] capacities = new int[numEdges];
+            long offset = HEADER_SIZE;
+            readInts(channel, offset, sources);
+            offset += 4L * numEdges;
+            readInts(channel, offset, destinations);
+            offset += 4L * numEdges;
+            readInts(channel, offset, capacities);
+
+            // Validate once so the solvers can trust the arrays
+            for (int i = 0; i < numEdges; i++) {
+                if (sources[i] < 0 || sources[i] >= numNodes
+                        || destinations[i] < 0 || destinations[i] >= numNodes) {
+                    throw new IOException("Corrupt binary graph: edge " + i + " has an invalid node");
+                }
+                if (capacities[i] < 0) {
+                    throw new IOException("Corrupt binary graph: edge " + i + " has a negative capacity");
+                }
+            }
+
+            EdgeList edges = new EdgeList(numNodes, sources, destinations, capacities, numEdges);
+            edges.setSourceSink(source, sink);
+            return edges;
+        }
+    }
+
+    // Bulk-copy little-endian ints from the mapped file, one window at a time
+    private static void readInts(FileChannel channel, long offset, int[] target) throws IOException {
+        int copied = 0;
+        while (copied < target.length) {
+            int count = (int) Math.min(target.length - copied, MAP_WINDOW / 4);
+            IntBuffer ints = channel.map(FileChannel.MapMode.READ_ONLY, offset + 4L * copied, 4L * count)
+                    .order(ByteOrder.LITTLE_ENDIAN)
+                    .asIntBuffer();
+            ints.get(target, copied, count);
+            copied += count;
+        }
+    }
+
+    /**
+     * @return Whether the file starts with the binary graph magic number
+     */
+    public static boolean isBinaryGraph(Path path) throws IOException {
+        if (!Files.exists(path) || Files.size(path) < HEADER_SIZE) {
+            return false;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer magic = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+            return channel.read(magic) == 4 && magic.getInt(0) == MAGIC;
+        }
+    }
+}
@@ -0,0 +1,462 @@
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Maximum bipartite matching with Hopcroft-Karp, on primitive CSR arrays.
+ *
+ * Each phase runs one BFS from all free left nodes, layering the graph by alternating path
+ * length, and then finds a maximal set of vertex-disjoint shortest augmenting paths with
+ * current-arc DFS. There are O(sqrt(V)) phases of O(E) each, so a matching takes O(E sqrt(V))
+ * instead of the O(VE^2) of a general max flow engine.
+ *
+ * Matchings are either built directly with addEdge, or detected in a flow network by
+ * fromGraph when the network is the usual unit-capacity encoding of a matching problem.
+ * MaxFlowSolver does the latter automatically and writes the matching back as edge flows.
+ * A detected matching takes no further pairs, since each of its pairs stands for a graph edge.
+ */
+public class BipartiteMatching {
+    private static final int UNREACHED = Integer.MAX_VALUE;
+
+    private final int numLeft;
+    private final int numRight;
+    private int numPairs;
+    private int[] pairLeft;      // left node of each candidate pair
+    private int[] pairRight;     // right node of each candidate pair
+
+    // Flow-network origin, when built by fromGraph
+    private int[] leftNodes;     // graph node of each left node
+    private int[] rightNodes;    // graph node of each right node
+    private int[] leftEdges;     // source edge feeding each left node
+    private int[] rightEdges;    // sink edge draining each right node
+    private int[] pairEdges;     // graph edge of each pair
+
+    // Adjacency of the left nodes in CSR form, built by solve
+    private int[] offsets;
+    private int[] arcPairs;      // pair of each arc, whose right node is the arc's head
+
+    private int[] matchLeft;     // matched pair of each left node, -1 if free
+    private int[] matchRight;    // matched left node of each right node, -1 if free
+    private int size;
+    private int phases;
+    private long augmentingPaths;
+    private long nodesScanned;
+    private long arcsScanned;
+
+    /**
+     * @param numLeft Number of nodes on the left side, numbered from 0
+     * @param numRight Number of nodes on the right side, numbered from 0
+     */
+    public BipartiteMatching(int numLeft, int numRight) {
+        if (numLeft < 0 || numRight < 0) {
+            throw new IllegalArgumentException("Invalid side sizes: " + numLeft + " and " + numRight);
+        }
+        this.numLeft = numLeft;
+        this.numRight = numRight;
+        this.pairLeft = new int[16];
+        this.pairRight = new int[16];
+    }
+
+    /**
+     * Allow left node to be matched with right node
+     *
+     * @throws IllegalStateException if the matching was detected by fromGraph, whose pairs
+     *         stand for the graph's edges
+     */
+    public void addEdge(int left, int right) {
+        if (leftNodes != null) {
+            throw new IllegalStateException("Cannot add pairs to a matching detected in a graph");
+        }
+        if (left < 0 || left >= numLeft) {
+            throw new IllegalArgumentException("Invalid left node: " + left);
+        }
+        if (right < 0 || right >= numRight) {
+            throw new IllegalArgumentException("Invalid right node: " + right);
+        }
+        if (numPairs == pairLeft.length) {
+            int grown = Math.max(numPairs + 1, numPairs + (numPairs >> 1));
+            pairLeft = Arrays.copyOf(pairLeft, grown);
+            pairRight = Arrays.copyOf(pairRight, grown);
+        }
+        pairLeft[numPairs] = left;
+        pairRight[numPairs] = right;
+        numPairs++;
+    }
+
+    /**
+     * Recognize a flow network that encodes a bipartite matching: every edge has capacity 1,
+     * the source only feeds left nodes, once each, the sink is only fed by right nodes, once
+     * each, and every other edge leads from a left node to a right node. Its maximum flow is
+     * then the size of a maximum matching between the two sides.
+     *
+     * @return The matching problem, or null if the network does not have this structure
+     */
+    public static BipartiteMatching fromGraph(Graph graph, int source, int sink) {
+        int numNodes = graph.getNumNodes();
+        List<Edge> edges = graph.getAllEdges();
+        byte[] side = new byte[numNodes]; // 0 unused, 1 left, 2 right
+        int[] local = new int[numNodes];  // index of a node within its side
+        int[] feed = new int[numNodes];   // source or sink edge of a node, -1 if none yet
+        Arrays.fill(feed, -1);
+        int numLeft = 0;
+        int numRight = 0;
+        int numPairs = 0;
+
+        // Classify every node by the edges touching it, rejecting anything but the matching shape
+        int index = 0;
+        for (Edge edge : edges) {
+            int u = edge.getSource();
+            int v = edge.getDestination();
+            if (edge.getLongCapacity() != 1 || u == v || v == source || u == sink) {
+                return null;
+            }
+            if (u == source && v == sink) {
+                return null;
+            }
+            if (u == source || v == sink) {
+                int node = u == source ? v : u;
+                if (feed[node] != -1) {
+                    return null;
+                }
+                feed[node] = index;
+            } else {
+                numPairs++;
+            }
+            // A source edge leads to a left node, a sink edge leaves a right node
+            int left = v == sink ? -1 : u == source ? v : u;
+            int right = u == source ? -1 : v == sink ? u : v;
+            if (left != -1) {
+                if (side[left] == 2) {
+                    return null;
+                }
+                if (side[left] == 0) {
+                    side[left] = 1;
+                    local[left] = numLeft++;
+                }
+            }
+            if (right != -1) {
+                if (side[right] == 1) {
+                    return null;
+                }
+                if (side[right] == 0) {
+                    side[right] = 2;
+                    local[right] = numRight++;
+                }
+            }
+            index++;
+        }
+
+        BipartiteMatching matching = new BipartiteMatching(numLeft, numRight);
+        matching.pairLeft = new int[Math.max(1, numPairs)];
+        matching.pairRight = new int[Math.max(1, numPairs)];
+        matching.pairEdges = new int[numPairs];
+        matching.leftNodes = new int[numLeft];
+        matching.rightNodes = new int[numRight];
+        matching.leftEdges = new int[numLeft];
+        matching.rightEdges = new int[numRight];
+        for (int node = 0; node < numNodes; node++) {
+            if (side[node] == 1) {
+                matching.leftNodes[local[node]] = node;
+                matching.leftEdges[local[node]] = feed[node];
+            } else if (side[node] == 2) {
+                matching.rightNodes[local[node]] = node;
+                matching.rightEdges[local[node]] = feed[node];
+            }
+        }
+        // Pairs whose left node is not fed by the source or whose right node does not drain into
+        // the sink cannot carry flow, so they are left out
+        index = 0;
+        for (Edge edge : edges) {
+            int u = edge.getSource();
+            int v = edge.getDestination();
+            if (u != source && v != sink && feed[u] != -1 && feed[v] != -1) {
+                matching.pairLeft[matching.numPairs] = local[u];
+                matching.pairRight[matching.numPairs] = local[v];
+                matching.pairEdges[matching.numPairs++] = index;
+            }
+            index++;
+        }
+        return matching;
+    }
+
+    /**
+     * Compute a maximum matching, replacing any previous one
+     *
+     * @return The number of matched pairs
+     */
+    public int solve() {
+        return solve(FlowTracer.NONE);
+    }
+
+    /**
+     * Compute a maximum matching, reporting every phase to the tracer
+     *
+     * @return The number of matched pairs
+     */
+    public int solve(FlowTracer tracer) {
+        buildAdjacency();
+        matchLeft = new int[numLeft];
+        matchRight = new int[numRight];
+        Arrays.fill(matchLeft, -1);
+        Arrays.fill(matchRight, -1);
+        size = 0;
+        phases = 0;
+        augmentingPaths = 0;
+        nodesScanned = 0;
+        arcsScanned = 0;
+
+        int[] distance = new int[numLeft];
+        int[] queue = new int[numLeft];
+        int[] currentArc = new int[numLeft];
+        int[] stack = new int[numLeft];
+
+        // A greedy pass matches most nodes before the first search
+        for (int u = 0; u < numLeft; u++) {
+            for (int arc = offsets[u]; arc < offsets[u + 1]; arc++) {
+                int v = pairRight[arcPairs[arc]];
+                if (matchRight[v] == -1) {
+                    matchLeft[u] = arcPairs[arc];
+                    matchRight[v] = u;
+                    size++;
+                    augmentingPaths++;
+                    break;
+                }
+            }
+        }
+        if (tracer.isEnabled()) {
+            tracer.onMessage("Greedy matching of " + size + " pairs");
+        }
+
+        while (layer(distance, queue)) {
+            phases++;
+            int phaseStart = size;
+            System.arraycopy(offsets, 0, currentArc, 0, numLeft);
+            for (int u = 0; u < numLeft; u++) {
+                if (matchLeft[u] == -1 && augment(u, distance, currentArc, stack)) {
+                    size++;
+                    augmentingPaths++;
+                }
+            }
+            if (tracer.isEnabled()) {
+                tracer.onMessage("Phase " + phases + ": " + (size - phaseStart)
+                        + " augmenting paths, matching size " + size);
+            }
+        }
+        return size;
+    }
+
+    // Group the pairs by left node
+    private void buildAdjacency() {
+        offsets = new int[numLeft + 1];
+        arcPairs = new int[numPairs];
+        for (int p = 0; p < numPairs; p++) {
+            offsets[pairLeft[p] + 1]++;
+        }
+        for (int u = 0; u < numLeft; u++) {
+            offsets[u + 1] += offsets[u];
+        }
+        int[] next = Arrays.copyOf(offsets, numLeft);
+        for (int p = 0; p < numPairs; p++) {
+            arcPairs[next[pairLeft[p]]++] = p;
+        }
+    }
+
+    // BFS from the free left nodes over alternating paths; true if a free right node is reachable
+    private boolean layer(int[] distance, int[] queue) {
+        int head = 0;
+        int tail = 0;
+        for (int u = 0; u < numLeft; u++) {
+            if (matchLeft[u] == -1) {
+                distance[u] = 0;
+                queue[tail++] = u;
+            } else {
+                distance[u] = UNREACHED;
+            }
+        }
+
+        // Layers beyond the first one containing a free right node cannot be on a shortest path
+        int limit = UNREACHED;
+        while (head < tail) {
+            int u = queue[head++];
+            if (distance[u] >= limit) {
+                break;
+            }
+            nodesScanned++;
+            arcsScanned += offsets[u + 1] - offsets[u];
+            for (int arc = offsets[u], end = offsets[u + 1]; arc < end; arc++) {
+                int w = matchRight[pairRight[arcPairs[arc]]];
+                if (w == -1) {
+                    limit = distance[u] + 1;
+                } else if (distance[w] == UNREACHED) {
+                    distance[w] = distance[u] + 1;
+                    queue[tail++] = w;
+                }
+            }
+        }
+        return limit != UNREACHED;
+    }
+
+    // Iterative DFS along the layers from a free left node; flips the path if it reaches a free right node
+    private boolean augment(int start, int[] distance, int[] currentArc, int[] stack) {
+        int depth = 0;
+        stack[depth++] = start;
+        while (depth > 0) {
+            int u = stack[depth - 1];
+            int arc = currentArc[u];
+            if (arc == offsets[u + 1]) {
+                // Dead end: drop u from the layers and advance its parent
+                distance[u] = UNREACHED;
+                depth--;
+                if (depth > 0) {
+                    currentArc[stack[depth - 1]]++;
+                }
+                continue;
+            }
+            int w = matchRight[pairRight[arcPairs[arc]]];
+            if (w == -1) {
+                // Every node on the stack takes the right node its current arc leads to
+                for (int i = depth - 1; i >= 0; i--) {
+                    int x = stack[i];
+                    int pair = arcPairs[currentArc[x]];
+                    matchLeft[x] = pair;
+                    matchRight[pairRight[pair]] = x;
+                }
+                return true;
+            }
+            if (distance[w] == distance[u] + 1) {
+                stack[depth++] = w;
+            } else {
+                currentArc[u]++;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Write the matching back as flows: 1 on the source edge, pair edge and sink edge of every
+     * matched pair and 0 elsewhere
+     *
+     * @param graph The graph this matching was detected in by fromGraph
+     */
+    void writeFlows(Graph graph) {
+        int[] flows = new int[graph.getAllEdges().size()];
+        for (int u = 0; u < numLeft; u++) {
+            int pair = matchLeft[u];
+            if (pair != -1) {
+                flows[leftEdges[u]] = 1;
+                flows[pairEdges[pair]] = 1;
+                flows[rightEdges[pairRight[pair]]] = 1;
+            }
+        }
+        if (graph instanceof CompactGraph) {
+            CompactGraph compact = (CompactGraph) graph;
+            for (int i = 0; i < flows.length; i++) {
+                compact.setFlow(i, flows[i]);
+            }
+            return;
+        }
+        int index = 0;
+        for (Edge edge : graph.getAllEdges()) {
+            edge.setFlow(flows[index++]);
+        }
+    }
+
+    public int getNumLeft() {
+        return numLeft;
+    }
+
+    public int getNumRight() {
+        return numRight;
+    }
+
+    /**
+     * @return The size of the matching found by the last solve
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * @return The right node matched with the left node, or -1 if it is free
+     */
+    public int getMatch(int left) {
+        checkSolved();
+        int pair = matchLeft[left];
+        return pair == -1 ? -1 : pairRight[pair];
+    }
+
+    /**
+     * @return The left node matched with the right node, or -1 if it is free
+     */
+    public int getMatchOfRight(int right) {
+        checkSolved();
+        return matchRight[right];
+    }
+
+    /**
+     * @return The graph node of a left node, for a matching detected by fromGraph
+     */
+    public int getLeftNode(int left) {
+        checkDetected();
+        return leftNodes[left];
+    }
+
+    /**
+     * @return The graph node of a right node, for a matching detected by fromGraph
+     */
+    public int getRightNode(int right) {
+        checkDetected();
+        return rightNodes[right];
+    }
+
+    /**
+     * @return The matched pairs as graph nodes {left, right}, for a matching detected by fromGraph
+     */
+    public int[][] getMatchedNodes() {
+        checkSolved();
+        checkDetected();
+        int[][] pairs = new int[size][];
+        int count = 0;
+        for (int u = 0; u < numLeft; u++) {
+            if (matchLeft[u] != -1) {
+                pairs[count++] = new int[] { leftNodes[u], rightNodes[pairRight[matchLeft[u]]] };
+            }
+        }
+        return pairs;
+    }
+
+    /**
+     * Copy the work counters of the last solve into the stats
+     */
+    void collectStats(SolveStats stats) {
+        stats.phases = phases;
+        stats.augmentingPaths = augmentingPaths;
+        stats.nodesScanned = nodesScanned;
+        stats.arcsScanned = arcsScanned;
+    }
+
+    /**
+     * @return Bytes held by the arrays of the matching, excluding object headers
+     */
+    long getMemoryBytes() {
+        long bytes = 4L * (pairLeft.length + pairRight.length);
+        if (pairEdges != null) {
+            bytes += 4L * (pairEdges.length + leftNodes.length + rightNodes.length + leftEdges.length + rightEdges.length);
+        }
+        if (offsets != null) {
+            bytes += 4L * (offsets.length + arcPairs.length + matchLeft.length + matchRight.length);
+        }
+        return bytes;
+    }
+
+    private void checkSolved() {
+        if (matchLeft == null) {
+            throw new IllegalStateException("Call solve before reading the matching");
+        }
+    }
+
+    private void checkDetected() {
+        if (leftNodes == null) {
+            throw new IllegalStateException("The matching was not detected in a graph");
+        }
+    }
+}
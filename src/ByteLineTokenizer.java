@@ -0,0 +1,136 @@
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Splits a byte buffer into lines and parses the whitespace-separated integers on each line
+ * directly from the bytes, without creating Strings.
+ *
+ * Lines end at '\n'; any byte from 0x00 up to ' ' (including '\r') counts as whitespace, and
+ * any other byte, including non-ASCII ones, is part of a token. Numbers follow
+ * Integer.parseInt: an optional sign followed by decimal digits that fit in an int.
+ */
+class ByteLineTokenizer {
+    static final int MAX_VALUES = 4;
+
+    private ByteBuffer buffer;
+    private int position;
+    private int limit;
+    private int lineStart;
+    private int lineEnd;
+    private int tokenCount;
+    private boolean valid;
+    private final int[] values = new int[MAX_VALUES];
+
+    /**
+     * Start tokenizing bytes [from, to) of the buffer
+     */
+    void reset(ByteBuffer buffer, int from, int to) {
+        this.buffer = buffer;
+        this.position = from;
+        this.limit = to;
+    }
+
+    /**
+     * Parse the next line
+     *
+     * @return false when the range is exhausted
+     */
+    boolean nextLine() {
+        if (position >= limit) {
+            return false;
+        }
+        ByteBuffer buf = buffer;
+        int pos = position;
+        int end = limit;
+        lineStart = pos;
+        tokenCount = 0;
+        valid = true;
+
+        while (pos < end) {
+            byte b = buf.get(pos);
+            if (b == '\n') {
+                break;
+            }
+            // Bytes are signed, so the check for 0x80-0xFF keeps non-ASCII bytes out of the separators
+            if (b >= 0 && b <= ' ') {
+                pos++;
+                continue;
+            }
+
+            // Parse one token
+            boolean negative = false;
+            boolean digits = false;
+            boolean tokenValid = true;
+            long value = 0;
+            if (b == '-' || b == '+') {
+                negative = b == '-';
+                pos++;
+            }
+            while (pos < end) {
+                b = buf.get(pos);
+                if (b >= 0 && b <= ' ') {
+                    break;
+                }
+                if (b >= '0' && b <= '9') {
+                    digits = true;
+                    if (value <= Integer.MAX_VALUE + 1L) {
+                        value = value * 10 + (b - '0');
+                    }
+                } else {
+                    tokenValid = false;
+                }
+                pos++;
+            }
+            if (negative) {
+                value = -value;
+            }
+            if (!digits || !tokenValid || value > Integer.MAX_VALUE || value < Integer.MIN_VALUE) {
+                valid = false;
+            } else if (tokenCount < MAX_VALUES) {
+                values[tokenCount] = (int) value;
+            }
+            tokenCount++;
+        }
+
+        lineEnd = pos;
+        position = pos < end ? pos + 1 : pos; // Skip the newline
+        return true;
+    }
+
+    /**
+     * @return Number of whitespace-separated tokens on the current line
+     */
+    int tokenCount() {
+        return tokenCount;
+    }
+
+    /**
+     * @return Whether every token on the current line is a valid int
+     */
+    boolean isValid() {
+        return valid;
+    }
+
+    int value(int index) {
+        return values[index];
+    }
+
+    /**
+     * @return Offset of the first byte after the current line and its newline
+     */
+    int position() {
+        return position;
+    }
+
+    /**
+     * Decode the current line, only needed for error messages
+     */
+    String lineText() {
+        byte[] bytes = new byte[lineEnd - lineStart];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = buffer.get(lineStart + i);
+        }
+        String text = new String(bytes, StandardCharsets.UTF_8);
+        return text.endsWith("\r") ? text.substring(0, text.length() - 1) : text;
+    }
+}
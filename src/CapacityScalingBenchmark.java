@@ -0,0 +1,68 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Augmentation and wall-time report for the capacity-scaling mode of EdmondsKarpAlgorithm.
+ *
+ * Generates sparse networks whose capacities are drawn log-uniformly from [1, U] for growing
+ * U and solves each with plain Edmonds-Karp and with capacity scaling. For both it prints the
+ * number of augmenting paths and the best wall time of several runs, next to the number of
+ * scaling phases and the speedup. Both modes must agree on the flow value.
+ *
+ * Usage: java CapacityScalingBenchmark [nodes] [edges] [runs]
+ */
+public class CapacityScalingBenchmark {
+    private static final int[] MAX_CAPACITIES = {1_000, 1_000_000, 1_000_000_000};
+
+    public static void main(String[] args) {
+        int numNodes = args.length > 0 ? Integer.parseInt(args[0]) : 25_000;
+        int numEdges = args.length > 1 ? Integer.parseInt(args[1]) : 100_000;
+        int runs = args.length > 2 ? Integer.parseInt(args[2]) : 3;
+
+        System.out.println("==== Capacity scaling vs. Edmonds-Karp ====");
+        System.out.println("Random sparse graphs with " + numNodes + " nodes, " + numEdges
+                + " edges and log-uniform capacities in [1, U]");
+        System.out.println();
+        System.out.println(String.format("%14s %12s %10s %14s %10s %8s %9s",
+                "U", "EK paths", "EK ms", "scaling paths", "scaling ms", "phases", "speedup"));
+
+        List<String> mismatches = new ArrayList<>();
+        for (int maxCapacity : MAX_CAPACITIES) {
+            Graph graph = GraphGenerator.wideSparse(numNodes, numEdges, maxCapacity, 42);
+            Run plain = run(graph, new EdmondsKarpAlgorithm(false), runs);
+            Run scaling = run(graph, new EdmondsKarpAlgorithm(true), runs);
+            if (plain.flow != scaling.flow) {
+                mismatches.add("U = " + maxCapacity + ": " + plain.flow + " vs " + scaling.flow);
+            }
+            System.out.println(String.format("%14d %12d %10d %14d %10d %8d %8.2fx", maxCapacity,
+                    plain.paths, plain.millis, scaling.paths, scaling.millis, scaling.phases,
+                    (double) plain.millis / Math.max(1, scaling.millis)));
+        }
+
+        if (!mismatches.isEmpty()) {
+            System.err.println("Flow mismatch between the two modes: " + mismatches);
+        }
+    }
+
+    // Best wall time of several solves, with the counters of the last one
+    private static Run run(Graph graph, MaxFlowAlgorithm algorithm, int runs) {
+        Run result = new Run();
+        result.millis = Long.MAX_VALUE;
+        for (int i = 0; i < runs; i++) {
+            MaxFlowSolver solver = new MaxFlowSolver(graph, algorithm);
+            long start = System.nanoTime();
+            result.flow = solver.findMaxFlowLong(0, graph.getNumNodes() - 1);
+            result.millis = Math.min(result.millis, (System.nanoTime() - start) / 1_000_000);
+            result.paths = solver.getLastStats().getAugmentingPaths();
+            result.phases = solver.getLastStats().getPhases();
+        }
+        return result;
+    }
+
+    private static class Run {
+        long flow;
+        long millis;
+        long paths;
+        int phases;
+    }
+}
@@ -0,0 +1,336 @@
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Frozen, read-only Graph that keeps its edges in parallel int arrays sorted by source node,
+ * with a CSR index giving the range of edges leaving each node.
+ *
+ * Costs 8 bytes per edge (destination and capacity), plus 4 for the flow once one is set
+ * and 4 for the cost when any edge has one, instead of an Edge object, a list slot and a boxed HashMap key per edge.
+ *
+ * getAdjacentEdges and getAllEdges are list views that hand out lightweight Edge flyweights
+ * on access; a flyweight's setFlow writes through to the flow array, while setCapacity and
+ * setCost throw UnsupportedOperationException. Flyweights are created per access, so compare
+ * edges by position rather than by identity, and prefer the primitive firstEdge / endEdge /
+ * getDestination / getCapacity accessors in hot loops. The solvers read the arrays directly
+ * when building their ResidualNetwork.
+ *
+ * Build one with CompactGraph.Builder or from an EdgeList. Edges are listed in CSR order,
+ * i.e. grouped by source node and in insertion order within each node.
+ */
+public class CompactGraph extends Graph {
+    private final int numNodes;
+    private final int[] offsets;      // first edge of each node, length numNodes + 1
+    private final int[] destinations;
+    private final int[] capacities;
+    private final int[] costs;        // null when every cost is 0
+    private int[] flows;              // allocated by the first non-zero setFlow
+    private final List<Edge> allEdges;
+
+    private CompactGraph(int numNodes, int[] offsets, int[] destinations, int[] capacities, int[] costs) {
+        this.numNodes = numNodes;
+        this.offsets = offsets;
+        this.destinations = destinations;
+        this.capacities = capacities;
+        this.costs = costs;
+        this.allEdges = new EdgeRange(0, destinations.length);
+    }
+
+    /**
+     * Freeze a primitive edge list into a compact graph
+     *
+     * @param edges The edges to copy
+     * @return The compact graph
+     */
+    public static CompactGraph fromEdgeList(EdgeList edges) {
+        int numNodes = edges.getNumNodes();
+        int numEdges = edges.getNumEdges();
+
+        // Stable counting sort of the edges by source node
+        int[] offsets = new int[numNodes + 1];
+        for (int i = 0; i < numEdges; i++) {
+            offsets[edges.getSource(i) + 1]++;
+        }
+        for (int v = 0; v < numNodes; v++) {
+            offsets[v + 1] += offsets[v];
+        }
+        int[] next = new int[numNodes];
+        System.arraycopy(offsets, 0, next, 0, numNodes);
+        int[] destinations = new int[numEdges];
+        int[] capacities = new int[numEdges];
+        int[] costs = edges.hasCosts() ? new int[numEdges] : null;
+        for (int i = 0; i < numEdges; i++) {
+            int position = next[edges.getSource(i)]++;
+            destinations[position] = edges.getDestination(i);
+            capacities[position] = edges.getCapacity(i);
+            if (costs != null) {
+                costs[position] = edges.getCost(i);
+            }
+        }
+
+        return new CompactGraph(numNodes, offsets, destinations, capacities, costs);
+    }
+
+    /**
+     * Wrap CSR arrays that are already sorted by source, without copying them
+     */
+    static CompactGraph fromCsr(int numNodes, int[] offsets, int[] destinations, int[] capacities) {
+        return new CompactGraph(numNodes, offsets, destinations, capacities, null);
+    }
+
+    /**
+     * @throws UnsupportedOperationException always, the graph is frozen
+     */
+    @Override
+    public void addEdge(int source, int destination, int capacity) {
+        throw new UnsupportedOperationException("CompactGraph is read-only; add edges through CompactGraph.Builder");
+    }
+
+    /**
+     * @throws UnsupportedOperationException always, the graph is frozen
+     */
+    @Override
+    public void addEdge(int source, int destination, long capacity) {
+        throw new UnsupportedOperationException("CompactGraph is read-only; add edges through CompactGraph.Builder");
+    }
+
+    /**
+     * @throws UnsupportedOperationException always, the graph is frozen
+     */
+    @Override
+    public boolean removeEdge(Edge edge) {
+        throw new UnsupportedOperationException("CompactGraph is read-only");
+    }
+
+    @Override
+    public int getNumNodes() {
+        return numNodes;
+    }
+
+    @Override
+    public List<Edge> getEdges() {
+        return allEdges;
+    }
+
+    @Override
+    public List<Edge> getAdjacentEdges(int node) {
+        return new EdgeRange(offsets[node], offsets[node + 1]);
+    }
+
+    @Override
+    public List<Edge> getAllEdges() {
+        return allEdges;
+    }
+
+    public int getNumEdges() {
+        return destinations.length;
+    }
+
+    /**
+     * @return The position of the first edge leaving the node
+     */
+    public int firstEdge(int node) {
+        return offsets[node];
+    }
+
+    /**
+     * @return One past the position of the last edge leaving the node
+     */
+    public int endEdge(int node) {
+        return offsets[node + 1];
+    }
+
+    /**
+     * @return The source node of the edge at the given position, found by binary search
+     */
+    public int getSource(int edge) {
+        int low = 0;
+        int high = numNodes - 1;
+        // Find the last node whose first edge is at or before the position
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (offsets[mid] <= edge) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+
+    public int getDestination(int edge) {
+        return destinations[edge];
+    }
+
+    public int getCapacity(int edge) {
+        return capacities[edge];
+    }
+
+    public int getCost(int edge) {
+        return costs == null ? 0 : costs[edge];
+    }
+
+    public int getFlow(int edge) {
+        return flows == null ? 0 : flows[edge];
+    }
+
+    public void setFlow(int edge, int flow) {
+        if (flows == null) {
+            if (flow == 0) {
+                return;
+            }
+            flows = new int[destinations.length];
+        }
+        flows[edge] = flow;
+    }
+
+    /**
+     * @return Bytes held by the arrays of the graph, excluding object headers
+     */
+    public long getMemoryBytes() {
+        long arrays = offsets.length + destinations.length + capacities.length;
+        if (costs != null) {
+            arrays += costs.length;
+        }
+        if (flows != null) {
+            arrays += flows.length;
+        }
+        return 4L * arrays;
+    }
+
+    /**
+     * View the edges as an EdgeList sharing this graph's destination and capacity arrays;
+     * only the source array is materialized from the CSR index
+     */
+    public EdgeList asEdgeList() {
+        int[] sources = new int[destinations.length];
+        for (int v = 0; v < numNodes; v++) {
+            Arrays.fill(sources, offsets[v], offsets[v + 1], v);
+        }
+        return new EdgeList(numNodes, sources, destinations, capacities, costs, destinations.length);
+    }
+
+    // List view over the edges [from, to) of the CSR arrays
+    private final class EdgeRange extends AbstractList<Edge> {
+        private final int from;
+        private final int to;
+
+        EdgeRange(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public Edge get(int index) {
+            if (index < 0 || index >= to - from) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + (to - from));
+            }
+            return new EdgeView(getSource(from + index), from + index);
+        }
+
+        @Override
+        public int size() {
+            return to - from;
+        }
+
+        // Walks the CSR index alongside the edges instead of searching for each source
+        @Override
+        public Iterator<Edge> iterator() {
+            return new Iterator<Edge>() {
+                private int edge = from;
+                private int node = from < to ? getSource(from) : 0;
+
+                @Override
+                public boolean hasNext() {
+                    return edge < to;
+                }
+
+                @Override
+                public Edge next() {
+                    if (edge >= to) {
+                        throw new NoSuchElementException();
+                    }
+                    while (offsets[node + 1] <= edge) {
+                        node++;
+                    }
+                    return new EdgeView(node, edge++);
+                }
+            };
+        }
+    }
+
+    // Flyweight Edge backed by one position of the arrays
+    private final class EdgeView extends Edge {
+        private final int index;
+
+        EdgeView(int source, int index) {
+            super(source, destinations[index], capacities[index], costs == null ? 0 : costs[index]);
+            this.index = index;
+        }
+
+        @Override
+        public int getFlow() {
+            return CompactGraph.this.getFlow(index);
+        }
+
+        @Override
+        public void setFlow(int flow) {
+            CompactGraph.this.setFlow(index, flow);
+        }
+
+        /**
+         * @throws UnsupportedOperationException always, capacities are frozen
+         */
+        @Override
+        public void setCapacity(int capacity) {
+            throw new UnsupportedOperationException("CompactGraph is immutable");
+        }
+
+        /**
+         * @throws UnsupportedOperationException always, costs are frozen
+         */
+        @Override
+        public void setCost(int cost) {
+            throw new UnsupportedOperationException("CompactGraph is immutable");
+        }
+    }
+
+    /**
+     * Accumulates edges in primitive arrays and freezes them into a CompactGraph
+     */
+    public static class Builder {
+        private final EdgeList edges;
+
+        /**
+         * @param numNodes Number of nodes in the graph
+         */
+        public Builder(int numNodes) {
+            this.edges = new EdgeList(numNodes);
+        }
+
+        /**
+         * @param numNodes Number of nodes in the graph
+         * @param expectedEdges Number of edges to reserve room for
+         */
+        public Builder(int numNodes, int expectedEdges) {
+            this.edges = new EdgeList(numNodes, expectedEdges);
+        }
+
+        public Builder addEdge(int source, int destination, int capacity) {
+            edges.addEdge(source, destination, capacity);
+            return this;
+        }
+
+        public Builder addEdge(int source, int destination, int capacity, int cost) {
+            edges.addEdge(source, destination, capacity, cost);
+            return this;
+        }
+
+        public CompactGraph build() {
+            return CompactGraph.fromEdgeList(edges);
+        }
+    }
+}
@@ -0,0 +1,196 @@
+import java.util.Arrays;
+
+/**
+ * Goldberg-Tarjan cost scaling, for large instances with many distinct path costs.
+ *
+ * A maximum flow is first computed with Dinic, ignoring costs. The costs are then multiplied
+ * by V + 1 and the flow is made epsilon-optimal for an epsilon that shrinks by ALPHA per
+ * round, down to 1: every refine saturates the residual arcs of negative reduced cost
+ * c(u,v) + p(u) - p(v) and then discharges the resulting excesses with FIFO push-relabel,
+ * pushing only along arcs of negative reduced cost and lowering prices by at least epsilon
+ * per relabel. Refine never changes the net flow at any node, so the flow value stays the
+ * maximum, and a 1-optimal flow under the scaled costs has minimum cost. Runs in
+ * O(V^3 log(VC)) for the largest cost C, independent of the number of distinct path costs.
+ */
+public class CostScalingAlgorithm implements MinCostFlowAlgorithm {
+    // Factor by which epsilon shrinks between refines
+    private static final int ALPHA = 16;
+
+    private final DinicAlgorithm maxFlow = new DinicAlgorithm();
+    private int numNodes;
+    private long[] price;
+    private long[] excess;
+    private int[] currentArc;
+    private int[] queue;        // circular FIFO of active nodes
+    private boolean[] queued;
+    private long[] scaled;      // arc costs multiplied by V + 1
+    private long pushes;
+    private long relabels;
+
+    @Override
+    public String getName() {
+        return "cost-scaling";
+    }
+
+    @Override
+    public long computeMinCostFlow(LongResidualNetwork network, long[] costs, int source, int sink,
+                                   FlowTracer tracer) {
+        allocate(network.getNumNodes(), network.getNumArcs());
+        long flow = maxFlow.computeMaxFlow(network, source, sink, FlowTracer.NONE);
+
+        tracer.onStart("cost scaling", source, sink);
+
+        long maxCost = 0;
+        for (long cost : costs) {
+            maxCost = Math.max(maxCost, Math.abs(cost));
+        }
+        // Prices drift by about 3V epsilon per refine, so they stay below 4 V^2 C
+        if ((double) maxCost * (numNodes + 1) * (numNodes + 1) * 4 >= Long.MAX_VALUE) {
+            throw new IllegalArgumentException("Costs up to " + maxCost + " on " + numNodes
+                    + " nodes are too large for cost scaling; use successive-shortest-paths");
+        }
+        for (int arc = 0; arc < costs.length; arc++) {
+            scaled[arc] = costs[arc] * (numNodes + 1);
+        }
+
+        Arrays.fill(price, 0);
+        pushes = 0;
+        relabels = 0;
+        int rounds = 0;
+        long epsilon = maxCost * (numNodes + 1);
+        while (epsilon > 1) {
+            epsilon = Math.max(1, epsilon / ALPHA);
+            refine(network, epsilon);
+            rounds++;
+        }
+
+        if (tracer.isEnabled()) {
+            tracer.onMessage("Found a maximum flow of " + flow + ", then made it optimal in " + rounds
+                    + " refines with " + pushes + " pushes and " + relabels + " relabels");
+        }
+        return flow;
+    }
+
+    private void allocate(int n, int numArcs) {
+        if (price == null || numNodes != n) {
+            numNodes = n;
+            price = new long[n];
+            excess = new long[n];
+            currentArc = new int[n];
+            queue = new int[n];
+            queued = new boolean[n];
+        }
+        if (scaled == null || scaled.length != numArcs) {
+            scaled = new long[numArcs];
+        }
+    }
+
+    // Turn the flow into an epsilon-optimal one without changing the net flow of any node
+    private void refine(LongResidualNetwork network, long epsilon) {
+        int[] offsets = network.offsets();
+        int[] heads = network.heads();
+        long[] capacities = network.capacities();
+        int[] reverse = network.reverse();
+
+        // Saturating every arc of negative reduced cost makes the pseudoflow 0-optimal
+        Arrays.fill(excess, 0);
+        for (int u = 0; u < numNodes; u++) {
+            long pu = price[u];
+            for (int arc = offsets[u], end = offsets[u + 1]; arc < end; arc++) {
+                long amount = capacities[arc];
+                if (amount > 0 && scaled[arc] + pu - price[heads[arc]] < 0) {
+                    capacities[arc] = 0;
+                    capacities[reverse[arc]] += amount;
+                    excess[u] -= amount;
+                    excess[heads[arc]] += amount;
+                }
+            }
+        }
+
+        int head = 0;
+        int size = 0;
+        for (int u = 0; u < numNodes; u++) {
+            currentArc[u] = offsets[u];
+            if (excess[u] > 0) {
+                queue[size++] = u;
+                queued[u] = true;
+            }
+        }
+
+        while (size > 0) {
+            int u = queue[head];
+            head = head + 1 == numNodes ? 0 : head + 1;
+            size--;
+            queued[u] = false;
+
+            // Discharge u along admissible arcs, relabelling when it runs out of them
+            while (excess[u] > 0) {
+                int end = offsets[u + 1];
+                int arc = currentArc[u];
+                long pu = price[u];
+                for (; arc < end; arc++) {
+                    int w = heads[arc];
+                    if (capacities[arc] > 0 && scaled[arc] + pu - price[w] < 0) {
+                        // Look-ahead: relabel a balanced head with nowhere to go instead of overfilling it
+                        if (w != u && excess[w] >= 0 && !hasAdmissibleArc(offsets, heads, capacities, w)
+                                && relabel(offsets, heads, capacities, w, epsilon)
+                                && scaled[arc] + pu - price[w] >= 0) {
+                            continue;
+                        }
+                        long amount = Math.min(excess[u], capacities[arc]);
+                        capacities[arc] -= amount;
+                        capacities[reverse[arc]] += amount;
+                        excess[u] -= amount;
+                        boolean activated = excess[w] <= 0 && excess[w] + amount > 0;
+                        excess[w] += amount;
+                        pushes++;
+                        if (activated && !queued[w]) {
+                            int tail = head + size;
+                            queue[tail >= numNodes ? tail - numNodes : tail] = w;
+                            queued[w] = true;
+                            size++;
+                        }
+                        if (excess[u] == 0) {
+                            break;
+                        }
+                    }
+                }
+                currentArc[u] = arc;
+
+                if (excess[u] > 0) {
+                    relabel(offsets, heads, capacities, u, epsilon);
+                }
+            }
+        }
+    }
+
+    // Advance the current arc of u to its next admissible arc; false if it has none
+    private boolean hasAdmissibleArc(int[] offsets, int[] heads, long[] capacities, int u) {
+        int end = offsets[u + 1];
+        int arc = currentArc[u];
+        long pu = price[u];
+        while (arc < end && (capacities[arc] == 0 || scaled[arc] + pu - price[heads[arc]] >= 0)) {
+            arc++;
+        }
+        currentArc[u] = arc;
+        return arc < end;
+    }
+
+    // Lower the price of u until its cheapest residual arc has reduced cost -epsilon; false if
+    // u has no residual arc at all
+    private boolean relabel(int[] offsets, int[] heads, long[] capacities, int u, long epsilon) {
+        long highest = Long.MIN_VALUE;
+        for (int arc = offsets[u], end = offsets[u + 1]; arc < end; arc++) {
+            if (capacities[arc] > 0) {
+                highest = Math.max(highest, price[heads[arc]] - scaled[arc]);
+            }
+        }
+        if (highest == Long.MIN_VALUE) {
+            return false;
+        }
+        price[u] = highest - epsilon;
+        currentArc[u] = offsets[u];
+        relabels++;
+        return true;
+    }
+}
@@ -0,0 +1,292 @@
+import java.util.Arrays;
+
+/**
+ * Dinic's algorithm: builds a BFS level graph from the source, then saturates it with a
+ * blocking flow found by depth-first advance/retreat over current-arc pointers.
+ * Runs in O(V^2 E) in general and O(E sqrt(V)) on unit-capacity networks.
+ */
+public class DinicAlgorithm implements MaxFlowAlgorithm {
+    private int[] level;      // BFS distance from the source, -1 if unreached or dead
+    private int[] currentArc; // next arc to try for each node in the blocking flow search
+    private int[] queue;
+    private int[] path;       // arcs of the partial path from the source
+    private int phases;       // counters of the last computation, for collectStats
+    private long[] phaseNanos = new long[16];
+    private long paths;
+    private long nodesScanned;
+    private long arcsScanned;
+
+    @Override
+    public String getName() {
+        return "dinic";
+    }
+
+    @Override
+    public long computeMaxFlow(ResidualNetwork residual, int source, int sink, FlowTracer tracer) {
+        int numNodes = residual.getNumNodes();
+        if (level == null || level.length != numNodes) {
+            level = new int[numNodes];
+            currentArc = new int[numNodes];
+            queue = new int[numNodes];
+            path = new int[numNodes];
+        }
+
+        long maxFlow = 0;
+        int phase = 0;
+
+        tracer.onStart("Dinic", source, sink);
+        resetCounters();
+        long phaseStart = System.nanoTime();
+
+        // Each phase saturates every shortest path of the current length
+        while (buildLevelGraph(residual, source, sink)) {
+            phase++;
+            System.arraycopy(residual.offsets(), 0, currentArc, 0, numNodes);
+            long phaseFlow = blockingFlow(residual, source, sink);
+            maxFlow += phaseFlow;
+            endPhase(phase, phaseStart);
+            phaseStart = System.nanoTime();
+
+            tracer.onPhase(phase, level[sink], phaseFlow, maxFlow);
+        }
+
+        return maxFlow;
+    }
+
+    @Override
+    public long computeMaxFlow(LongResidualNetwork residual, int source, int sink, FlowTracer tracer) {
+        int numNodes = residual.getNumNodes();
+        if (level == null || level.length != numNodes) {
+            level = new int[numNodes];
+            currentArc = new int[numNodes];
+            queue = new int[numNodes];
+            path = new int[numNodes];
+        }
+
+        long maxFlow = 0;
+        int phase = 0;
+
+        tracer.onStart("Dinic", source, sink);
+        resetCounters();
+        long phaseStart = System.nanoTime();
+
+        while (buildLevelGraph(residual.offsets(), residual.heads(), residual.capacities(), source, sink)) {
+            phase++;
+            System.arraycopy(residual.offsets(), 0, currentArc, 0, numNodes);
+            long phaseFlow = blockingFlow(residual, source, sink);
+            maxFlow += phaseFlow;
+            endPhase(phase, phaseStart);
+            phaseStart = System.nanoTime();
+
+            tracer.onPhase(phase, level[sink], phaseFlow, maxFlow);
+        }
+
+        return maxFlow;
+    }
+
+    @Override
+    public boolean supportsLongCapacities() {
+        return true;
+    }
+
+    @Override
+    public void collectStats(SolveStats stats) {
+        stats.phases = phases;
+        stats.augmentingPaths = paths;
+        stats.nodesScanned = nodesScanned;
+        stats.arcsScanned = arcsScanned;
+        stats.setPhaseNanos(phaseNanos, phases);
+    }
+
+    private void resetCounters() {
+        phases = 0;
+        paths = 0;
+        nodesScanned = 0;
+        arcsScanned = 0;
+    }
+
+    // Record the wall time of a finished phase, which includes the BFS that built its level graph
+    private void endPhase(int phase, long start) {
+        if (phase > phaseNanos.length) {
+            phaseNanos = Arrays.copyOf(phaseNanos, 2 * phaseNanos.length);
+        }
+        phaseNanos[phase - 1] = System.nanoTime() - start;
+        phases = phase;
+    }
+
+    // BFS from the source over residual arcs, labelling every node with its distance
+    private boolean buildLevelGraph(ResidualNetwork residual, int source, int sink) {
+        int[] offsets = residual.offsets();
+        int[] heads = residual.heads();
+        int[] capacities = residual.capacities();
+
+        Arrays.fill(level, -1);
+        level[source] = 0;
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = source;
+
+        while (head < tail) {
+            int u = queue[head++];
+            // Nodes beyond the sink's level can never lie on a shortest path
+            if (level[sink] != -1 && level[u] >= level[sink]) {
+                break;
+            }
+            nodesScanned++;
+            arcsScanned += offsets[u + 1] - offsets[u];
+            for (int arc = offsets[u], end = offsets[u + 1]; arc < end; arc++) {
+                int v = heads[arc];
+                if (capacities[arc] > 0 && level[v] == -1) {
+                    level[v] = level[u] + 1;
+                    queue[tail++] = v;
+                }
+            }
+        }
+
+        return level[sink] != -1;
+    }
+
+    // Find a blocking flow in the level graph with an iterative advance/retreat search
+    private long blockingFlow(ResidualNetwork residual, int source, int sink) {
+        int[] offsets = residual.offsets();
+        int[] heads = residual.heads();
+        int[] capacities = residual.capacities();
+        int[] reverse = residual.reverse();
+
+        long total = 0;
+        int depth = 0;
+        int u = source;
+
+        while (true) {
+            if (u == sink) {
+                // Augment along the path by its bottleneck
+                int pathFlow = Integer.MAX_VALUE;
+                for (int i = 0; i < depth; i++) {
+                    pathFlow = Math.min(pathFlow, capacities[path[i]]);
+                }
+                int firstSaturated = -1;
+                for (int i = 0; i < depth; i++) {
+                    int arc = path[i];
+                    capacities[arc] -= pathFlow;
+                    capacities[reverse[arc]] += pathFlow;
+                    if (firstSaturated == -1 && capacities[arc] == 0) {
+                        firstSaturated = i;
+                    }
+                }
+                total += pathFlow;
+                paths++;
+
+                // Resume from the tail of the first saturated arc; the prefix is still usable
+                depth = firstSaturated;
+                u = heads[reverse[path[depth]]];
+                continue;
+            }
+
+            // Advance along the first admissible arc of u
+            int end = offsets[u + 1];
+            int arc = currentArc[u];
+            while (arc < end && (capacities[arc] == 0 || level[heads[arc]] != level[u] + 1)) {
+                arc++;
+            }
+            currentArc[u] = arc;
+
+            if (arc < end) {
+                path[depth++] = arc;
+                u = heads[arc];
+                continue;
+            }
+
+            // Dead end: retreat, and remove u from the level graph for the rest of the phase
+            if (u == source) {
+                return total;
+            }
+            level[u] = -1;
+            depth--;
+            u = heads[reverse[path[depth]]];
+            currentArc[u]++;
+        }
+    }
+
+    // 64-bit copies of the two searches above; only the capacity type differs
+    private boolean buildLevelGraph(int[] offsets, int[] heads, long[] capacities, int source, int sink) {
+        Arrays.fill(level, -1);
+        level[source] = 0;
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = source;
+
+        while (head < tail) {
+            int u = queue[head++];
+            if (level[sink] != -1 && level[u] >= level[sink]) {
+                break;
+            }
+            nodesScanned++;
+            arcsScanned += offsets[u + 1] - offsets[u];
+            for (int arc = offsets[u], end = offsets[u + 1]; arc < end; arc++) {
+                int v = heads[arc];
+                if (capacities[arc] > 0 && level[v] == -1) {
+                    level[v] = level[u] + 1;
+                    queue[tail++] = v;
+                }
+            }
+        }
+
+        return level[sink] != -1;
+    }
+
+    private long blockingFlow(LongResidualNetwork residual, int source, int sink) {
+        int[] offsets = residual.offsets();
+        int[] heads = residual.heads();
+        long[] capacities = residual.capacities();
+        int[] reverse = residual.reverse();
+
+        long total = 0;
+        int depth = 0;
+        int u = source;
+
+        while (true) {
+            if (u == sink) {
+                long pathFlow = Long.MAX_VALUE;
+                for (int i = 0; i < depth; i++) {
+                    pathFlow = Math.min(pathFlow, capacities[path[i]]);
+                }
+                int firstSaturated = -1;
+                for (int i = 0; i < depth; i++) {
+                    int arc = path[i];
+                    capacities[arc] -= pathFlow;
+                    capacities[reverse[arc]] += pathFlow;
+                    if (firstSaturated == -1 && capacities[arc] == 0) {
+                        firstSaturated = i;
+                    }
+                }
+                total += pathFlow;
+                paths++;
+
+                depth = firstSaturated;
+                u = heads[reverse[path[depth]]];
+                continue;
+            }
+
+            int end = offsets[u + 1];
+            int arc = currentArc[u];
+            while (arc < end && (capacities[arc] == 0 || level[heads[arc]] != level[u] + 1)) {
+                arc++;
+            }
+            currentArc[u] = arc;
+
+            if (arc < end) {
+                path[depth++] = arc;
+                u = heads[arc];
+                continue;
+            }
+
+            if (u == source) {
+                return total;
+            }
+            level[u] = -1;
+            depth--;
+            u = heads[reverse[path[depth]]];
+            currentArc[u]++;
+        }
+    }
+}
@@ -3,12 +3,21 @@ public class Edge {
     private int destination;
     private int capacity;
     private int flow;
+    private int cost;
 
     public Edge(int source, int destination, int capacity) {
+        this(source, destination, capacity, 0);
+    }
+
+    /**
+     * @param cost Cost per unit of flow, used by MinCostFlowSolver and ignored by the max flow engines
+     */
+    public Edge(int source, int destination, int capacity, int cost) {
         this.source = source;
         this.destination = destination;
         this.capacity = capacity;
         this.flow = 0;
+        this.cost = cost;
     }
 
     public int getSource() {
@@ -23,20 +32,60 @@ public class Edge {
         return capacity;
     }
 
+    public void setCapacity(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Capacity cannot be negative: " + capacity);
+        }
+        this.capacity = capacity;
+    }
+
     public int getFlow() {
         return flow;
     }
 
+    /**
+     * @return The cost per unit of flow, 0 unless the edge was given one
+     */
+    public int getCost() {
+        return cost;
+    }
+
+    public void setCost(int cost) {
+        if (cost < 0) {
+            throw new IllegalArgumentException("Cost cannot be negative: " + cost);
+        }
+        this.cost = cost;
+    }
+
     public void setFlow(int flow) {
         this.flow = flow;
     }
 
     public int getResidualCapacity() {
-        return capacity - flow;
+        return getCapacity() - getFlow();
+    }
+
+    /**
+     * @return The capacity as a long; LongEdge overrides this for capacities above the int range
+     */
+    public long getLongCapacity() {
+        return getCapacity();
+    }
+
+    public long getLongFlow() {
+        return getFlow();
+    }
+
+    /**
+     * @throws ArithmeticException if the flow does not fit the edge's int representation
+     */
+    public void setLongFlow(long flow) {
+        setFlow(Math.toIntExact(flow));
     }
 
     @Override
     public String toString() {
-        return "Edge{" + source + "->" + destination + ", capacity=" + capacity + ", flow=" + flow + '}';
+        return "Edge{" + getSource() + "->" + getDestination() + ", capacity=" + getLongCapacity() + ", flow=" + getLongFlow()
+                + (getCost() != 0 ? ", cost=" + getCost() : "") + '}';
     }
 }
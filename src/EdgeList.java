@@ -0,0 +1,251 @@
+import java.util.Arrays;
+
+/**
+ * Flow network stored as parallel primitive arrays of edge sources, destinations and
+ * capacities, with optional source and sink nodes. Used by the fast loaders so that large
+ * inputs never materialize one Edge object per edge.
+ *
+ * Edge costs are optional: the cost array is only allocated once an edge with a non-zero
+ * cost is added, and every edge costs 0 until then.
+ */
+public class EdgeList {
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private final int numNodes;
+    private int source;
+    private int sink;
+    private int size;
+    private int[] sources;
+    private int[] destinations;
+    private int[] capacities;
+    private int[] costs;       // null while every cost is 0
+    private TerminalSet sourceSet; // null unless the terminals were given as sets
+    private TerminalSet sinkSet;
+
+    /**
+     * @param numNodes Number of nodes in the network
+     */
+    public EdgeList(int numNodes) {
+        this(numNodes, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param numNodes Number of nodes in the network
+     * @param expectedEdges Number of edges to reserve room for
+     */
+    public EdgeList(int numNodes, int expectedEdges) {
+        if (numNodes <= 0) {
+            throw new IllegalArgumentException("Invalid number of nodes: " + numNodes);
+        }
+        this.numNodes = numNodes;
+        this.source = -1;
+        this.sink = -1;
+        int initial = Math.max(1, expectedEdges);
+        this.sources = new int[initial];
+        this.destinations = new int[initial];
+        this.capacities = new int[initial];
+    }
+
+    /**
+     * Wrap existing arrays without copying; used by the binary loader
+     */
+    EdgeList(int numNodes, int[] sources, int[] destinations, int[] capacities, int size) {
+        this(numNodes, sources, destinations, capacities, null, size);
+    }
+
+    /**
+     * Wrap existing arrays without copying
+     *
+     * @param costs Cost of each edge, or null if every cost is 0
+     */
+    EdgeList(int numNodes, int[] sources, int[] destinations, int[] capacities, int[] costs, int size) {
+        this.numNodes = numNodes;
+        this.source = -1;
+        this.sink = -1;
+        this.sources = sources;
+        this.destinations = destinations;
+        this.capacities = capacities;
+        this.costs = costs;
+        this.size = size;
+    }
+
+    /**
+     * Copy the edges of a graph, in getAllEdges() order
+     *
+     * @param graph The graph to copy
+     * @return A new edge list without source and sink
+     * @throws IllegalArgumentException if the graph has capacities above the int range
+     */
+    public static EdgeList fromGraph(Graph graph) {
+        if (graph.hasLongCapacities()) {
+            throw new IllegalArgumentException("Graph has capacities above the int range; use LongResidualNetwork");
+        }
+        EdgeList list = new EdgeList(graph.getNumNodes(), graph.getAllEdges().size());
+        for (Edge edge : graph.getAllEdges()) {
+            list.addEdge(edge.getSource(), edge.getDestination(), edge.getCapacity(), edge.getCost());
+        }
+        return list;
+    }
+
+    public void addEdge(int source, int destination, int capacity) {
+        // Validate inputs
+        if (source < 0 || source >= numNodes) {
+            throw new IllegalArgumentException("Invalid source node: " + source);
+        }
+        if (destination < 0 || destination >= numNodes) {
+            throw new IllegalArgumentException("Invalid destination node: " + destination);
+        }
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Capacity cannot be negative: " + capacity);
+        }
+
+        if (size == sources.length) {
+            int grown = Math.max(size + 1, size + (size >> 1));
+            sources = Arrays.copyOf(sources, grown);
+            destinations = Arrays.copyOf(destinations, grown);
+            capacities = Arrays.copyOf(capacities, grown);
+        }
+        sources[size] = source;
+        destinations[size] = destination;
+        capacities[size] = capacity;
+        if (costs != null) {
+            if (costs.length < sources.length) {
+                costs = Arrays.copyOf(costs, sources.length);
+            }
+            costs[size] = 0;
+        }
+        size++;
+    }
+
+    /**
+     * Add an edge with a cost per unit of flow
+     *
+     * @param cost Non-negative cost per unit of flow
+     */
+    public void addEdge(int source, int destination, int capacity, int cost) {
+        if (cost < 0) {
+            throw new IllegalArgumentException("Cost cannot be negative: " + cost);
+        }
+        addEdge(source, destination, capacity);
+        if (cost != 0) {
+            if (costs == null) {
+                costs = new int[sources.length];
+            }
+            costs[size - 1] = cost;
+        }
+    }
+
+    /**
+     * Record the source and sink nodes, -1 meaning not specified
+     */
+    public void setSourceSink(int source, int sink) {
+        this.source = source;
+        this.sink = sink;
+        this.sourceSet = null;
+        this.sinkSet = null;
+    }
+
+    /**
+     * Record source and sink sets, either of which may be null; sets that are both a single
+     * node without a limit are recorded as a plain source and sink
+     */
+    public void setTerminals(TerminalSet sources, TerminalSet sinks) {
+        boolean single = (sources == null || sources.isSingle()) && (sinks == null || sinks.isSingle());
+        if (single) {
+            setSourceSink(sources == null ? -1 : sources.getNode(0), sinks == null ? -1 : sinks.getNode(0));
+        } else {
+            setSourceSink(-1, -1);
+            this.sourceSet = sources;
+            this.sinkSet = sinks;
+        }
+    }
+
+    public int getNumNodes() {
+        return numNodes;
+    }
+
+    public int getNumEdges() {
+        return size;
+    }
+
+    public int getSource(int edge) {
+        return sources[edge];
+    }
+
+    public int getDestination(int edge) {
+        return destinations[edge];
+    }
+
+    public int getCapacity(int edge) {
+        return capacities[edge];
+    }
+
+    public int getCost(int edge) {
+        return costs == null ? 0 : costs[edge];
+    }
+
+    /**
+     * @return Whether any edge has a non-zero cost
+     */
+    public boolean hasCosts() {
+        return costs != null;
+    }
+
+    /**
+     * @return The source node, or -1 if not specified
+     */
+    public int getSource() {
+        return source;
+    }
+
+    /**
+     * @return The sink node, or -1 if not specified
+     */
+    public int getSink() {
+        return sink;
+    }
+
+    /**
+     * @return Whether the terminals were given as sets, with several nodes or with limits
+     */
+    public boolean hasTerminalSets() {
+        return sourceSet != null || sinkSet != null;
+    }
+
+    /**
+     * @return The source set, a one-node set for a plain source, or null if not specified
+     */
+    public TerminalSet getSourceSet() {
+        return sourceSet != null ? sourceSet : source != -1 ? TerminalSet.of(source) : null;
+    }
+
+    /**
+     * @return The sink set, a one-node set for a plain sink, or null if not specified
+     */
+    public TerminalSet getSinkSet() {
+        return sinkSet != null ? sinkSet : sink != -1 ? TerminalSet.of(sink) : null;
+    }
+
+    /**
+     * @return The given graph together with the source and sink, or sets, of this list
+     */
+    GraphWithSourceSink withTerminals(Graph graph) {
+        if (hasTerminalSets()) {
+            return new GraphWithSourceSink(graph, sourceSet, sinkSet);
+        }
+        return new GraphWithSourceSink(graph, source, sink);
+    }
+
+    /**
+     * Build a Graph with one Edge object per edge, in the same order
+     *
+     * @return The graph together with the source and sink of this list
+     */
+    public GraphWithSourceSink toGraphWithSourceSink() {
+        Graph graph = new Graph(numNodes);
+        for (int i = 0; i < size; i++) {
+            graph.addEdge(sources[i], destinations[i], capacities[i], getCost(i));
+        }
+        return withTerminals(graph);
+    }
+}
@@ -0,0 +1,259 @@
+/**
+ * Edmonds-Karp: repeatedly augments along a shortest residual path found by BFS.
+ * Runs in O(VE^2) and is kept as the reference engine.
+ *
+ * In capacity-scaling mode the same loop runs in phases with a threshold delta, starting at
+ * the largest power of two not above the source's largest residual arc. Each phase only
+ * searches arcs with at least delta residual capacity, so every path augments by delta or
+ * more, and delta halves between phases until the last phase accepts every arc. That takes
+ * O(E log U) augmentations for the largest capacity U instead of one per tiny bottleneck,
+ * which pays off when capacities span many orders of magnitude.
+ */
+public class EdmondsKarpAlgorithm implements MaxFlowAlgorithm {
+    private final boolean capacityScaling;
+    private BfsWorkspace workspace; // Reused across augmentations and calls
+    private int[] pathNodes;        // Path handed to the tracer, only allocated when tracing
+    private long paths;             // Counters of the last computation, for collectStats
+    private int phases;
+    private long nodesScanned;
+    private long arcsScanned;
+
+    public EdmondsKarpAlgorithm() {
+        this(false);
+    }
+
+    /**
+     * @param capacityScaling Whether to augment in phases of halving minimum bottleneck
+     */
+    public EdmondsKarpAlgorithm(boolean capacityScaling) {
+        this.capacityScaling = capacityScaling;
+    }
+
+    @Override
+    public String getName() {
+        return capacityScaling ? "capacity-scaling" : "edmonds-karp";
+    }
+
+    public boolean isCapacityScaling() {
+        return capacityScaling;
+    }
+
+    @Override
+    public long computeMaxFlow(ResidualNetwork residual, int source, int sink, FlowTracer tracer) {
+        int numNodes = residual.getNumNodes();
+
+        // Reuse the BFS queue, visited stamps and parent arcs between searches
+        if (workspace == null || workspace.getNumNodes() != numNodes) {
+            workspace = new BfsWorkspace(numNodes);
+        }
+        BfsWorkspace bfs = workspace;
+        long maxFlow = 0;
+
+        tracer.onStart(capacityScaling ? "capacity-scaling Edmonds-Karp" : "Edmonds-Karp", source, sink);
+        resetCounters();
+
+        // Plain Edmonds-Karp is a single phase that accepts every arc with residual capacity
+        int delta = 1;
+        if (capacityScaling) {
+            int[] offsets = residual.offsets();
+            int[] capacities = residual.capacities();
+            int largest = 0;
+            for (int arc = offsets[source], end = offsets[source + 1]; arc < end; arc++) {
+                largest = Math.max(largest, capacities[arc]);
+            }
+            delta = Integer.highestOneBit(largest);
+        }
+
+        while (delta > 0) {
+            long phasePaths = paths;
+
+            // Augment flow while there is a path from source to sink
+            while (bfs(residual, bfs, source, sink, delta)) {
+                // Find the maximum flow through the path found by BFS
+                int pathFlow = Integer.MAX_VALUE;
+                for (int v = sink; v != source; v = residual.getHead(residual.getReverse(bfs.getParentArc(v)))) {
+                    pathFlow = Math.min(pathFlow, residual.getResidualCapacity(bfs.getParentArc(v)));
+                }
+
+                // Update residual capacities of the edges and reverse edges
+                for (int v = sink; v != source; v = residual.getHead(residual.getReverse(bfs.getParentArc(v)))) {
+                    residual.push(bfs.getParentArc(v), pathFlow); // Also credits the reverse arc
+                }
+
+                // Add path flow to overall flow
+                maxFlow += pathFlow;
+                paths++;
+                if (tracer.isEnabled()) {
+                    int length = tracePath(residual.heads(), residual.reverse(), bfs, source, sink);
+                    tracer.onAugmentingPath(pathNodes, length, pathFlow, maxFlow);
+                }
+            }
+
+            endPhase(delta, paths - phasePaths, maxFlow, tracer);
+            delta >>= 1;
+        }
+
+        return maxFlow;
+    }
+
+    @Override
+    public long computeMaxFlow(LongResidualNetwork residual, int source, int sink, FlowTracer tracer) {
+        int numNodes = residual.getNumNodes();
+        if (workspace == null || workspace.getNumNodes() != numNodes) {
+            workspace = new BfsWorkspace(numNodes);
+        }
+        BfsWorkspace bfs = workspace;
+        int[] heads = residual.heads();
+        long[] capacities = residual.capacities();
+        int[] reverse = residual.reverse();
+        long maxFlow = 0;
+
+        tracer.onStart(capacityScaling ? "capacity-scaling Edmonds-Karp" : "Edmonds-Karp", source, sink);
+        resetCounters();
+
+        long delta = 1;
+        if (capacityScaling) {
+            int[] offsets = residual.offsets();
+            long largest = 0;
+            for (int arc = offsets[source], end = offsets[source + 1]; arc < end; arc++) {
+                largest = Math.max(largest, capacities[arc]);
+            }
+            delta = Long.highestOneBit(largest);
+        }
+
+        // Same augmenting loop as the int network, with 64-bit bottlenecks
+        while (delta > 0) {
+            long phasePaths = paths;
+            while (bfs(residual, bfs, source, sink, delta)) {
+                long pathFlow = Long.MAX_VALUE;
+                for (int v = sink; v != source; v = heads[reverse[bfs.getParentArc(v)]]) {
+                    pathFlow = Math.min(pathFlow, capacities[bfs.getParentArc(v)]);
+                }
+                for (int v = sink; v != source; v = heads[reverse[bfs.getParentArc(v)]]) {
+                    int arc = bfs.getParentArc(v);
+                    capacities[arc] -= pathFlow;
+                    capacities[reverse[arc]] += pathFlow;
+                }
+
+                maxFlow += pathFlow;
+                paths++;
+                if (tracer.isEnabled()) {
+                    int length = tracePath(heads, reverse, bfs, source, sink);
+                    tracer.onAugmentingPath(pathNodes, length, pathFlow, maxFlow);
+                }
+            }
+
+            endPhase(delta, paths - phasePaths, maxFlow, tracer);
+            delta >>= 1;
+        }
+
+        return maxFlow;
+    }
+
+    @Override
+    public boolean supportsLongCapacities() {
+        return true;
+    }
+
+    @Override
+    public void collectStats(SolveStats stats) {
+        stats.augmentingPaths = paths;
+        stats.phases = phases;
+        stats.nodesScanned = nodesScanned;
+        stats.arcsScanned = arcsScanned;
+    }
+
+    private void resetCounters() {
+        paths = 0;
+        phases = 0;
+        nodesScanned = 0;
+        arcsScanned = 0;
+    }
+
+    // Count and trace a scaling phase; plain Edmonds-Karp has no phases
+    private void endPhase(long delta, long phasePaths, long maxFlow, FlowTracer tracer) {
+        if (!capacityScaling) {
+            return;
+        }
+        phases++;
+        if (tracer.isEnabled()) {
+            tracer.onMessage("Scaling phase " + phases + " (delta " + delta + "): " + phasePaths
+                    + " augmenting paths, total flow " + maxFlow);
+        }
+    }
+
+    // Copy the path found by the last BFS into pathNodes, source first, and return its length
+    private int tracePath(int[] heads, int[] reverse, BfsWorkspace bfs, int source, int sink) {
+        if (pathNodes == null || pathNodes.length != bfs.getNumNodes()) {
+            pathNodes = new int[bfs.getNumNodes()];
+        }
+        int length = 1;
+        for (int v = sink; v != source; v = heads[reverse[bfs.getParentArc(v)]]) {
+            length++;
+        }
+        int i = length;
+        for (int v = sink; v != source; v = heads[reverse[bfs.getParentArc(v)]]) {
+            pathNodes[--i] = v;
+        }
+        pathNodes[0] = source;
+        return length;
+    }
+
+    // Use BFS over the outgoing arcs with at least delta residual capacity to find an augmenting path
+    private boolean bfs(ResidualNetwork residual, BfsWorkspace bfs, int source, int sink, int delta) {
+        int[] offsets = residual.offsets();
+        int[] heads = residual.heads();
+        int[] capacities = residual.capacities();
+
+        bfs.reset();
+        bfs.visit(source, -1);
+
+        while (!bfs.isQueueEmpty()) {
+            int u = bfs.poll();
+            nodesScanned++;
+
+            // Explore the residual arcs leaving u
+            for (int arc = offsets[u], end = offsets[u + 1]; arc < end; arc++) {
+                int v = heads[arc];
+                // If there's enough capacity and vertex not visited yet
+                if (capacities[arc] >= delta && !bfs.isVisited(v)) {
+                    bfs.visit(v, arc);
+                    if (v == sink) {
+                        arcsScanned += arc - offsets[u] + 1;
+                        return true; // Stop as soon as the sink is reached
+                    }
+                }
+            }
+            arcsScanned += offsets[u + 1] - offsets[u];
+        }
+
+        // The queue drained without reaching the sink, so there is no path
+        return false;
+    }
+
+    private boolean bfs(LongResidualNetwork residual, BfsWorkspace bfs, int source, int sink, long delta) {
+        int[] offsets = residual.offsets();
+        int[] heads = residual.heads();
+        long[] capacities = residual.capacities();
+
+        bfs.reset();
+        bfs.visit(source, -1);
+
+        while (!bfs.isQueueEmpty()) {
+            int u = bfs.poll();
+            nodesScanned++;
+            for (int arc = offsets[u], end = offsets[u + 1]; arc < end; arc++) {
+                int v = heads[arc];
+                if (capacities[arc] >= delta && !bfs.isVisited(v)) {
+                    bfs.visit(v, arc);
+                    if (v == sink) {
+                        arcsScanned += arc - offsets[u] + 1;
+                        return true;
+                    }
+                }
+            }
+            arcsScanned += offsets[u + 1] - offsets[u];
+        }
+        return false;
+    }
+}
@@ -0,0 +1,321 @@
+import java.util.Arrays;
+
+/**
+ * Decomposes the flow written to a graph's edges into source-to-sink paths and cycles.
+ *
+ * The augmentation history of an engine is not a decomposition: later augmentations cancel
+ * flow along reverse arcs, and push-relabel has no paths at all. This walks the final edge
+ * flows instead. From every source with flow left to send, a depth-first walk follows edges
+ * that still carry flow until it reaches a sink with flow left to absorb; the path's amount
+ * is its smallest remaining edge flow, which is then subtracted. A walk that meets a node
+ * already on its stack has found a cycle, which is reported and subtracted the same way.
+ * Once the sources are exhausted, whatever flow is left forms cycles, which are found by the
+ * same walk from every node. Each path or cycle empties at least one edge, and current-arc
+ * pointers skip emptied edges for good, so the whole run takes O(E + (paths + cycles) V).
+ *
+ * Paths and cycles are streamed to a FlowPathConsumer rather than collected. The working
+ * arrays cover the nodes and the edges that carry flow and are allocated once up front, so
+ * the memory used does not grow with the number or length of the paths.
+ */
+public class FlowDecomposition {
+    private final int numNodes;
+    private final FlowPathConsumer consumer;
+
+    // Edges carrying flow, grouped by tail node
+    private final int[] offsets;
+    private final int[] heads;
+    private final int[] arcEdges;     // position of each arc's edge in getAllEdges() order
+    private final long[] remaining;   // flow not yet assigned to a path or cycle
+    private final int[] currentArc;
+    private final long[] balance;     // outflow minus inflow still to be decomposed
+    private final boolean[] isSink;
+
+    // Walk stack: stackNodes[0 .. depth], stackArcs[i] leading from stackNodes[i] to stackNodes[i+1]
+    private final int[] stackNodes;
+    private final int[] stackArcs;
+    private final int[] position;     // index of a node on the stack, -1 if it is not on it
+    private final int[] outNodes;     // buffers handed to the consumer
+    private final int[] outEdges;
+
+    private long numPaths;
+    private long numCycles;
+    private long pathFlow;
+    private long cycleFlow;
+
+    private FlowDecomposition(Graph graph, FlowPathConsumer consumer) {
+        this.numNodes = graph.getNumNodes();
+        this.consumer = consumer;
+        this.offsets = new int[numNodes + 1];
+        this.balance = new long[numNodes];
+        CompactGraph compact = graph instanceof CompactGraph ? (CompactGraph) graph : null;
+
+        // Count the edges with flow per tail node and sum up the balances
+        int index = 0;
+        if (compact != null) {
+            for (int v = 0; v < numNodes; v++) {
+                for (int i = compact.firstEdge(v), end = compact.endEdge(v); i < end; i++) {
+                    addFlow(v, compact.getDestination(i), compact.getFlow(i), i);
+                }
+            }
+        } else {
+            for (Edge edge : graph.getAllEdges()) {
+                addFlow(edge.getSource(), edge.getDestination(), edge.getLongFlow(), index++);
+            }
+        }
+        for (int v = 0; v < numNodes; v++) {
+            offsets[v + 1] += offsets[v];
+        }
+
+        int numArcs = offsets[numNodes];
+        this.heads = new int[numArcs];
+        this.arcEdges = new int[numArcs];
+        this.remaining = new long[numArcs];
+        this.currentArc = new int[numNodes];
+        System.arraycopy(offsets, 0, currentArc, 0, numNodes);
+        if (compact != null) {
+            // Edges are already grouped by tail node, in the same order as the arcs
+            int arc = 0;
+            for (int i = 0; i < compact.getNumEdges(); i++) {
+                if (compact.getFlow(i) > 0) {
+                    heads[arc] = compact.getDestination(i);
+                    arcEdges[arc] = i;
+                    remaining[arc++] = compact.getFlow(i);
+                }
+            }
+        } else {
+            int[] next = currentArc.clone();
+            index = 0;
+            for (Edge edge : graph.getAllEdges()) {
+                if (edge.getLongFlow() > 0) {
+                    int arc = next[edge.getSource()]++;
+                    heads[arc] = edge.getDestination();
+                    arcEdges[arc] = index;
+                    remaining[arc] = edge.getLongFlow();
+                }
+                index++;
+            }
+        }
+
+        this.isSink = new boolean[numNodes];
+        this.stackNodes = new int[numNodes + 1];
+        this.stackArcs = new int[numNodes];
+        this.position = new int[numNodes];
+        Arrays.fill(position, -1);
+        this.outNodes = new int[numNodes + 1];
+        this.outEdges = new int[numNodes];
+    }
+
+    // Count one edge in the arc index and the balances of its endpoints
+    private void addFlow(int tail, int head, long flow, int index) {
+        if (flow < 0) {
+            throw new IllegalArgumentException("Negative flow on edge " + tail + "->" + head
+                    + " at position " + index + ": " + flow);
+        }
+        if (flow > 0) {
+            offsets[tail + 1]++;
+            balance[tail] += flow;
+            balance[head] -= flow;
+        }
+    }
+
+    /**
+     * Decompose the flow on the graph's edges into paths from source to sink and cycles
+     *
+     * @param graph A graph whose edge flows form a flow from source to sink, e.g. after a solve
+     * @param consumer Receives every path and cycle as it is found
+     * @return The decomposition, with the number and amounts of its paths and cycles
+     * @throws IllegalArgumentException if the flow is negative somewhere or not conserved at a node
+     */
+    public static FlowDecomposition decompose(Graph graph, int source, int sink, FlowPathConsumer consumer) {
+        if (graph == null) {
+            throw new IllegalArgumentException("Graph cannot be null");
+        }
+        if (source < 0 || source >= graph.getNumNodes()) {
+            throw new IllegalArgumentException("Invalid source node: " + source);
+        }
+        if (sink < 0 || sink >= graph.getNumNodes()) {
+            throw new IllegalArgumentException("Invalid sink node: " + sink);
+        }
+        if (source == sink) {
+            throw new IllegalArgumentException("Source and sink cannot be the same node");
+        }
+        return decompose(graph, TerminalSet.of(source), TerminalSet.of(sink), consumer);
+    }
+
+    /**
+     * Decompose a flow from a set of sources to a set of sinks; each path starts at one of the
+     * sources and ends at one of the sinks. Limits of the sets are ignored.
+     *
+     * @see #decompose(Graph, int, int, FlowPathConsumer)
+     */
+    public static FlowDecomposition decompose(Graph graph, TerminalSet sources, TerminalSet sinks,
+                                              FlowPathConsumer consumer) {
+        if (graph == null) {
+            throw new IllegalArgumentException("Graph cannot be null");
+        }
+        if (consumer == null) {
+            throw new IllegalArgumentException("Consumer cannot be null");
+        }
+        TerminalSet.checkTerminals(sources, sinks, graph.getNumNodes());
+
+        FlowDecomposition decomposition = new FlowDecomposition(graph, consumer);
+        decomposition.run(sources, sinks);
+        return decomposition;
+    }
+
+    private void run(TerminalSet sources, TerminalSet sinks) {
+        boolean[] isSource = new boolean[numNodes];
+        for (int i = 0; i < sources.size(); i++) {
+            isSource[sources.getNode(i)] = true;
+        }
+        for (int i = 0; i < sinks.size(); i++) {
+            isSink[sinks.getNode(i)] = true;
+        }
+        for (int v = 0; v < numNodes; v++) {
+            if (isSource[v] ? balance[v] < 0 : isSink[v] ? balance[v] > 0 : balance[v] != 0) {
+                throw new IllegalArgumentException("Flow is not conserved at node " + v + ": "
+                        + (balance[v] < 0 ? -balance[v] + " more units enter than leave"
+                        : balance[v] + " more units leave than enter"));
+            }
+        }
+
+        for (int i = 0; i < sources.size(); i++) {
+            int source = sources.getNode(i);
+            if (balance[source] > 0) {
+                walk(source, true);
+            }
+        }
+        // Every node is balanced now, so the flow left over consists of cycles
+        for (int v = 0; v < numNodes; v++) {
+            walk(v, false);
+        }
+    }
+
+    // Walk forward from start along edges with flow left until start has nothing left to send,
+    // either towards the sinks or, once every node is balanced, around cycles. Cycles met on
+    // the way are reported and cut out of the stack.
+    private void walk(int start, boolean towardsSink) {
+        int depth = 0;
+        stackNodes[0] = start;
+        position[start] = 0;
+        while (true) {
+            int v = stackNodes[depth];
+            if (towardsSink && isSink[v] && balance[v] < 0) {
+                int resume = emitPath(depth);
+                if (balance[start] == 0) {
+                    break;
+                }
+                for (int i = resume + 1; i <= depth; i++) {
+                    position[stackNodes[i]] = -1;
+                }
+                depth = resume;
+                continue;
+            }
+            int arc = nextArc(v);
+            if (arc < 0) {
+                if (depth == 0 && !towardsSink) {
+                    break;
+                }
+                // Conservation was checked, so every node entered with flow can leave it
+                throw new IllegalStateException("Flow decomposition ran out of flow at node " + v);
+            }
+            int w = heads[arc];
+            if (position[w] >= 0) {
+                int cycleStart = position[w];
+                emitCycle(cycleStart, depth, arc);
+                for (int i = cycleStart + 1; i <= depth; i++) {
+                    position[stackNodes[i]] = -1;
+                }
+                depth = cycleStart;
+                continue;
+            }
+            stackArcs[depth++] = arc;
+            stackNodes[depth] = w;
+            position[w] = depth;
+        }
+        for (int i = 0; i <= depth; i++) {
+            position[stackNodes[i]] = -1;
+        }
+    }
+
+    // Advance the current arc of v past emptied arcs; -1 if v has no flow left to send
+    private int nextArc(int v) {
+        int end = offsets[v + 1];
+        int arc = currentArc[v];
+        while (arc < end && remaining[arc] == 0) {
+            arc++;
+        }
+        currentArc[v] = arc;
+        return arc < end ? arc : -1;
+    }
+
+    // Report and subtract the path on the stack, which ends at a sink; returns the stack index
+    // to resume from, the tail of the first emptied edge or the sink if none was emptied
+    private int emitPath(int depth) {
+        int source = stackNodes[0];
+        int sink = stackNodes[depth];
+        long amount = Math.min(balance[source], -balance[sink]);
+        for (int i = 0; i < depth; i++) {
+            amount = Math.min(amount, remaining[stackArcs[i]]);
+        }
+        int resume = depth;
+        for (int i = 0; i < depth; i++) {
+            remaining[stackArcs[i]] -= amount;
+            if (remaining[stackArcs[i]] == 0 && resume == depth) {
+                resume = i;
+            }
+            outNodes[i] = stackNodes[i];
+            outEdges[i] = arcEdges[stackArcs[i]];
+        }
+        outNodes[depth] = sink;
+        balance[source] -= amount;
+        balance[sink] += amount;
+        numPaths++;
+        pathFlow += amount;
+        consumer.onPath(outNodes, outEdges, depth, amount);
+        return resume;
+    }
+
+    // Report and subtract the cycle from stackNodes[from] up to the top and back via closingArc
+    private void emitCycle(int from, int depth, int closingArc) {
+        int length = depth - from + 1;
+        long amount = remaining[closingArc];
+        for (int i = from; i < depth; i++) {
+            amount = Math.min(amount, remaining[stackArcs[i]]);
+        }
+        for (int i = from; i < depth; i++) {
+            remaining[stackArcs[i]] -= amount;
+            outNodes[i - from] = stackNodes[i];
+            outEdges[i - from] = arcEdges[stackArcs[i]];
+        }
+        remaining[closingArc] -= amount;
+        outNodes[length - 1] = stackNodes[depth];
+        outEdges[length - 1] = arcEdges[closingArc];
+        outNodes[length] = stackNodes[from];
+        numCycles++;
+        cycleFlow += amount;
+        consumer.onCycle(outNodes, outEdges, length, amount);
+    }
+
+    public long getNumPaths() {
+        return numPaths;
+    }
+
+    public long getNumCycles() {
+        return numCycles;
+    }
+
+    /**
+     * @return Total amount of the paths, i.e. the value of the flow
+     */
+    public long getPathFlow() {
+        return pathFlow;
+    }
+
+    /**
+     * @return Total amount circulating around the cycles
+     */
+    public long getCycleFlow() {
+        return cycleFlow;
+    }
+}
@@ -0,0 +1,31 @@
+/**
+ * Receives the paths and cycles of a FlowDecomposition as they are found.
+ *
+ * The arrays are buffers owned by the decomposition and reused for the next call, so
+ * implementations must copy whatever they keep. Edges are given by their position in
+ * the graph's getAllEdges() order, which tells parallel edges apart.
+ */
+public interface FlowPathConsumer {
+
+    /**
+     * Flow sent from a source to a sink along one path
+     *
+     * @param nodes The path in nodes[0 .. length], from the source to the sink
+     * @param edges The edge positions in edges[0 .. length-1], edges[i] leading from nodes[i] to nodes[i+1]
+     * @param length Number of edges on the path
+     * @param amount Flow carried by the path
+     */
+    void onPath(int[] nodes, int[] edges, int length, long amount);
+
+    /**
+     * Flow circulating around a cycle, which adds nothing to the flow value; maximum flows
+     * can contain such cycles, e.g. after a warm start or a push-relabel run
+     *
+     * @param nodes The cycle in nodes[0 .. length], where nodes[length] == nodes[0]
+     * @param edges The edge positions in edges[0 .. length-1], as for onPath
+     * @param length Number of edges on the cycle
+     * @param amount Flow circulating around the cycle
+     */
+    default void onCycle(int[] nodes, int[] edges, int length, long amount) {
+    }
+}
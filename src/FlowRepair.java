@@ -0,0 +1,158 @@
+import java.util.Arrays;
+
+/**
+ * Turns an arbitrary edge flow assignment into a feasible flow, so it can seed a solver.
+ *
+ * Flows are first clamped to [0, capacity]. Conservation is then restored by cancelling
+ * flow: a node that receives more than it sends gives the surplus back along its incoming
+ * edges, and a node that sends more than it receives takes the shortfall back from its
+ * outgoing edges. The imbalance moves one edge towards the terminals with each step, where
+ * it may remain. Flows only ever decrease, so the repair always terminates, and a flow that
+ * is already feasible is left unchanged.
+ */
+final class FlowRepair {
+    private final int numNodes;
+    private final int[] tails;
+    private final int[] heads;
+    private final long[] flows;
+    private int clampedEdges;
+    private long cancelledFlow;
+
+    private FlowRepair(int numNodes, int[] tails, int[] heads, long[] flows) {
+        this.numNodes = numNodes;
+        this.tails = tails;
+        this.heads = heads;
+        this.flows = flows;
+    }
+
+    /**
+     * Repair the flows in place
+     *
+     * @param flows Flow of each edge, overwritten with the repaired flow
+     * @return The repair, reporting how much had to change
+     */
+    static FlowRepair repair(int numNodes, int[] tails, int[] heads, long[] capacities, long[] flows,
+                             int source, int sink) {
+        FlowRepair repair = new FlowRepair(numNodes, tails, heads, flows);
+        for (int i = 0; i < flows.length; i++) {
+            if (flows[i] < 0 || flows[i] > capacities[i]) {
+                flows[i] = Math.max(0, Math.min(flows[i], capacities[i]));
+                repair.clampedEdges++;
+            }
+        }
+        repair.restoreConservation(source, sink);
+        return repair;
+    }
+
+    /**
+     * @return Number of edges whose flow was outside [0, capacity]
+     */
+    int getClampedEdges() {
+        return clampedEdges;
+    }
+
+    /**
+     * @return Total flow removed from edges to restore conservation
+     */
+    long getCancelledFlow() {
+        return cancelledFlow;
+    }
+
+    /**
+     * @return Net flow leaving the node
+     */
+    long netOutflow(int node) {
+        long net = 0;
+        for (int i = 0; i < flows.length; i++) {
+            if (tails[i] == node) {
+                net += flows[i];
+            }
+            if (heads[i] == node) {
+                net -= flows[i];
+            }
+        }
+        return net;
+    }
+
+    private void restoreConservation(int source, int sink) {
+        long[] excess = new long[numNodes];   // inflow minus outflow
+        for (int i = 0; i < flows.length; i++) {
+            excess[heads[i]] += flows[i];
+            excess[tails[i]] -= flows[i];
+        }
+
+        // Incoming and outgoing edges of every node; a flow that reached zero stays there,
+        // so the scan position of each list only moves forward
+        int[] inOffsets = new int[numNodes + 1];
+        int[] outOffsets = new int[numNodes + 1];
+        for (int i = 0; i < flows.length; i++) {
+            inOffsets[heads[i] + 1]++;
+            outOffsets[tails[i] + 1]++;
+        }
+        for (int v = 0; v < numNodes; v++) {
+            inOffsets[v + 1] += inOffsets[v];
+            outOffsets[v + 1] += outOffsets[v];
+        }
+        int[] inEdges = new int[flows.length];
+        int[] outEdges = new int[flows.length];
+        int[] inNext = Arrays.copyOf(inOffsets, numNodes);
+        int[] outNext = Arrays.copyOf(outOffsets, numNodes);
+        for (int i = 0; i < flows.length; i++) {
+            inEdges[inNext[heads[i]]++] = i;
+            outEdges[outNext[tails[i]]++] = i;
+        }
+        System.arraycopy(inOffsets, 0, inNext, 0, numNodes);
+        System.arraycopy(outOffsets, 0, outNext, 0, numNodes);
+
+        int[] worklist = new int[numNodes];
+        boolean[] queued = new boolean[numNodes];
+        int size = 0;
+        for (int v = 0; v < numNodes; v++) {
+            if (excess[v] != 0 && v != source && v != sink) {
+                worklist[size++] = v;
+                queued[v] = true;
+            }
+        }
+
+        while (size > 0) {
+            int v = worklist[--size];
+            queued[v] = false;
+            while (excess[v] > 0) {
+                // Surplus: cancel inflow, moving the surplus to the tail of the edge
+                int edge = inEdges[inNext[v]];
+                if (flows[edge] == 0) {
+                    inNext[v]++;
+                    continue;
+                }
+                long amount = Math.min(flows[edge], excess[v]);
+                flows[edge] -= amount;
+                excess[v] -= amount;
+                cancelledFlow += amount;
+                int u = tails[edge];
+                excess[u] += amount;
+                if (!queued[u] && u != source && u != sink && excess[u] != 0) {
+                    worklist[size++] = u;
+                    queued[u] = true;
+                }
+            }
+            while (excess[v] < 0) {
+                // Shortfall: cancel outflow, moving the shortfall to the head of the edge
+                int edge = outEdges[outNext[v]];
+                if (flows[edge] == 0) {
+                    outNext[v]++;
+                    continue;
+                }
+                long amount = Math.min(flows[edge], -excess[v]);
+                flows[edge] -= amount;
+                excess[v] += amount;
+                cancelledFlow += amount;
+                int w = heads[edge];
+                excess[w] -= amount;
+                if (!queued[w] && w != source && w != sink && excess[w] != 0) {
+                    worklist[size++] = w;
+                    queued[w] = true;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,254 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Long-running solver that answers line-based requests from stdin or a local TCP port.
+ *
+ * Graphs are loaded once into a GraphCache and stay there across requests, so a query costs
+ * a file stat and a solve instead of JVM startup and a full parse. Requests, one per line:
+ *
+ *   maxflow <graph> [<source> <sink>]   "ok <flow>"; terminals default to those in the file
+ *                                       and may be sets in the TerminalSet syntax
+ *   load <graph>                        "ok <nodes> <edges>", loading the graph into the cache
+ *   stats                               "ok" and the cache and request counters as JSON
+ *   quit                                closes the connection
+ *
+ * Failed requests are answered with "error <message>". A client may pipeline: requests of one
+ * connection are read ahead and solved concurrently on the pool, while the answers are written
+ * in request order and flushed whenever no further answer is ready.
+ */
+public class FlowServer {
+    // Requests read ahead of the answer being written, per connection
+    private static final int PIPELINE_DEPTH = 256;
+
+    private final GraphCache cache;
+    private final Supplier<MaxFlowAlgorithm> algorithmFactory;
+    private final ForkJoinPool pool;
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+
+    /**
+     * @param algorithmFactory Creates the engines, one per worker
+     * @param pool The pool requests are solved on
+     * @param cacheBytes The memory budget of the graph cache
+     */
+    public FlowServer(Supplier<MaxFlowAlgorithm> algorithmFactory, ForkJoinPool pool, long cacheBytes) {
+        this.cache = new GraphCache(cacheBytes, algorithmFactory, pool);
+        this.algorithmFactory = algorithmFactory;
+        this.pool = pool;
+    }
+
+    public GraphCache getCache() {
+        return cache;
+    }
+
+    /**
+     * Answer requests from stdin on stdout until stdin ends or a quit request arrives
+     */
+    public void serveStandardStreams() throws IOException {
+        BufferedReader in = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+        Writer out = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8));
+        serve(in, out);
+    }
+
+    /**
+     * Accept connections on the loopback interface and serve each on its own thread; only
+     * returns if the server socket fails
+     *
+     * @param socket A server socket, e.g. from bind
+     */
+    public void serveSocket(ServerSocket socket) throws IOException {
+        while (true) {
+            Socket client = socket.accept();
+            Thread thread = new Thread(() -> {
+                try (Socket connection = client) {
+                    serve(new BufferedReader(new InputStreamReader(connection.getInputStream(), StandardCharsets.UTF_8)),
+                            new BufferedWriter(new OutputStreamWriter(connection.getOutputStream(), StandardCharsets.UTF_8)));
+                } catch (IOException e) {
+                    // The client went away; nothing is left to answer
+                }
+            }, "flow-server-" + client.getPort());
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    /**
+     * @param port The port to listen on, or 0 for any free port
+     * @return A server socket on the loopback interface
+     */
+    public static ServerSocket bind(int port) throws IOException {
+        return new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+    }
+
+    /**
+     * Answer the requests of one connection until its input ends or a quit request arrives
+     */
+    public void serve(BufferedReader in, Writer out) throws IOException {
+        BlockingQueue<Future<String>> answers = new ArrayBlockingQueue<>(PIPELINE_DEPTH);
+        Future<String> end = CompletableFuture.completedFuture(null);
+        IOException[] writeFailure = new IOException[1];
+
+        // Writes the answers in request order, flushing only when the next one is not ready
+        Thread writer = new Thread(() -> {
+            try {
+                for (Future<String> answer = answers.take(); answer != end; answer = answers.take()) {
+                    out.write(answerOf(answer));
+                    out.write('\n');
+                    if (answers.isEmpty() || !answers.peek().isDone()) {
+                        out.flush();
+                    }
+                }
+                out.flush();
+            } catch (IOException e) {
+                writeFailure[0] = e;
+                drain(answers, end);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, Thread.currentThread().getName() + "-writer");
+        writer.setDaemon(true);
+        writer.start();
+
+        try {
+            String line;
+            while ((line = in.readLine()) != null && writer.isAlive()) {
+                line = line.trim();
+                if (line.isEmpty()) {
+                    continue;
+                }
+                if (line.equals("quit")) {
+                    break;
+                }
+                String request = line;
+                answers.put(pool.submit(() -> handle(request)));
+            }
+            answers.put(end);
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while serving", e);
+        }
+        if (writeFailure[0] != null) {
+            throw writeFailure[0];
+        }
+    }
+
+    // Wait for an answer; a request that failed unexpectedly still gets an error line
+    private String answerOf(Future<String> answer) throws InterruptedException {
+        try {
+            return answer.get();
+        } catch (ExecutionException e) {
+            errors.incrementAndGet();
+            return "error " + e.getCause();
+        }
+    }
+
+    // Keep taking answers after the client is gone, so the reader never blocks on a full queue
+    private static void drain(BlockingQueue<Future<String>> answers, Future<String> end) {
+        try {
+            while (answers.take() != end) {
+                // discard
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Answer one request line
+     *
+     * @return The answer, without a line terminator
+     */
+    String handle(String request) {
+        requests.incrementAndGet();
+        String[] parts = request.trim().split("\\s+");
+        try {
+            switch (parts[0]) {
+                case "maxflow":
+                    if (parts.length != 2 && parts.length != 4) {
+                        throw new IllegalArgumentException("Usage: maxflow <graph> [<source> <sink>]");
+                    }
+                    return "ok " + maxFlow(cache.get(parts[1]), parts.length == 4 ? parts[2] : null,
+                            parts.length == 4 ? parts[3] : null);
+                case "load":
+                    if (parts.length != 2) {
+                        throw new IllegalArgumentException("Usage: load <graph>");
+                    }
+                    Graph graph = cache.get(parts[1]).getGraph().getGraph();
+                    return "ok " + graph.getNumNodes() + " " + graph.getAllEdges().size();
+                case "stats":
+                    return "ok " + statsJson();
+                default:
+                    throw new IllegalArgumentException("Unknown request: " + parts[0]
+                            + " (expected maxflow, load, stats or quit)");
+            }
+        } catch (IOException | RuntimeException e) {
+            errors.incrementAndGet();
+            return "error " + e.getMessage();
+        }
+    }
+
+    private long maxFlow(GraphCache.Entry entry, String sourceText, String sinkText) {
+        GraphWithSourceSink stored = entry.getGraph();
+        Graph graph = stored.getGraph();
+        int source = stored.getSource();
+        int sink = stored.getSink();
+        TerminalSet sources = stored.hasTerminalSets() ? stored.getSourceSet() : null;
+        TerminalSet sinks = stored.hasTerminalSets() ? stored.getSinkSet() : null;
+        if (sourceText != null) {
+            if (TerminalSet.isList(sourceText) || TerminalSet.isList(sinkText)) {
+                sources = TerminalSet.parse(sourceText);
+                sinks = TerminalSet.parse(sinkText);
+            } else {
+                sources = null;
+                sinks = null;
+                try {
+                    source = Integer.parseInt(sourceText);
+                    sink = Integer.parseInt(sinkText);
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("Source and sink must be integers");
+                }
+            }
+        } else if (sources == null && (source == -1 || sink == -1)) {
+            throw new IllegalArgumentException("No source and sink given or stored in " + entry.getPath());
+        }
+
+        BatchMaxFlowSolver batch = entry.getBatchSolver();
+        if (sources == null && batch != null) {
+            return batch.solve(new BatchMaxFlowSolver.Query(source, sink), false).getMaxFlow();
+        }
+        // Source sets and 64-bit capacities need MaxFlowSolver, which writes the flows into the graph
+        synchronized (entry) {
+            MaxFlowSolver solver = new MaxFlowSolver(graph, algorithmFactory.get());
+            return sources != null ? solver.findMaxFlowLong(sources, sinks) : solver.findMaxFlowLong(source, sink);
+        }
+    }
+
+    private String statsJson() {
+        return "{\"requests\":" + requests.get()
+                + ",\"errors\":" + errors.get()
+                + ",\"graphs\":" + cache.size()
+                + ",\"cacheBytes\":" + cache.getBytes()
+                + ",\"cacheMaxBytes\":" + cache.getMaxBytes()
+                + ",\"hits\":" + cache.getHits()
+                + ",\"misses\":" + cache.getMisses()
+                + ",\"evictions\":" + cache.getEvictions() + "}";
+    }
+}
@@ -0,0 +1,290 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The edge flows of a solved network, saved so that a later solve can start from them.
+ *
+ * Every edge is recorded with its endpoints, so a snapshot can be applied to a network that
+ * changed in the meantime: when the edge list is unchanged the flows are copied by position,
+ * otherwise each edge takes the flow of the next unused snapshot edge with the same
+ * endpoints, and edges without one start at zero. Capacities may have changed as well;
+ * MaxFlowSolver repairs whatever the snapshot no longer satisfies when warm-starting.
+ *
+ * File layout, all values little-endian:
+ * <pre>
+ *   offset  size  field
+ *   0       4     magic "MFGF"
+ *   4       4     version (1)
+ *   8       4     number of nodes
+ *   12      4     number of edges E
+ *   16      4     source node
+ *   20      4     sink node
+ *   24      8     flow value
+ *   32      16*E  edges: source (int), destination (int), flow (long)
+ * </pre>
+ */
+public class FlowSnapshot {
+    public static final int MAGIC = 'M' | 'F' << 8 | 'G' << 16 | 'F' << 24;
+    public static final int VERSION = 1;
+    private static final int HEADER_SIZE = 32;
+    private static final int RECORD_SIZE = 16;
+
+    private final int numNodes;
+    private final int source;
+    private final int sink;
+    private final long value;
+    private final int[] sources;
+    private final int[] destinations;
+    private final long[] flows;
+
+    private FlowSnapshot(int numNodes, int source, int sink, long value, int[] sources, int[] destinations,
+                         long[] flows) {
+        this.numNodes = numNodes;
+        this.source = source;
+        this.sink = sink;
+        this.value = value;
+        this.sources = sources;
+        this.destinations = destinations;
+        this.flows = flows;
+    }
+
+    /**
+     * Record the flows currently held by the graph's edges
+     *
+     * @param graph A graph whose edges carry a flow, e.g. after findMaxFlow
+     * @param source The source the flow was computed for
+     * @param sink The sink the flow was computed for
+     * @return The snapshot; its value is the net flow leaving the source
+     */
+    public static FlowSnapshot capture(Graph graph, int source, int sink) {
+        if (graph == null) {
+            throw new IllegalArgumentException("Graph cannot be null");
+        }
+        List<Edge> edges = graph.getAllEdges();
+        int[] sources = new int[edges.size()];
+        int[] destinations = new int[edges.size()];
+        long[] flows = new long[edges.size()];
+        long value = 0;
+        int index = 0;
+        for (Edge edge : edges) {
+            sources[index] = edge.getSource();
+            destinations[index] = edge.getDestination();
+            flows[index] = edge.getLongFlow();
+            if (sources[index] == source) {
+                value += flows[index];
+            }
+            if (destinations[index] == source) {
+                value -= flows[index];
+            }
+            index++;
+        }
+        return new FlowSnapshot(graph.getNumNodes(), source, sink, value, sources, destinations, flows);
+    }
+
+    /**
+     * Set the flow of every edge of the graph from the snapshot, clamped to the edge capacity
+     *
+     * @param graph The graph to seed, usually the same network as captured or a revision of it
+     * @return Number of graph edges that were matched to a snapshot edge
+     */
+    public int applyTo(Graph graph) {
+        if (graph == null) {
+            throw new IllegalArgumentException("Graph cannot be null");
+        }
+        List<Edge> edges = graph.getAllEdges();
+        long[] seeded = new long[edges.size()];
+        int matched = 0;
+
+        if (sameEdges(edges)) {
+            System.arraycopy(flows, 0, seeded, 0, flows.length);
+            matched = flows.length;
+        } else {
+            // Chain the snapshot edges with equal endpoints, in order
+            Map<Long, Integer> firstWithEnds = new HashMap<>();
+            Map<Long, Integer> lastWithEnds = new HashMap<>();
+            int[] nextWithEnds = new int[flows.length];
+            for (int i = 0; i < flows.length; i++) {
+                long key = key(sources[i], destinations[i]);
+                nextWithEnds[i] = -1;
+                Integer last = lastWithEnds.put(key, i);
+                if (last == null) {
+                    firstWithEnds.put(key, i);
+                } else {
+                    nextWithEnds[last] = i;
+                }
+            }
+            int index = 0;
+            for (Edge edge : edges) {
+                long key = key(edge.getSource(), edge.getDestination());
+                Integer match = firstWithEnds.get(key);
+                if (match != null) {
+                    seeded[index] = flows[match];
+                    matched++;
+                    if (nextWithEnds[match] == -1) {
+                        firstWithEnds.remove(key);
+                    } else {
+                        firstWithEnds.put(key, nextWithEnds[match]);
+                    }
+                }
+                index++;
+            }
+        }
+
+        if (graph instanceof CompactGraph) {
+            CompactGraph compact = (CompactGraph) graph;
+            for (int i = 0; i < seeded.length; i++) {
+                compact.setFlow(i, (int) Math.max(0, Math.min(seeded[i], compact.getCapacity(i))));
+            }
+        } else {
+            int index = 0;
+            for (Edge edge : edges) {
+                edge.setLongFlow(Math.max(0, Math.min(seeded[index++], edge.getLongCapacity())));
+            }
+        }
+        return matched;
+    }
+
+    private boolean sameEdges(List<Edge> edges) {
+        if (edges.size() != flows.length) {
+            return false;
+        }
+        int index = 0;
+        for (Edge edge : edges) {
+            if (edge.getSource() != sources[index] || edge.getDestination() != destinations[index]) {
+                return false;
+            }
+            index++;
+        }
+        return true;
+    }
+
+    private static long key(int source, int destination) {
+        return (long) source << 32 | destination;
+    }
+
+    public int getNumNodes() {
+        return numNodes;
+    }
+
+    public int getNumEdges() {
+        return flows.length;
+    }
+
+    public int getSource() {
+        return source;
+    }
+
+    public int getSink() {
+        return sink;
+    }
+
+    /**
+     * @return The flow value when the snapshot was taken
+     */
+    public long getValue() {
+        return value;
+    }
+
+    /**
+     * Save the snapshot in binary form
+     *
+     * @throws IOException if the file cannot be written
+     */
+    public void write(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putInt(MAGIC)
+                  .putInt(VERSION)
+                  .putInt(numNodes)
+                  .putInt(flows.length)
+                  .putInt(source)
+                  .putInt(sink)
+                  .putLong(value);
+            for (int i = 0; i < flows.length; i++) {
+                if (buffer.remaining() < RECORD_SIZE) {
+                    flush(channel, buffer);
+                }
+                buffer.putInt(sources[i]).putInt(destinations[i]).putLong(flows[i]);
+            }
+            flush(channel, buffer);
+        }
+    }
+
+    private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Load a snapshot saved with write
+     *
+     * @throws IOException if the file cannot be read or is not a valid flow snapshot
+     */
+    public static FlowSnapshot read(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            throw new IOException("File does not exist: " + path);
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            if (size < HEADER_SIZE || !fill(channel, header) || header.getInt(0) != MAGIC) {
+                throw new IOException("Not a flow snapshot file: " + path);
+            }
+            int version = header.getInt(4);
+            if (version != VERSION) {
+                throw new IOException("Unsupported flow snapshot version: " + version);
+            }
+            int numNodes = header.getInt(8);
+            int numEdges = header.getInt(12);
+            if (numNodes <= 0 || numEdges < 0 || size != HEADER_SIZE + (long) RECORD_SIZE * numEdges) {
+                throw new IOException("Corrupt flow snapshot file: " + path);
+            }
+
+            int[] sources = new int[numEdges];
+            int[] destinations = new int[numEdges];
+            long[] flows = new long[numEdges];
+            ByteBuffer buffer = ByteBuffer.allocateDirect(RECORD_SIZE << 16).order(ByteOrder.LITTLE_ENDIAN);
+            int index = 0;
+            while (index < numEdges) {
+                buffer.clear();
+                buffer.limit((int) Math.min(buffer.capacity(), (long) RECORD_SIZE * (numEdges - index)));
+                fill(channel, buffer);
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    sources[index] = buffer.getInt();
+                    destinations[index] = buffer.getInt();
+                    flows[index] = buffer.getLong();
+                    if (sources[index] < 0 || sources[index] >= numNodes
+                            || destinations[index] < 0 || destinations[index] >= numNodes || flows[index] < 0) {
+                        throw new IOException("Corrupt flow snapshot file: invalid edge " + index);
+                    }
+                    index++;
+                }
+            }
+            return new FlowSnapshot(numNodes, header.getInt(16), header.getInt(20), header.getLong(24),
+                    sources, destinations, flows);
+        }
+    }
+
+    // Read until the buffer is full; false if the file ended first
+    private static boolean fill(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,64 @@
+/**
+ * Receives trace events from the max flow engines.
+ *
+ * Tracing is off unless a tracer is installed: engines check isEnabled() before collecting
+ * anything, so FlowTracer.NONE costs no allocation. Events carry primitives only, and the
+ * node array of an augmenting path is a buffer owned by the engine that is reused for the
+ * next path, so implementations must copy it if they keep it. Implement this interface to
+ * stream events elsewhere; StepRecorder keeps the latest ones and formats them on demand.
+ */
+public interface FlowTracer {
+
+    /**
+     * Tracer that records nothing
+     */
+    FlowTracer NONE = new FlowTracer() {
+        @Override
+        public boolean isEnabled() {
+            return false;
+        }
+    };
+
+    /**
+     * @return Whether events should be collected and reported at all
+     */
+    default boolean isEnabled() {
+        return true;
+    }
+
+    /**
+     * An engine started a computation
+     *
+     * @param algorithm Human-readable engine name, e.g. "Edmonds-Karp"
+     */
+    default void onStart(String algorithm, int source, int sink) {
+    }
+
+    /**
+     * Flow was pushed along one augmenting path
+     *
+     * @param nodes The path from source to sink in nodes[0 .. length-1]; only valid during the call
+     * @param length Number of nodes on the path
+     * @param bottleneck Flow pushed along the path
+     * @param maxFlow Total flow after the augmentation
+     */
+    default void onAugmentingPath(int[] nodes, int length, long bottleneck, long maxFlow) {
+    }
+
+    /**
+     * A Dinic phase saturated its level graph
+     *
+     * @param phase Phase number, starting at 1
+     * @param sinkDistance Length of the shortest augmenting paths in this phase
+     * @param phaseFlow Flow found by the phase
+     * @param maxFlow Total flow after the phase
+     */
+    default void onPhase(int phase, int sinkDistance, long phaseFlow, long maxFlow) {
+    }
+
+    /**
+     * A free-form message; callers build it only when isEnabled() is true
+     */
+    default void onMessage(String message) {
+    }
+}
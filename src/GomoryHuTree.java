@@ -0,0 +1,338 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+/**
+ * Cut tree answering the minimum cut value between any two nodes, built with Gusfield's
+ * algorithm from V - 1 maximum flow computations.
+ *
+ * The graph is treated as undirected: an edge u->v with capacity c joins u and v with
+ * capacity c in both directions. The min cut between two nodes is the lightest edge on
+ * the tree path between them, found in O(V) per query.
+ *
+ * Gusfield's iterations are sequential in principle, since each cut may re-hang later nodes.
+ * The builder computes a batch of upcoming cuts in parallel against the current tree and
+ * then applies them in order; a cut whose tree parent changed in the meantime is thrown
+ * away and recomputed in the next batch, so the result is the same as the sequential run.
+ *
+ * Trees can be saved with write and reloaded with read. File layout, little-endian:
+ * magic "MFGH", version (1), number of nodes V, then V parents (int, -1 for the root)
+ * and V cut values (long).
+ */
+public class GomoryHuTree {
+    public static final int MAGIC = 'M' | 'F' << 8 | 'G' << 16 | 'H' << 24;
+    public static final int VERSION = 1;
+    private static final int HEADER_SIZE = 12;
+
+    private final int[] parent;    // tree parent of each node, -1 for the root (node 0)
+    private final long[] cutValue; // min cut between each node and its parent
+    private final int[] depth;     // distance from the root, for walking paths
+
+    private GomoryHuTree(int[] parent, long[] cutValue) {
+        this.parent = parent;
+        this.cutValue = cutValue;
+        this.depth = new int[parent.length];
+
+        // Parents may have higher indices, so walk up to the first node of known depth
+        Arrays.fill(depth, -1);
+        int[] stack = new int[parent.length];
+        for (int v = 0; v < parent.length; v++) {
+            int size = 0;
+            int u = v;
+            while (depth[u] == -1 && parent[u] != -1) {
+                if (size == parent.length) {
+                    throw new IllegalArgumentException("Parent array does not describe a tree");
+                }
+                stack[size++] = u;
+                u = parent[u];
+            }
+            if (depth[u] == -1) {
+                depth[u] = 0;
+            }
+            while (size > 0) {
+                int w = stack[--size];
+                depth[w] = depth[parent[w]] + 1;
+            }
+        }
+    }
+
+    /**
+     * Build the tree with Dinic's algorithm on the common pool
+     *
+     * @param graph The network, read as undirected
+     * @return The cut tree
+     */
+    public static GomoryHuTree build(Graph graph) {
+        return build(graph, DinicAlgorithm::new, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Build the tree, computing independent cuts in parallel
+     *
+     * @param graph The network, read as undirected
+     * @param algorithmFactory Creates one engine per worker
+     * @param pool The pool the max flow computations run on
+     * @return The cut tree
+     * @throws IllegalArgumentException if the graph has capacities above the int range
+     */
+    public static GomoryHuTree build(Graph graph, Supplier<MaxFlowAlgorithm> algorithmFactory, ForkJoinPool pool) {
+        if (graph == null) {
+            throw new IllegalArgumentException("Graph cannot be null");
+        }
+        if (algorithmFactory == null) {
+            throw new IllegalArgumentException("Algorithm factory cannot be null");
+        }
+        if (pool == null) {
+            throw new IllegalArgumentException("Pool cannot be null");
+        }
+        return new Builder(undirected(graph), algorithmFactory, pool).run();
+    }
+
+    // Every edge in both directions, so the directed engines see an undirected network
+    private static EdgeList undirected(Graph graph) {
+        EdgeList edges = graph instanceof CompactGraph ? ((CompactGraph) graph).asEdgeList() : EdgeList.fromGraph(graph);
+        EdgeList both = new EdgeList(edges.getNumNodes(), 2 * edges.getNumEdges());
+        for (int i = 0; i < edges.getNumEdges(); i++) {
+            int u = edges.getSource(i);
+            int v = edges.getDestination(i);
+            if (u != v) {
+                both.addEdge(u, v, edges.getCapacity(i));
+                both.addEdge(v, u, edges.getCapacity(i));
+            }
+        }
+        return both;
+    }
+
+    public int getNumNodes() {
+        return parent.length;
+    }
+
+    /**
+     * @return The tree parent of the node, or -1 for the root
+     */
+    public int getParent(int node) {
+        return parent[node];
+    }
+
+    /**
+     * @return The min cut value between the node and its tree parent
+     */
+    public long getParentCutValue(int node) {
+        return cutValue[node];
+    }
+
+    /**
+     * @return The minimum cut value between two distinct nodes
+     */
+    public long minCutValue(int u, int v) {
+        int numNodes = parent.length;
+        if (u < 0 || u >= numNodes) {
+            throw new IllegalArgumentException("Invalid node: " + u);
+        }
+        if (v < 0 || v >= numNodes) {
+            throw new IllegalArgumentException("Invalid node: " + v);
+        }
+        if (u == v) {
+            throw new IllegalArgumentException("Nodes must be distinct");
+        }
+
+        // Walk both nodes up to their common ancestor, keeping the lightest tree edge
+        long min = Long.MAX_VALUE;
+        while (u != v) {
+            if (depth[u] >= depth[v]) {
+                min = Math.min(min, cutValue[u]);
+                u = parent[u];
+            } else {
+                min = Math.min(min, cutValue[v]);
+                v = parent[v];
+            }
+        }
+        return min;
+    }
+
+    /**
+     * Save the tree in binary form
+     *
+     * @throws IOException if the file cannot be written
+     */
+    public void write(Path path) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + 12 * parent.length).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(parent.length);
+        for (int p : parent) {
+            buffer.putInt(p);
+        }
+        for (long value : cutValue) {
+            buffer.putLong(value);
+        }
+        buffer.flip();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+
+    /**
+     * Load a tree saved with write
+     *
+     * @throws IOException if the file cannot be read or is not a valid cut tree
+     */
+    public static GomoryHuTree read(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            throw new IOException("File does not exist: " + path);
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(path)).order(ByteOrder.LITTLE_ENDIAN);
+        if (buffer.remaining() < HEADER_SIZE || buffer.getInt() != MAGIC) {
+            throw new IOException("Not a cut tree file: " + path);
+        }
+        int version = buffer.getInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported cut tree version: " + version);
+        }
+        int numNodes = buffer.getInt();
+        if (numNodes <= 0 || buffer.remaining() != 12L * numNodes) {
+            throw new IOException("Corrupt cut tree file: " + path);
+        }
+        int[] parent = new int[numNodes];
+        long[] cutValue = new long[numNodes];
+        for (int v = 0; v < numNodes; v++) {
+            parent[v] = buffer.getInt();
+            if (parent[v] < -1 || parent[v] >= numNodes || (parent[v] == -1) != (v == 0)) {
+                throw new IOException("Corrupt cut tree file: invalid parent of node " + v);
+            }
+        }
+        for (int v = 0; v < numNodes; v++) {
+            cutValue[v] = buffer.getLong();
+        }
+        try {
+            return new GomoryHuTree(parent, cutValue);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Corrupt cut tree file: " + e.getMessage());
+        }
+    }
+
+    // Gusfield's algorithm with speculative parallel batches of cuts
+    private static final class Builder {
+        private final ResidualNetwork topology;
+        private final Supplier<MaxFlowAlgorithm> algorithmFactory;
+        private final ForkJoinPool pool;
+        private final ConcurrentLinkedQueue<Worker> idleWorkers = new ConcurrentLinkedQueue<>();
+        private final int numNodes;
+        private final int[] parent;
+        private final long[] cutValue;
+
+        Builder(EdgeList edges, Supplier<MaxFlowAlgorithm> algorithmFactory, ForkJoinPool pool) {
+            this.topology = new ResidualNetwork(edges);
+            this.algorithmFactory = algorithmFactory;
+            this.pool = pool;
+            this.numNodes = edges.getNumNodes();
+            this.parent = new int[numNodes];
+            this.cutValue = new long[numNodes];
+        }
+
+        GomoryHuTree run() {
+            int batchSize = Math.max(1, 2 * pool.getParallelism());
+            int next = 1;
+            while (next < numNodes) {
+                int start = next;
+                int end = Math.min(numNodes, start + batchSize);
+                int[] sinks = new int[end - start];
+                List<Callable<Cut>> tasks = new ArrayList<>(sinks.length);
+                for (int s = start; s < end; s++) {
+                    final int source = s;
+                    final int sink = parent[s];
+                    sinks[s - start] = sink;
+                    tasks.add(() -> computeCut(source, sink));
+                }
+                List<Cut> cuts = invokeAll(tasks);
+
+                // Apply in order; stop at the first cut whose parent was changed by an earlier one
+                for (int s = start; s < end; s++) {
+                    if (parent[s] != sinks[s - start]) {
+                        break;
+                    }
+                    Cut cut = cuts.get(s - start);
+                    int t = parent[s];
+                    cutValue[s] = cut.value;
+                    for (int i = cut.sourceSide.nextSetBit(s + 1); i >= 0; i = cut.sourceSide.nextSetBit(i + 1)) {
+                        if (parent[i] == t) {
+                            parent[i] = s;
+                        }
+                    }
+                    next = s + 1;
+                }
+            }
+            parent[0] = -1;
+            cutValue[0] = 0;
+            return new GomoryHuTree(parent, cutValue);
+        }
+
+        private List<Cut> invokeAll(List<Callable<Cut>> tasks) {
+            try {
+                List<Cut> cuts = new ArrayList<>(tasks.size());
+                for (Future<Cut> future : pool.invokeAll(tasks)) {
+                    cuts.add(future.get());
+                }
+                return cuts;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while building the cut tree", e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw new IllegalStateException("Max flow computation failed", e.getCause());
+            }
+        }
+
+        private Cut computeCut(int source, int sink) {
+            Worker worker = idleWorkers.poll();
+            if (worker == null) {
+                worker = new Worker();
+            }
+            try {
+                return worker.cut(source, sink);
+            } finally {
+                idleWorkers.add(worker);
+            }
+        }
+
+        // Residual copy, engine and BFS buffers owned by one thread at a time
+        private final class Worker {
+            private final ResidualNetwork residual = topology.copy();
+            private final MaxFlowAlgorithm algorithm = algorithmFactory.get();
+            private final BfsWorkspace bfs = new BfsWorkspace(numNodes);
+
+            Cut cut(int source, int sink) {
+                residual.resetTo(topology);
+                long value = algorithm.computeMaxFlow(residual, source, sink, FlowTracer.NONE);
+                return new Cut(value, MinCut.sourceSide(residual, source, bfs));
+            }
+        }
+    }
+
+    private static final class Cut {
+        final long value;
+        final BitSet sourceSide;
+
+        Cut(long value, BitSet sourceSide) {
+            this.value = value;
+            this.sourceSide = sourceSide;
+        }
+    }
+}
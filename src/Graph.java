@@ -7,6 +7,7 @@ public class Graph {
     private int numNodes;
     private Map<Integer, List<Edge>> adjacencyList;
     private List<Edge> edges;
+    private boolean longCapacities; // set once an edge needs a LongEdge
 
     public Graph(int numNodes) {
         this.numNodes = numNodes;
@@ -19,6 +20,15 @@ public class Graph {
         }
     }
 
+    /**
+     * For subclasses that keep their own edge storage and override the accessors
+     */
+    protected Graph() {
+        this.numNodes = 0;
+        this.adjacencyList = null;
+        this.edges = null;
+    }
+
     public void addEdge(int source, int destination, int capacity) {
         // Validate inputs
         if (source < 0 || source >= numNodes) {
@@ -36,6 +46,66 @@ public class Graph {
         edges.add(edge);
     }
 
+    /**
+     * Add an edge whose capacity may exceed the int range. Capacities that fit in an int
+     * still produce an ordinary Edge; larger ones produce a LongEdge.
+     */
+    public void addEdge(int source, int destination, long capacity) {
+        // Checked before narrowing, which would turn e.g. -4294967295 into 1
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Capacity cannot be negative: " + capacity);
+        }
+        if (capacity <= Integer.MAX_VALUE) {
+            addEdge(source, destination, (int) capacity);
+            return;
+        }
+        if (source < 0 || source >= numNodes) {
+            throw new IllegalArgumentException("Invalid source node: " + source);
+        }
+        if (destination < 0 || destination >= numNodes) {
+            throw new IllegalArgumentException("Invalid destination node: " + destination);
+        }
+
+        Edge edge = new LongEdge(source, destination, capacity);
+        adjacencyList.get(source).add(edge);
+        edges.add(edge);
+        longCapacities = true;
+    }
+
+    /**
+     * Add an edge with a cost per unit of flow, for MinCostFlowSolver
+     *
+     * @param cost Non-negative cost per unit of flow
+     */
+    public void addEdge(int source, int destination, long capacity, int cost) {
+        if (cost < 0) {
+            throw new IllegalArgumentException("Cost cannot be negative: " + cost);
+        }
+        addEdge(source, destination, capacity);
+        edges.get(edges.size() - 1).setCost(cost);
+    }
+
+    /**
+     * @return Whether any edge was added with a capacity above Integer.MAX_VALUE
+     */
+    public boolean hasLongCapacities() {
+        return longCapacities;
+    }
+
+    /**
+     * Remove an edge from the graph
+     *
+     * @param edge The edge object to remove, compared by identity
+     * @return Whether the edge was part of the graph
+     */
+    public boolean removeEdge(Edge edge) {
+        if (!edges.remove(edge)) {
+            return false;
+        }
+        adjacencyList.get(edge.getSource()).remove(edge);
+        return true;
+    }
+
     public int getNumNodes() {
         return numNodes;
     }
@@ -55,9 +125,10 @@ public class Graph {
     @Override
     public String toString() {
         StringBuilder sb = new StringBuilder();
-        sb.append("Graph with ").append(numNodes).append(" nodes and ").append(edges.size()).append(" edges:\n");
+        List<Edge> allEdges = getAllEdges();
+        sb.append("Graph with ").append(getNumNodes()).append(" nodes and ").append(allEdges.size()).append(" edges:\n");
 
-        for (Edge edge : edges) {
+        for (Edge edge : allEdges) {
             sb.append(edge).append("\n");
         }
 
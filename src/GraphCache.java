@@ -0,0 +1,257 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.FutureTask;
+import java.util.function.Supplier;
+
+/**
+ * Least-recently-used cache of loaded graphs, keyed by file path and bounded by memory.
+ *
+ * An entry is reused while the file keeps its modification time and size, and reloaded as
+ * soon as either changes, so one stat call per lookup is all a hit costs. Graphs with int
+ * capacities are frozen into a CompactGraph with a BatchMaxFlowSolver on top, whose workers
+ * answer queries concurrently without writing to the graph. Entries are evicted in LRU order
+ * once their estimated size exceeds the budget; the most recently loaded graph is always
+ * kept, even if it alone is over budget. Concurrent lookups of a file that is being loaded
+ * wait for that one load instead of parsing the file again.
+ */
+public class GraphCache {
+    // Rough size of an Edge object with its list slot and map entry in a non-compact Graph
+    private static final long EDGE_OBJECT_BYTES = 96;
+
+    private final long maxBytes;
+    private final Supplier<MaxFlowAlgorithm> algorithmFactory;
+    private final ForkJoinPool pool;
+    private final Map<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, FutureTask<Entry>> loading = new HashMap<>();
+    private long bytes;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * @param maxBytes The memory budget of the cached graphs and their solvers
+     * @param algorithmFactory Creates the engines of the batch solvers, one per worker
+     * @param pool The pool queries run on, whose parallelism bounds the workers per graph
+     */
+    public GraphCache(long maxBytes, Supplier<MaxFlowAlgorithm> algorithmFactory, ForkJoinPool pool) {
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException("Cache size must be positive: " + maxBytes);
+        }
+        if (algorithmFactory == null) {
+            throw new IllegalArgumentException("Algorithm factory cannot be null");
+        }
+        if (pool == null) {
+            throw new IllegalArgumentException("Pool cannot be null");
+        }
+        this.maxBytes = maxBytes;
+        this.algorithmFactory = algorithmFactory;
+        this.pool = pool;
+    }
+
+    /**
+     * Return the graph stored in the file, loading it unless an up-to-date copy is cached
+     *
+     * @param path A text or binary graph file
+     * @throws IOException if the file cannot be read or parsed
+     */
+    public Entry get(String path) throws IOException {
+        Path file = Paths.get(path).toAbsolutePath().normalize();
+        String key = file.toString();
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            throw new IOException("File does not exist: " + path);
+        }
+        long modified = attributes.lastModifiedTime().toMillis();
+        long size = attributes.size();
+
+        FutureTask<Entry> task;
+        boolean owner = false;
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry != null && entry.modified == modified && entry.fileSize == size) {
+                hits++;
+                return entry;
+            }
+            misses++;
+            task = loading.get(key);
+            if (task == null) {
+                task = new FutureTask<>(() -> load(file, modified, size));
+                loading.put(key, task);
+                owner = true;
+            }
+        }
+
+        Entry loaded = null;
+        try {
+            if (owner) {
+                task.run();
+            }
+            loaded = task.get();
+            return loaded;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while loading " + path, e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException("Failed to load " + path, cause);
+        } finally {
+            if (owner) {
+                synchronized (this) {
+                    loading.remove(key);
+                    if (loaded != null) {
+                        put(key, loaded);
+                    }
+                }
+            }
+        }
+    }
+
+    // Insert a loaded entry and evict the least recently used ones until the budget holds
+    private void put(String key, Entry entry) {
+        Entry replaced = entries.put(key, entry);
+        if (replaced != null) {
+            bytes -= replaced.bytes;
+        }
+        bytes += entry.bytes;
+        Iterator<Entry> eldest = entries.values().iterator();
+        while (bytes > maxBytes && entries.size() > 1) {
+            Entry evicted = eldest.next();
+            if (evicted == entry) {
+                continue;
+            }
+            eldest.remove();
+            bytes -= evicted.bytes;
+            evictions++;
+        }
+    }
+
+    private Entry load(Path file, long modified, long size) throws IOException {
+        GraphWithSourceSink graph;
+        if (BinaryGraphFormat.isBinaryGraph(file)) {
+            EdgeList edges = BinaryGraphFormat.read(file);
+            graph = edges.withTerminals(CompactGraph.fromEdgeList(edges));
+        } else {
+            try {
+                EdgeList edges = Parser.parseFileMapped(file.toString());
+                graph = edges.withTerminals(CompactGraph.fromEdgeList(edges));
+            } catch (Parser.IntCapacityException e) {
+                // The mapped parser only takes int capacities; the general parser also takes
+                // 64-bit ones. Any other parse error is the same for both and goes straight up.
+                graph = Parser.parseFile(file.toString());
+            }
+        }
+        if (graph.getGraph().getNumNodes() < 2) {
+            throw new IOException("Graph must have at least 2 nodes");
+        }
+        return new Entry(file.toString(), graph, modified, size);
+    }
+
+    /**
+     * Drop every entry
+     */
+    public synchronized void clear() {
+        entries.clear();
+        bytes = 0;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return Estimated bytes held by the cached entries
+     */
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * @return Lookups that loaded the file or waited for another thread to load it
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * One loaded graph with the solver that answers its queries
+     */
+    public final class Entry {
+        private final String path;
+        private final GraphWithSourceSink graph;
+        private final BatchMaxFlowSolver batch; // null when the graph has 64-bit capacities
+        private final long modified;
+        private final long fileSize;
+        private final long bytes;
+
+        private Entry(String path, GraphWithSourceSink graph, long modified, long fileSize) {
+            this.path = path;
+            this.graph = graph;
+            this.modified = modified;
+            this.fileSize = fileSize;
+            Graph g = graph.getGraph();
+            if (g instanceof CompactGraph) {
+                // MaxFlowSolver adds a flow array when it solves source and sink sets
+                CompactGraph compact = (CompactGraph) g;
+                this.batch = new BatchMaxFlowSolver(g, algorithmFactory, pool);
+                this.bytes = compact.getMemoryBytes() + 4L * compact.getNumEdges()
+                        + batch.getMemoryBytes(pool.getParallelism());
+            } else {
+                this.batch = null;
+                this.bytes = EDGE_OBJECT_BYTES * g.getAllEdges().size() + 16L * g.getNumNodes();
+            }
+        }
+
+        public String getPath() {
+            return path;
+        }
+
+        public GraphWithSourceSink getGraph() {
+            return graph;
+        }
+
+        /**
+         * @return The solver for concurrent source/sink queries, or null if the graph has
+         *         capacities above the int range and must be solved with MaxFlowSolver
+         */
+        public BatchMaxFlowSolver getBatchSolver() {
+            return batch;
+        }
+
+        /**
+         * @return Estimated bytes held by the graph and its solver
+         */
+        public long getBytes() {
+            return bytes;
+        }
+    }
+}
@@ -0,0 +1,229 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.function.IntSupplier;
+
+/**
+ * Generates synthetic flow networks for benchmarks and stress tests.
+ *
+ * Every family uses node 0 as the source and the last node as the sink.
+ */
+public class GraphGenerator {
+
+    /**
+     * Random sparse network. Node 0 is meant as the source and node numNodes-1 as the sink;
+     * a chain of edges through every node keeps the sink reachable.
+     *
+     * @param numNodes Number of nodes
+     * @param numEdges Total number of edges, including the chain
+     * @param maxCapacity Capacities are drawn uniformly from [1, maxCapacity]
+     * @param seed Seed for the random generator, so runs are reproducible
+     * @return The generated graph
+     */
+    public static Graph randomSparse(int numNodes, int numEdges, int maxCapacity, long seed) {
+        Random random = new Random(seed);
+        return sparse(numNodes, numEdges, () -> 1 + random.nextInt(maxCapacity), random);
+    }
+
+    /**
+     * Random sparse network like randomSparse whose capacities span many orders of magnitude:
+     * they are drawn log-uniformly from [1, maxCapacity], so an edge of capacity 1 to 10 is
+     * as likely as one of 10^8 to 10^9 when maxCapacity is 10^9
+     *
+     * @param numNodes Number of nodes
+     * @param numEdges Total number of edges, including the chain
+     * @param maxCapacity Largest capacity
+     * @param seed Seed for the random generator
+     * @return The generated graph
+     */
+    public static Graph wideSparse(int numNodes, int numEdges, int maxCapacity, long seed) {
+        Random random = new Random(seed);
+        double logMax = Math.log(maxCapacity);
+        return sparse(numNodes, numEdges,
+                () -> (int) Math.min(maxCapacity, Math.round(Math.exp(random.nextDouble() * logMax))), random);
+    }
+
+    // A chain through every node followed by random edges, with capacities from the supplier
+    private static Graph sparse(int numNodes, int numEdges, IntSupplier capacity, Random random) {
+        if (numNodes < 2) {
+            throw new IllegalArgumentException("Graph must have at least 2 nodes");
+        }
+        Graph graph = new Graph(numNodes);
+        for (int v = 0; v + 1 < numNodes && graph.getAllEdges().size() < numEdges; v++) {
+            graph.addEdge(v, v + 1, capacity.getAsInt());
+        }
+        while (graph.getAllEdges().size() < numEdges) {
+            int u = random.nextInt(numNodes);
+            int v = random.nextInt(numNodes);
+            if (u != v) {
+                graph.addEdge(u, v, capacity.getAsInt());
+            }
+        }
+        return graph;
+    }
+
+    /**
+     * Dense network: each ordered pair of distinct nodes is joined with probability 1/2,
+     * so the graph has about numNodes^2 / 2 edges
+     *
+     * @param numNodes Number of nodes
+     * @param maxCapacity Capacities are drawn uniformly from [1, maxCapacity]
+     * @param seed Seed for the random generator
+     * @return The generated graph
+     */
+    public static Graph dense(int numNodes, int maxCapacity, long seed) {
+        if (numNodes < 2) {
+            throw new IllegalArgumentException("Graph must have at least 2 nodes");
+        }
+        Random random = new Random(seed);
+        Graph graph = new Graph(numNodes);
+        for (int u = 0; u < numNodes; u++) {
+            for (int v = 0; v < numNodes; v++) {
+                if (u != v && random.nextBoolean()) {
+                    graph.addEdge(u, v, 1 + random.nextInt(maxCapacity));
+                }
+            }
+        }
+        return graph;
+    }
+
+    /**
+     * Layered grid: the source feeds every node of the first column, each node feeds the
+     * nodes of the next column in the same and neighbouring rows, and the last column
+     * drains into the sink. Has rows * cols + 2 nodes and about 3 * rows * cols edges.
+     *
+     * @param rows Nodes per layer
+     * @param cols Number of layers
+     * @param maxCapacity Capacities are drawn uniformly from [1, maxCapacity]
+     * @param seed Seed for the random generator
+     * @return The generated graph
+     */
+    public static Graph layeredGrid(int rows, int cols, int maxCapacity, long seed) {
+        if (rows < 1 || cols < 1) {
+            throw new IllegalArgumentException("Grid must have at least one row and one column");
+        }
+        Random random = new Random(seed);
+        int sink = rows * cols + 1;
+        Graph graph = new Graph(sink + 1);
+        for (int r = 0; r < rows; r++) {
+            graph.addEdge(0, gridNode(rows, r, 0), 1 + random.nextInt(maxCapacity));
+            graph.addEdge(gridNode(rows, r, cols - 1), sink, 1 + random.nextInt(maxCapacity));
+        }
+        for (int c = 0; c + 1 < cols; c++) {
+            for (int r = 0; r < rows; r++) {
+                for (int next = Math.max(0, r - 1); next <= Math.min(rows - 1, r + 1); next++) {
+                    graph.addEdge(gridNode(rows, r, c), gridNode(rows, next, c + 1), 1 + random.nextInt(maxCapacity));
+                }
+            }
+        }
+        return graph;
+    }
+
+    private static int gridNode(int rows, int row, int col) {
+        return 1 + col * rows + row;
+    }
+
+    /**
+     * Unit-capacity bipartite matching network: the source feeds every left node, each left
+     * node links to degree random right nodes, and every right node drains into the sink
+     *
+     * @param left Number of left nodes
+     * @param right Number of right nodes
+     * @param degree Edges from each left node to the right side
+     * @param seed Seed for the random generator
+     * @return The generated graph, with left + right + 2 nodes
+     */
+    public static Graph bipartite(int left, int right, int degree, long seed) {
+        if (left < 1 || right < 1) {
+            throw new IllegalArgumentException("Both sides must have at least one node");
+        }
+        Random random = new Random(seed);
+        int sink = left + right + 1;
+        Graph graph = new Graph(sink + 1);
+        for (int u = 1; u <= left; u++) {
+            graph.addEdge(0, u, 1);
+            for (int d = 0; d < degree; d++) {
+                graph.addEdge(u, left + 1 + random.nextInt(right), 1);
+            }
+        }
+        for (int v = left + 1; v <= left + right; v++) {
+            graph.addEdge(v, sink, 1);
+        }
+        return graph;
+    }
+
+    /**
+     * AK-style hard instance: a chain of length nodes where every chain node also drains one
+     * unit straight into the sink. The shortest augmenting paths grow by one arc at a time, so
+     * Edmonds-Karp and Dinic need length rounds and push-relabel relabels its way down the
+     * chain, giving work quadratic in the graph size.
+     *
+     * @param length Number of chain nodes
+     * @return The generated graph, with length + 2 nodes and a maximum flow of length
+     */
+    public static Graph akNetwork(int length) {
+        if (length < 1) {
+            throw new IllegalArgumentException("Chain must have at least one node");
+        }
+        int sink = length + 1;
+        Graph graph = new Graph(sink + 1);
+        graph.addEdge(0, 1, length);
+        for (int v = 1; v <= length; v++) {
+            if (v < length) {
+                graph.addEdge(v, v + 1, length);
+            }
+            graph.addEdge(v, sink, 1);
+        }
+        return graph;
+    }
+
+    /**
+     * Generate a member of a named family sized to roughly the given number of edges
+     *
+     * @param family "sparse", "wide" (sparse with capacities up to 10^9), "dense", "grid", "bipartite" or "ak"
+     * @param numEdges Approximate number of edges
+     * @param seed Seed for the random generator
+     * @return The generated graph, with source 0 and sink getNumNodes() - 1
+     * @throws IllegalArgumentException if the family is unknown
+     */
+    public static Graph generate(String family, int numEdges, long seed) {
+        switch (family) {
+            case "sparse":
+                return randomSparse(Math.max(2, numEdges / 4), numEdges, 1000, seed);
+            case "wide":
+                return wideSparse(Math.max(2, numEdges / 4), numEdges, 1_000_000_000, seed);
+            case "dense":
+                return dense(Math.max(2, (int) Math.sqrt(2.0 * numEdges)), 1000, seed);
+            case "grid": {
+                int side = Math.max(1, (int) Math.sqrt(numEdges / 3.0));
+                return layeredGrid(side, side, 1000, seed);
+            }
+            case "bipartite": {
+                int side = Math.max(1, numEdges / 10);
+                return bipartite(side, side, 8, seed);
+            }
+            case "ak":
+                return akNetwork(Math.max(1, numEdges / 2));
+            default:
+                throw new IllegalArgumentException("Unknown graph family: " + family
+                        + " (expected sparse, wide, dense, grid, bipartite or ak)");
+        }
+    }
+
+    /**
+     * Write a graph in the text input format, with a source/sink line first
+     *
+     * @throws IOException if the file cannot be written
+     */
+    public static void writeText(Graph graph, int source, int sink, Path path) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(path)) {
+            writer.write(source + " " + sink + "\n");
+            writer.write(graph.getNumNodes() + "\n");
+            for (Edge edge : graph.getAllEdges()) {
+                writer.write(edge.getSource() + " " + edge.getDestination() + " " + edge.getLongCapacity() + "\n");
+            }
+        }
+    }
+}
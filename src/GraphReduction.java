@@ -0,0 +1,577 @@
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Shrinks a flow network for one source/sink pair before it is solved, keeping enough of a
+ * mapping to report the flow on the original edges afterwards.
+ *
+ * <ul>
+ *   <li>Nodes that the source cannot reach, or that cannot reach the sink, are dropped
+ *       together with their edges, as are zero-capacity edges, self-loops, edges into the
+ *       source and edges out of the sink. None of them carries flow in some maximum flow.</li>
+ *   <li>Parallel edges between the same ordered pair are merged into one arc whose capacity
+ *       is the sum of theirs.</li>
+ *   <li>A node other than the terminals with a single arc in and a single arc out is
+ *       contracted: u->v->w becomes u->w with the smaller capacity, and u->v->u is dropped
+ *       as a cycle. Contraction repeats until no such node is left, merging new parallel
+ *       arcs as they appear.</li>
+ * </ul>
+ * Every reduced edge is the root of a tree of arcs whose leaves are original edges.
+ * writeFlows splits a reduced edge's flow down the tree: series parts all carry it, parallel
+ * parts are filled in order up to their capacities. The result is a maximum flow of the
+ * original graph. The reduced graph is a CompactGraph unless a merged capacity exceeds the
+ * int range.
+ */
+public class GraphReduction {
+    private static final byte ORIGINAL = 0;
+    private static final byte SERIES = 1;
+    private static final byte PARALLEL = 2;
+
+    private final Graph original;
+    private final Graph reduced;
+    private final int[] nodeMap;   // reduced index of each original node, -1 if removed
+    private final int source;
+    private final int sink;
+
+    // The arc forest; roots[i] stands for edge i of the reduced graph in getAllEdges() order
+    private final int[] roots;
+    private final byte[] kind;
+    private final int[] edge;      // original edge index of an ORIGINAL arc
+    private final long[] capacity;
+    private final int[] firstPart; // children of a composite, chained through nextPart
+    private final int[] nextPart;
+
+    private GraphReduction(Graph original, Graph reduced, int[] nodeMap, int source, int sink, int[] roots,
+                           Builder arcs) {
+        this.original = original;
+        this.reduced = reduced;
+        this.nodeMap = nodeMap;
+        this.source = source;
+        this.sink = sink;
+        this.roots = roots;
+        this.kind = arcs.kind;
+        this.edge = arcs.edge;
+        this.capacity = arcs.capacity;
+        this.firstPart = arcs.firstPart;
+        this.nextPart = arcs.nextPart;
+    }
+
+    /**
+     * Reduce a graph for the given source and sink; the graph itself is not changed
+     *
+     * @param graph The flow network graph
+     * @param source The source node
+     * @param sink The sink node
+     * @return The reduction, holding the smaller graph and the mapping back
+     */
+    public static GraphReduction reduce(Graph graph, int source, int sink) {
+        if (graph == null) {
+            throw new IllegalArgumentException("Graph cannot be null");
+        }
+        int numNodes = graph.getNumNodes();
+        if (source < 0 || source >= numNodes) {
+            throw new IllegalArgumentException("Invalid source node: " + source);
+        }
+        if (sink < 0 || sink >= numNodes) {
+            throw new IllegalArgumentException("Invalid sink node: " + sink);
+        }
+        if (source == sink) {
+            throw new IllegalArgumentException("Source and sink cannot be the same node");
+        }
+        return new Builder(graph, source, sink).build();
+    }
+
+    public Graph getOriginalGraph() {
+        return original;
+    }
+
+    public Graph getReducedGraph() {
+        return reduced;
+    }
+
+    /**
+     * @return The source node in the reduced graph
+     */
+    public int getSource() {
+        return source;
+    }
+
+    /**
+     * @return The sink node in the reduced graph
+     */
+    public int getSink() {
+        return sink;
+    }
+
+    /**
+     * @return The reduced index of an original node, or -1 if the node was removed
+     */
+    public int getReducedNode(int node) {
+        return nodeMap[node];
+    }
+
+    /**
+     * Write the flows of the solved reduced graph onto the original graph's edges.
+     * Removed edges get zero flow.
+     */
+    public void writeFlows() {
+        long[] flows = new long[original.getAllEdges().size()];
+        long[] reducedFlows = edgeFlows(reduced, roots.length);
+        int[] stack = new int[16];
+        long[] amounts = new long[16];
+
+        for (int i = 0; i < roots.length; i++) {
+            stack[0] = roots[i];
+            amounts[0] = reducedFlows[i];
+            int size = 1;
+            // Iterative, as chains of series and parallel parts can nest deeply
+            while (size > 0) {
+                int arc = stack[--size];
+                long flow = amounts[size];
+                if (kind[arc] == ORIGINAL) {
+                    flows[edge[arc]] = flow;
+                    continue;
+                }
+                for (int part = firstPart[arc]; part != -1; part = nextPart[part]) {
+                    long share = kind[arc] == SERIES ? flow : Math.min(flow, capacity[part]);
+                    if (size == stack.length) {
+                        stack = Arrays.copyOf(stack, 2 * size);
+                        amounts = Arrays.copyOf(amounts, 2 * size);
+                    }
+                    stack[size] = part;
+                    amounts[size++] = share;
+                    if (kind[arc] == PARALLEL) {
+                        flow -= share;
+                    }
+                }
+            }
+        }
+
+        if (original instanceof CompactGraph) {
+            CompactGraph compact = (CompactGraph) original;
+            for (int i = 0; i < flows.length; i++) {
+                compact.setFlow(i, (int) flows[i]);
+            }
+            return;
+        }
+        List<Edge> edges = original.getAllEdges();
+        for (int i = 0; i < flows.length; i++) {
+            edges.get(i).setLongFlow(flows[i]);
+        }
+    }
+
+    private static long[] edgeFlows(Graph graph, int numEdges) {
+        long[] flows = new long[numEdges];
+        if (graph instanceof CompactGraph) {
+            CompactGraph compact = (CompactGraph) graph;
+            for (int i = 0; i < numEdges; i++) {
+                flows[i] = compact.getFlow(i);
+            }
+            return flows;
+        }
+        int index = 0;
+        for (Edge edge : graph.getAllEdges()) {
+            flows[index++] = edge.getLongFlow();
+        }
+        return flows;
+    }
+
+    // Builds the arc forest in parallel arrays; arcs are never freed, only marked dead
+    private static final class Builder {
+        private final Graph graph;
+        private final int numNodes;
+        private final int source;
+        private final int sink;
+
+        private int numArcs;
+        private int[] tail;
+        private int[] head;
+        private long[] capacity;
+        private byte[] kind;
+        private int[] edge;
+        private boolean[] live;     // false once merged into another arc or dropped
+        private int[] firstPart;
+        private int[] lastPart;
+        private int[] nextPart;
+        private int[] nextOut;      // adjacency chains; may still hold dead arcs
+        private int[] nextIn;
+
+        private final int[] firstOut;
+        private final int[] firstIn;
+        private final int[] outDegree; // live arcs only
+        private final int[] inDegree;
+        private final ArcTable arcsByEnds;
+
+        Builder(Graph graph, int source, int sink) {
+            this.graph = graph;
+            this.numNodes = graph.getNumNodes();
+            this.source = source;
+            this.sink = sink;
+            this.firstOut = new int[numNodes];
+            this.firstIn = new int[numNodes];
+            Arrays.fill(firstOut, -1);
+            Arrays.fill(firstIn, -1);
+            this.outDegree = new int[numNodes];
+            this.inDegree = new int[numNodes];
+
+            int expected = graph.getAllEdges().size();
+            this.arcsByEnds = new ArcTable(expected);
+            allocate(Math.max(16, expected + expected / 4));
+        }
+
+        GraphReduction build() {
+            List<Edge> edges = graph.getAllEdges();
+            int numEdges = edges.size();
+            int[] tails = new int[numEdges];
+            int[] heads = new int[numEdges];
+            long[] capacities = new long[numEdges];
+            int index = 0;
+            for (Edge edge : edges) {
+                tails[index] = edge.getSource();
+                heads[index] = edge.getDestination();
+                capacities[index] = edge.getLongCapacity();
+                index++;
+            }
+
+            // Keep the nodes on some source-sink path of positive capacity
+            boolean[] fromSource = reach(tails, heads, capacities, source);
+            boolean[] toSink = reach(heads, tails, capacities, sink);
+            for (int i = 0; i < numEdges; i++) {
+                int u = tails[i];
+                int v = heads[i];
+                if (capacities[i] > 0 && u != v && v != source && u != sink
+                        && fromSource[u] && toSink[u] && fromSource[v] && toSink[v]) {
+                    add(newArc(u, v, capacities[i], ORIGINAL, i));
+                }
+            }
+
+            contractChains();
+
+            // Renumber the surviving nodes in their original order
+            int[] nodeMap = new int[numNodes];
+            Arrays.fill(nodeMap, -1);
+            int count = 0;
+            for (int v = 0; v < numNodes; v++) {
+                if (v == source || v == sink || outDegree[v] > 0 || inDegree[v] > 0) {
+                    nodeMap[v] = count++;
+                }
+            }
+
+            // Emit the live arcs grouped by tail, which is already CSR order
+            int[] roots = new int[arcsByEnds.size()];
+            int numRoots = 0;
+            boolean fitsInt = true;
+            for (int v = 0; v < numNodes; v++) {
+                for (int arc = firstOut[v]; arc != -1; arc = nextOut[arc]) {
+                    if (live[arc]) {
+                        roots[numRoots++] = arc;
+                        fitsInt &= capacity[arc] <= Integer.MAX_VALUE;
+                    }
+                }
+            }
+
+            Graph reduced;
+            if (fitsInt) {
+                EdgeList list = new EdgeList(count, Math.max(1, numRoots));
+                for (int i = 0; i < numRoots; i++) {
+                    int arc = roots[i];
+                    list.addEdge(nodeMap[tail[arc]], nodeMap[head[arc]], (int) capacity[arc]);
+                }
+                reduced = CompactGraph.fromEdgeList(list);
+            } else {
+                reduced = new Graph(count);
+                for (int i = 0; i < numRoots; i++) {
+                    int arc = roots[i];
+                    reduced.addEdge(nodeMap[tail[arc]], nodeMap[head[arc]], capacity[arc]);
+                }
+            }
+            return new GraphReduction(graph, reduced, nodeMap, nodeMap[source], nodeMap[sink], roots, this);
+        }
+
+        // Nodes reachable from root along positive-capacity edges from[i] -> to[i]
+        private boolean[] reach(int[] from, int[] to, long[] capacities, int root) {
+            int[] offsets = new int[numNodes + 1];
+            for (int i = 0; i < from.length; i++) {
+                if (capacities[i] > 0) {
+                    offsets[from[i] + 1]++;
+                }
+            }
+            for (int v = 0; v < numNodes; v++) {
+                offsets[v + 1] += offsets[v];
+            }
+            int[] next = Arrays.copyOf(offsets, numNodes);
+            int[] targets = new int[offsets[numNodes]];
+            for (int i = 0; i < from.length; i++) {
+                if (capacities[i] > 0) {
+                    targets[next[from[i]]++] = to[i];
+                }
+            }
+
+            boolean[] seen = new boolean[numNodes];
+            int[] queue = new int[numNodes];
+            int head = 0;
+            int tail = 0;
+            seen[root] = true;
+            queue[tail++] = root;
+            while (head < tail) {
+                int u = queue[head++];
+                for (int k = offsets[u]; k < offsets[u + 1]; k++) {
+                    if (!seen[targets[k]]) {
+                        seen[targets[k]] = true;
+                        queue[tail++] = targets[k];
+                    }
+                }
+            }
+            return seen;
+        }
+
+        private void allocate(int size) {
+            tail = new int[size];
+            head = new int[size];
+            capacity = new long[size];
+            kind = new byte[size];
+            edge = new int[size];
+            live = new boolean[size];
+            firstPart = new int[size];
+            lastPart = new int[size];
+            nextPart = new int[size];
+            nextOut = new int[size];
+            nextIn = new int[size];
+        }
+
+        private int newArc(int u, int v, long cap, byte type, int originalEdge) {
+            if (numArcs == tail.length) {
+                int grown = numArcs + (numArcs >> 1);
+                tail = Arrays.copyOf(tail, grown);
+                head = Arrays.copyOf(head, grown);
+                capacity = Arrays.copyOf(capacity, grown);
+                kind = Arrays.copyOf(kind, grown);
+                edge = Arrays.copyOf(edge, grown);
+                live = Arrays.copyOf(live, grown);
+                firstPart = Arrays.copyOf(firstPart, grown);
+                lastPart = Arrays.copyOf(lastPart, grown);
+                nextPart = Arrays.copyOf(nextPart, grown);
+                nextOut = Arrays.copyOf(nextOut, grown);
+                nextIn = Arrays.copyOf(nextIn, grown);
+            }
+            int arc = numArcs++;
+            tail[arc] = u;
+            head[arc] = v;
+            capacity[arc] = cap;
+            kind[arc] = type;
+            edge[arc] = originalEdge;
+            live[arc] = true;
+            firstPart[arc] = -1;
+            lastPart[arc] = -1;
+            nextPart[arc] = -1;
+            return arc;
+        }
+
+        private void appendPart(int parent, int part) {
+            nextPart[part] = -1;
+            if (firstPart[parent] == -1) {
+                firstPart[parent] = part;
+            } else {
+                nextPart[lastPart[parent]] = part;
+            }
+            lastPart[parent] = part;
+        }
+
+        // Add a part to a series arc, splicing in the parts of a series part in O(1)
+        private void appendSeries(int parent, int part) {
+            if (kind[part] != SERIES) {
+                appendPart(parent, part);
+                return;
+            }
+            if (firstPart[parent] == -1) {
+                firstPart[parent] = firstPart[part];
+            } else {
+                nextPart[lastPart[parent]] = firstPart[part];
+            }
+            lastPart[parent] = lastPart[part];
+        }
+
+        // Insert a live arc, merging it into a live arc between the same ends if there is one
+        private void add(int arc) {
+            long key = (long) tail[arc] * numNodes + head[arc];
+            int existing = arcsByEnds.get(key);
+            if (existing == -1) {
+                arcsByEnds.put(key, arc);
+                link(arc);
+                outDegree[tail[arc]]++;
+                inDegree[head[arc]]++;
+                return;
+            }
+
+            long sum = capacity[existing] + capacity[arc];
+            if (sum < 0) {
+                sum = Long.MAX_VALUE; // the sum only bounds the flow, so saturating is safe
+            }
+            if (kind[existing] == PARALLEL) {
+                appendPart(existing, arc);
+                capacity[existing] = sum;
+                return;
+            }
+            int bundle = newArc(tail[arc], head[arc], sum, PARALLEL, -1);
+            live[existing] = false;
+            appendPart(bundle, existing);
+            appendPart(bundle, arc);
+            arcsByEnds.put(key, bundle);
+            link(bundle);
+        }
+
+        private void link(int arc) {
+            nextOut[arc] = firstOut[tail[arc]];
+            firstOut[tail[arc]] = arc;
+            nextIn[arc] = firstIn[head[arc]];
+            firstIn[head[arc]] = arc;
+        }
+
+        private void remove(int arc) {
+            live[arc] = false;
+            arcsByEnds.remove((long) tail[arc] * numNodes + head[arc]);
+            outDegree[tail[arc]]--;
+            inDegree[head[arc]]--;
+        }
+
+        private boolean isChainNode(int v) {
+            return v != source && v != sink && inDegree[v] == 1 && outDegree[v] == 1;
+        }
+
+        // Contract every node with one arc in and one arc out, until none is left
+        private void contractChains() {
+            // Each contraction removes a node for good and queues at most two, so 2V slots suffice
+            int[] worklist = new int[2 * numNodes];
+            int size = 0;
+            for (int v = 0; v < numNodes; v++) {
+                if (isChainNode(v)) {
+                    worklist[size++] = v;
+                }
+            }
+
+            while (size > 0) {
+                int v = worklist[--size];
+                if (!isChainNode(v)) {
+                    continue;
+                }
+                int in = firstIn[v];
+                while (!live[in]) {
+                    in = nextIn[in];
+                }
+                int out = firstOut[v];
+                while (!live[out]) {
+                    out = nextOut[out];
+                }
+                int u = tail[in];
+                int w = head[out];
+                remove(in);
+                remove(out);
+                firstIn[v] = -1;
+                firstOut[v] = -1;
+
+                if (u != w) {
+                    int chain = newArc(u, w, Math.min(capacity[in], capacity[out]), SERIES, -1);
+                    appendSeries(chain, in);
+                    appendSeries(chain, out);
+                    add(chain);
+                }
+
+                // The neighbours' degrees changed
+                if (isChainNode(u)) {
+                    worklist[size++] = u;
+                }
+                if (w != u && isChainNode(w)) {
+                    worklist[size++] = w;
+                }
+            }
+        }
+    }
+
+    // Open-addressing map from (tail * V + head) to the live arc between those nodes
+    private static final class ArcTable {
+        private static final long EMPTY = -1;
+        private static final long DELETED = -2;
+
+        private long[] keys;
+        private int[] values;
+        private int size;
+        private int used;   // live entries plus tombstones
+
+        ArcTable(int expected) {
+            int capacity = Integer.highestOneBit(Math.max(16, expected) * 2 - 1) << 1;
+            keys = new long[capacity];
+            values = new int[capacity];
+            Arrays.fill(keys, EMPTY);
+        }
+
+        int size() {
+            return size;
+        }
+
+        int get(long key) {
+            int mask = keys.length - 1;
+            for (int slot = hash(key) & mask; keys[slot] != EMPTY; slot = (slot + 1) & mask) {
+                if (keys[slot] == key) {
+                    return values[slot];
+                }
+            }
+            return -1;
+        }
+
+        void put(long key, int value) {
+            int mask = keys.length - 1;
+            int free = -1;
+            int slot = hash(key) & mask;
+            for (; keys[slot] != EMPTY; slot = (slot + 1) & mask) {
+                if (keys[slot] == key) {
+                    values[slot] = value;
+                    return;
+                }
+                if (keys[slot] == DELETED && free == -1) {
+                    free = slot;
+                }
+            }
+            if (free == -1) {
+                free = slot;
+                used++;
+            }
+            keys[free] = key;
+            values[free] = value;
+            size++;
+            if (used * 2 > keys.length) {
+                rehash(size * 4 > keys.length ? keys.length * 2 : keys.length);
+            }
+        }
+
+        void remove(long key) {
+            int mask = keys.length - 1;
+            for (int slot = hash(key) & mask; keys[slot] != EMPTY; slot = (slot + 1) & mask) {
+                if (keys[slot] == key) {
+                    keys[slot] = DELETED;
+                    size--;
+                    return;
+                }
+            }
+        }
+
+        private void rehash(int capacity) {
+            long[] oldKeys = keys;
+            int[] oldValues = values;
+            keys = new long[capacity];
+            values = new int[capacity];
+            Arrays.fill(keys, EMPTY);
+            size = 0;
+            used = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] >= 0) {
+                    put(oldKeys[i], oldValues[i]);
+                }
+            }
+        }
+
+        private static int hash(long key) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+    }
+}
@@ -1,10 +1,13 @@
 /**
- * Wrapper class that holds a flow graph along with optional source and sink nodes
+ * Wrapper class that holds a flow graph along with optional source and sink nodes, or
+ * optional source and sink sets when the flow enters or leaves at several nodes
  */
 public class GraphWithSourceSink {
     private final Graph graph;
     private final int source;
     private final int sink;
+    private final TerminalSet sources; // null unless specified as a set
+    private final TerminalSet sinks;
     
     /**
      * Creates a new GraphWithSourceSink
@@ -17,6 +20,25 @@ public class GraphWithSourceSink {
         this.graph = graph;
         this.source = source;
         this.sink = sink;
+        this.sources = null;
+        this.sinks = null;
+    }
+
+    /**
+     * Creates a new GraphWithSourceSink with source and sink sets. Sets that are both a single
+     * node without a limit are stored as a plain source and sink.
+     *
+     * @param graph The flow network graph
+     * @param sources The source set (null if not specified)
+     * @param sinks The sink set (null if not specified)
+     */
+    public GraphWithSourceSink(Graph graph, TerminalSet sources, TerminalSet sinks) {
+        boolean single = (sources == null || sources.isSingle()) && (sinks == null || sinks.isSingle());
+        this.graph = graph;
+        this.source = sources != null && single ? sources.getNode(0) : -1;
+        this.sink = sinks != null && single ? sinks.getNode(0) : -1;
+        this.sources = single ? null : sources;
+        this.sinks = single ? null : sinks;
     }
     
     /**
@@ -27,14 +49,14 @@ public class GraphWithSourceSink {
     }
     
     /**
-     * @return The source node, or -1 if not specified
+     * @return The source node, or -1 if not specified or specified as a set
      */
     public int getSource() {
         return source;
     }
     
     /**
-     * @return The sink node, or -1 if not specified
+     * @return The sink node, or -1 if not specified or specified as a set
      */
     public int getSink() {
         return sink;
@@ -53,4 +75,25 @@ public class GraphWithSourceSink {
     public boolean hasSink() {
         return sink != -1;
     }
-}
\ No newline at end of file
+
+    /**
+     * @return Whether the terminals were given as sets, with several nodes or with limits
+     */
+    public boolean hasTerminalSets() {
+        return sources != null || sinks != null;
+    }
+
+    /**
+     * @return The source set, a one-node set for a plain source, or null if not specified
+     */
+    public TerminalSet getSourceSet() {
+        return sources != null ? sources : source != -1 ? TerminalSet.of(source) : null;
+    }
+
+    /**
+     * @return The sink set, a one-node set for a plain sink, or null if not specified
+     */
+    public TerminalSet getSinkSet() {
+        return sinks != null ? sinks : sink != -1 ? TerminalSet.of(sink) : null;
+    }
+}
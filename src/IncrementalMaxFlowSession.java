@@ -0,0 +1,284 @@
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps the residual network of a solved graph alive so the maximum flow can be updated
+ * after capacity changes instead of being recomputed from zero flow.
+ *
+ * <ul>
+ *   <li>Capacity increases and added edges only search for new augmenting paths.</li>
+ *   <li>A decrease below the current flow first tries to reroute the excess around the edge,
+ *       then cancels whatever cannot be rerouted back to the source and sink, and finally
+ *       augments again in case the repair opened new paths.</li>
+ * </ul>
+ * Flows are written back to the Edge objects after every update. The session owns the graph
+ * while it is open: change it only through the session. Requires a mutable Graph with int
+ * capacities, not a CompactGraph.
+ */
+public class IncrementalMaxFlowSession {
+    private final Graph graph;
+    private final int source;
+    private final int sink;
+    private final MaxFlowAlgorithm algorithm;
+    private FlowTracer tracer;
+    private ResidualNetwork residual;
+    private final BfsWorkspace bfs;
+    private Map<Edge, Integer> edgeIndex;
+    private long maxFlow;
+
+    /**
+     * Solve the graph once and open a session on the result
+     *
+     * @param graph The flow network graph
+     * @param source The source node
+     * @param sink The sink node
+     */
+    public IncrementalMaxFlowSession(Graph graph, int source, int sink) {
+        if (graph == null) {
+            throw new IllegalArgumentException("Graph cannot be null");
+        }
+        if (graph instanceof CompactGraph) {
+            throw new IllegalArgumentException("Incremental sessions need a mutable Graph");
+        }
+        if (graph.hasLongCapacities()) {
+            throw new IllegalArgumentException("Incremental sessions need int capacities");
+        }
+        int numNodes = graph.getNumNodes();
+        if (source < 0 || source >= numNodes) {
+            throw new IllegalArgumentException("Invalid source node: " + source);
+        }
+        if (sink < 0 || sink >= numNodes) {
+            throw new IllegalArgumentException("Invalid sink node: " + sink);
+        }
+        if (source == sink) {
+            throw new IllegalArgumentException("Source and sink cannot be the same node");
+        }
+        this.graph = graph;
+        this.source = source;
+        this.sink = sink;
+        this.algorithm = new DinicAlgorithm();
+        this.tracer = FlowTracer.NONE;
+        this.bfs = new BfsWorkspace(numNodes);
+
+        rebuild(false);
+        augment();
+    }
+
+    /**
+     * @return The current maximum flow value
+     */
+    public long getMaxFlow() {
+        return maxFlow;
+    }
+
+    public Graph getGraph() {
+        return graph;
+    }
+
+    /**
+     * Change the capacity of an edge and update the maximum flow
+     *
+     * @param edge An edge of the session's graph
+     * @param capacity The new capacity
+     * @return The new maximum flow value
+     */
+    public long setCapacity(Edge edge, int capacity) {
+        int index = indexOf(edge);
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Capacity cannot be negative: " + capacity);
+        }
+
+        int flow = residual.getEdgeFlow(index);
+        edge.setCapacity(capacity);
+        if (capacity >= flow) {
+            residual.setEdgeCapacity(index, capacity);
+            if (tracer.isEnabled()) {
+                tracer.onMessage("Set capacity of " + edge.getSource() + "->" + edge.getDestination() + " to " + capacity);
+            }
+        } else {
+            // Clip the flow to the new capacity, leaving a surplus at the tail and a deficit at the head
+            int excess = flow - capacity;
+            residual.setEdgeFlow(index, capacity);
+            residual.setEdgeCapacity(index, capacity);
+            if (tracer.isEnabled()) {
+                tracer.onMessage("Set capacity of " + edge.getSource() + "->" + edge.getDestination() + " to " + capacity
+                        + ", repairing " + excess + " units of excess flow");
+            }
+            repair(edge.getSource(), edge.getDestination(), excess);
+        }
+
+        augment();
+        return maxFlow;
+    }
+
+    /**
+     * Add an edge to the graph and update the maximum flow
+     *
+     * @return The new edge
+     */
+    public Edge addEdge(int from, int to, int capacity) {
+        graph.addEdge(from, to, capacity);
+        List<Edge> edges = graph.getAllEdges();
+        Edge edge = edges.get(edges.size() - 1);
+        if (tracer.isEnabled()) {
+            tracer.onMessage("Added edge " + from + "->" + to + " with capacity " + capacity);
+        }
+
+        rebuild(true);
+        augment();
+        return edge;
+    }
+
+    /**
+     * Remove an edge from the graph and update the maximum flow
+     *
+     * @param edge An edge of the session's graph
+     * @return The new maximum flow value
+     */
+    public long removeEdge(Edge edge) {
+        // Drain the edge first so the rest of the flow stays feasible without it
+        setCapacity(edge, 0);
+        graph.removeEdge(edge);
+        if (tracer.isEnabled()) {
+            tracer.onMessage("Removed edge " + edge.getSource() + "->" + edge.getDestination());
+        }
+
+        rebuild(true);
+        return maxFlow;
+    }
+
+    /**
+     * Install a tracer for the session's own messages and the engine runs after every update
+     *
+     * @param tracer The tracer, or FlowTracer.NONE to switch tracing off
+     */
+    public void setTracer(FlowTracer tracer) {
+        if (tracer == null) {
+            throw new IllegalArgumentException("Tracer cannot be null; use FlowTracer.NONE");
+        }
+        this.tracer = tracer;
+    }
+
+    /**
+     * @return The steps held by the installed StepRecorder, formatted on demand; empty if none is installed
+     */
+    public List<String> getSteps() {
+        if (tracer instanceof StepRecorder) {
+            return ((StepRecorder) tracer).getSteps();
+        }
+        return Collections.emptyList();
+    }
+
+    private int indexOf(Edge edge) {
+        Integer index = edgeIndex.get(edge);
+        if (index == null) {
+            throw new IllegalArgumentException("Edge is not part of this session's graph: " + edge);
+        }
+        return index;
+    }
+
+    // Rebuild the residual network after the edge set changed, optionally keeping the edge flows
+    private void rebuild(boolean keepFlows) {
+        List<Edge> edges = graph.getAllEdges();
+        residual = new ResidualNetwork(graph);
+        edgeIndex = new IdentityHashMap<>(edges.size() * 2);
+        for (int i = 0; i < edges.size(); i++) {
+            Edge edge = edges.get(i);
+            edgeIndex.put(edge, i);
+            if (keepFlows) {
+                residual.setEdgeFlow(i, edge.getFlow());
+            }
+        }
+    }
+
+    // Restore conservation after the flow on u->v was cut by excess units
+    private void repair(int u, int v, int excess) {
+        // Reroute as much as possible from u to v around the edge
+        int rerouted = pushAlongPaths(u, v, excess);
+        int remaining = excess - rerouted;
+        if (rerouted > 0 && tracer.isEnabled()) {
+            tracer.onMessage("Rerouted " + rerouted + " units from " + u + " to " + v);
+        }
+        if (remaining == 0) {
+            return;
+        }
+
+        // Cancel the rest: send the surplus at u back to the source and pull the missing
+        // inflow of v back from the sink. Terminals do not need conservation.
+        if (u != source && u != sink) {
+            int returned = pushAlongPaths(u, source, remaining);
+            pushAlongPaths(u, sink, remaining - returned);
+        }
+        if (v != source && v != sink) {
+            int returned = pushAlongPaths(sink, v, remaining);
+            pushAlongPaths(source, v, remaining - returned);
+        }
+        if (tracer.isEnabled()) {
+            tracer.onMessage("Cancelled " + remaining + " units of flow");
+        }
+    }
+
+    // Push up to amount units from one node to another along BFS residual paths
+    private int pushAlongPaths(int from, int to, int amount) {
+        if (amount == 0) {
+            return 0;
+        }
+        int[] offsets = residual.offsets();
+        int[] heads = residual.heads();
+        int[] capacities = residual.capacities();
+        int[] reverse = residual.reverse();
+        int pushed = 0;
+
+        while (pushed < amount) {
+            bfs.reset();
+            bfs.visit(from, -1);
+            boolean found = false;
+            while (!found && !bfs.isQueueEmpty()) {
+                int u = bfs.poll();
+                for (int arc = offsets[u], end = offsets[u + 1]; arc < end; arc++) {
+                    int w = heads[arc];
+                    if (capacities[arc] > 0 && !bfs.isVisited(w)) {
+                        bfs.visit(w, arc);
+                        if (w == to) {
+                            found = true;
+                            break;
+                        }
+                    }
+                }
+            }
+            if (!found) {
+                break;
+            }
+
+            int pathFlow = amount - pushed;
+            for (int w = to; w != from; w = heads[reverse[bfs.getParentArc(w)]]) {
+                pathFlow = Math.min(pathFlow, capacities[bfs.getParentArc(w)]);
+            }
+            for (int w = to; w != from; w = heads[reverse[bfs.getParentArc(w)]]) {
+                residual.push(bfs.getParentArc(w), pathFlow);
+            }
+            pushed += pathFlow;
+        }
+        return pushed;
+    }
+
+    // Search for new augmenting paths from the current flow, then publish the result
+    private void augment() {
+        algorithm.computeMaxFlow(residual, source, sink, tracer);
+        residual.writeFlows(graph);
+
+        // The flow value is the net flow leaving the source
+        long net = 0;
+        for (Edge edge : graph.getAllEdges()) {
+            if (edge.getSource() == source) {
+                net += edge.getFlow();
+            }
+            if (edge.getDestination() == source) {
+                net -= edge.getFlow();
+            }
+        }
+        maxFlow = net;
+    }
+}
@@ -0,0 +1,64 @@
+/**
+ * Edge whose capacity and flow are stored as longs. Graph creates one only for capacities
+ * above Integer.MAX_VALUE, so ordinary edges keep their int fields.
+ *
+ * The int getters throw ArithmeticException when the value does not fit; read these edges
+ * through getLongCapacity and getLongFlow.
+ */
+public class LongEdge extends Edge {
+    private long capacity;
+    private long flow;
+
+    public LongEdge(int source, int destination, long capacity) {
+        this(source, destination, capacity, 0);
+    }
+
+    public LongEdge(int source, int destination, long capacity, int cost) {
+        super(source, destination, 0, cost);
+        this.capacity = capacity;
+        this.flow = 0;
+    }
+
+    @Override
+    public int getCapacity() {
+        return Math.toIntExact(capacity);
+    }
+
+    @Override
+    public void setCapacity(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Capacity cannot be negative: " + capacity);
+        }
+        this.capacity = capacity;
+    }
+
+    @Override
+    public int getFlow() {
+        return Math.toIntExact(flow);
+    }
+
+    @Override
+    public void setFlow(int flow) {
+        this.flow = flow;
+    }
+
+    @Override
+    public int getResidualCapacity() {
+        return Math.toIntExact(capacity - flow);
+    }
+
+    @Override
+    public long getLongCapacity() {
+        return capacity;
+    }
+
+    @Override
+    public long getLongFlow() {
+        return flow;
+    }
+
+    @Override
+    public void setLongFlow(long flow) {
+        this.flow = flow;
+    }
+}
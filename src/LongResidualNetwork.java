@@ -0,0 +1,200 @@
+import java.util.List;
+
+/**
+ * ResidualNetwork variant with 64-bit residual capacities, for graphs whose edge
+ * capacities do not fit in an int. The layout is the same CSR structure; only the
+ * capacities array is widened, so the int network keeps its smaller footprint.
+ */
+public class LongResidualNetwork {
+    private final int numNodes;
+    private final int numEdges;
+    private final int[] offsets;     // first arc of each node, length numNodes + 1
+    private final int[] heads;       // head node of each arc
+    private final long[] capacities; // residual capacity of each arc
+    private final int[] reverse;     // index of the paired reverse arc
+    private final int[] edgeArcs;    // forward arc of each original edge, in getAllEdges() order
+
+    /**
+     * Builds the residual network for a graph with zero initial flow
+     *
+     * @param graph The flow network graph
+     */
+    public LongResidualNetwork(Graph graph) {
+        this(graph, null, null, false);
+    }
+
+    /**
+     * Builds the residual network of a graph whose flow enters at a set of sources and leaves
+     * at a set of sinks, with virtual terminals as in the ResidualNetwork constructor. Unlimited
+     * terminals get arcs of capacity Long.MAX_VALUE.
+     *
+     * @param graph The flow network graph
+     * @param sources The source set
+     * @param sinks The sink set
+     * @throws IllegalArgumentException if a terminal is invalid
+     */
+    public LongResidualNetwork(Graph graph, TerminalSet sources, TerminalSet sinks) {
+        this(graph, sources, sinks, true);
+    }
+
+    private LongResidualNetwork(Graph graph, TerminalSet sources, TerminalSet sinks, boolean terminals) {
+        if (terminals) {
+            TerminalSet.checkTerminals(sources, sinks, graph.getNumNodes());
+        }
+        List<Edge> edges = graph.getAllEdges();
+        int graphNodes = graph.getNumNodes();
+        int terminalArcs = terminals ? sources.size() + sinks.size() : 0;
+        this.numNodes = graphNodes + (terminals ? 2 : 0);
+        this.numEdges = edges.size();
+        this.offsets = new int[numNodes + 1];
+        this.heads = new int[2 * (numEdges + terminalArcs)];
+        this.capacities = new long[heads.length];
+        this.reverse = new int[heads.length];
+        this.edgeArcs = new int[numEdges];
+
+        // Count the out-degree of every node, each edge contributing one arc to both endpoints
+        for (Edge edge : edges) {
+            offsets[edge.getSource() + 1]++;
+            offsets[edge.getDestination() + 1]++;
+        }
+        if (terminals) {
+            offsets[graphNodes + 1] += sources.size();
+            offsets[graphNodes + 2] += sinks.size();
+            for (int i = 0; i < sources.size(); i++) {
+                offsets[sources.getNode(i) + 1]++;
+            }
+            for (int i = 0; i < sinks.size(); i++) {
+                offsets[sinks.getNode(i) + 1]++;
+            }
+        }
+        for (int i = 0; i < numNodes; i++) {
+            offsets[i + 1] += offsets[i];
+        }
+
+        // Place the forward and reverse arcs of every edge
+        int[] next = new int[numNodes];
+        System.arraycopy(offsets, 0, next, 0, numNodes);
+        int index = 0;
+        for (Edge edge : edges) {
+            int u = edge.getSource();
+            int v = edge.getDestination();
+            int forward = next[u]++;
+            int backward = next[v]++;
+
+            heads[forward] = v;
+            capacities[forward] = edge.getLongCapacity();
+            reverse[forward] = backward;
+
+            heads[backward] = u;
+            reverse[backward] = forward;
+
+            edgeArcs[index++] = forward;
+        }
+
+        // The virtual arcs come after the edges, so edge positions are unaffected
+        if (terminals) {
+            for (int i = 0; i < sources.size(); i++) {
+                placeArc(next, graphNodes, sources.getNode(i), sources.getLimit(i));
+            }
+            for (int i = 0; i < sinks.size(); i++) {
+                placeArc(next, sinks.getNode(i), graphNodes + 1, sinks.getLimit(i));
+            }
+        }
+    }
+
+    private void placeArc(int[] next, int u, int v, long capacity) {
+        int forward = next[u]++;
+        int backward = next[v]++;
+        heads[forward] = v;
+        capacities[forward] = capacity;
+        reverse[forward] = backward;
+        heads[backward] = u;
+        reverse[backward] = forward;
+    }
+
+    public int getNumNodes() {
+        return numNodes;
+    }
+
+    public int getNumEdges() {
+        return numEdges;
+    }
+
+    public int getNumArcs() {
+        return heads.length;
+    }
+
+    /**
+     * @return Bytes held by the arrays of the network, excluding object headers
+     */
+    public long getMemoryBytes() {
+        return 4L * (offsets.length + heads.length + reverse.length + edgeArcs.length) + 8L * capacities.length;
+    }
+
+    /**
+     * @return The forward arc that represents the edge at the given position of getAllEdges()
+     */
+    public int getEdgeArc(int edgeIndex) {
+        return edgeArcs[edgeIndex];
+    }
+
+    /**
+     * @return The capacity of the edge at the given position, i.e. its flow plus its residual
+     */
+    public long getEdgeCapacity(int edgeIndex) {
+        int forward = edgeArcs[edgeIndex];
+        return capacities[forward] + capacities[reverse[forward]];
+    }
+
+    /**
+     * @return The flow currently carried by the edge at the given position
+     */
+    public long getEdgeFlow(int edgeIndex) {
+        return capacities[reverse[edgeArcs[edgeIndex]]];
+    }
+
+    /**
+     * Set the flow carried by an edge, keeping its capacity
+     *
+     * @param edgeIndex Position of the edge
+     * @param flow New flow, between 0 and the edge capacity
+     */
+    public void setEdgeFlow(int edgeIndex, long flow) {
+        int forward = edgeArcs[edgeIndex];
+        long capacity = capacities[forward] + capacities[reverse[forward]];
+        if (flow < 0 || flow > capacity) {
+            throw new IllegalArgumentException("Flow " + flow + " outside [0, " + capacity + "]");
+        }
+        capacities[forward] = capacity - flow;
+        capacities[reverse[forward]] = flow;
+    }
+
+    /**
+     * Write the flow on every forward arc back into the original graph edges
+     *
+     * @param graph The graph this network was built from
+     */
+    public void writeFlows(Graph graph) {
+        List<Edge> edges = graph.getAllEdges();
+        for (int i = 0; i < numEdges; i++) {
+            edges.get(i).setLongFlow(getEdgeFlow(i));
+        }
+    }
+
+    // Direct array access for the solver's inner loops
+    int[] offsets() {
+        return offsets;
+    }
+
+    int[] heads() {
+        return heads;
+    }
+
+    long[] capacities() {
+        return capacities;
+    }
+
+    int[] reverse() {
+        return reverse;
+    }
+}
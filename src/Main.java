@@ -1,25 +1,163 @@
 // Main.java
 import java.io.IOException;
+import java.net.ServerSocket;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Scanner;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
 
 public class Main {
     public static void main(String[] args) {
-        if (args.length < 1) {
+        // Separate options from positional arguments
+        String algorithmName = "edmonds-karp";
+        int threads = 0;
+        boolean mapped = false;
+        boolean streaming = false;
+        boolean parallelParse = false;
+        boolean reduce = false;
+        boolean stats = false;
+        boolean paths = false;
+        String minCostName = null;
+        String flowIn = null;
+        String flowOut = null;
+        boolean serve = false;
+        int port = -1;          // serve on stdin unless a port is given
+        long cacheMegabytes = 1024;
+        List<String> positional = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (arg.startsWith("--algorithm=")) {
+                algorithmName = arg.substring("--algorithm=".length());
+            } else if (arg.equals("--algorithm") || arg.equals("-a")) {
+                if (i + 1 >= args.length) {
+                    System.err.println("Error: Missing value for " + arg);
+                    return;
+                }
+                algorithmName = args[++i];
+            } else if (arg.equals("--mmap")) {
+                mapped = true;
+            } else if (arg.equals("--stream")) {
+                streaming = true;
+            } else if (arg.equals("--parallel-parse")) {
+                parallelParse = true;
+            } else if (arg.equals("--reduce")) {
+                reduce = true;
+            } else if (arg.equals("--stats")) {
+                stats = true;
+            } else if (arg.equals("--paths")) {
+                paths = true;
+            } else if (arg.equals("--min-cost")) {
+                minCostName = "successive-shortest-paths";
+            } else if (arg.startsWith("--min-cost=")) {
+                minCostName = arg.substring("--min-cost=".length());
+            } else if (arg.equals("--flow-in") || arg.equals("--flow-out")) {
+                if (i + 1 >= args.length) {
+                    System.err.println("Error: Missing value for " + arg);
+                    return;
+                }
+                if (arg.equals("--flow-in")) {
+                    flowIn = args[++i];
+                } else {
+                    flowOut = args[++i];
+                }
+            } else if (arg.equals("--threads")) {
+                if (i + 1 >= args.length) {
+                    System.err.println("Error: Missing value for " + arg);
+                    return;
+                }
+                try {
+                    threads = Integer.parseInt(args[++i]);
+                } catch (NumberFormatException e) {
+                    System.err.println("Error: Thread count must be an integer");
+                    return;
+                }
+            } else if (arg.equals("--serve")) {
+                serve = true;
+            } else if (arg.equals("--port") || arg.equals("--cache-mb")) {
+                if (i + 1 >= args.length) {
+                    System.err.println("Error: Missing value for " + arg);
+                    return;
+                }
+                try {
+                    if (arg.equals("--port")) {
+                        port = Integer.parseInt(args[++i]);
+                    } else {
+                        cacheMegabytes = Long.parseLong(args[++i]);
+                        if (cacheMegabytes <= 0) {
+                            System.err.println("Error: --cache-mb must be a positive integer");
+                            return;
+                        }
+                    }
+                } catch (NumberFormatException e) {
+                    System.err.println("Error: " + arg + " must be an integer");
+                    return;
+                }
+            } else {
+                positional.add(arg);
+            }
+        }
+
+        if (positional.size() < 1 && !serve) {
             System.err.println("Error: Missing input file argument");
-            System.out.println("Usage: java Main <input_file> [source] [sink]");
-            System.out.println("If source and sink are not provided, they will be read from the file or you'll be prompted");
+            printUsage();
             return;
         }
 
-        String inputFile = args[0];
+        // One pool serves both the parallel parser and the parallel engine
+        ForkJoinPool pool = threads > 0 ? new ForkJoinPool(threads) : ForkJoinPool.commonPool();
+        MaxFlowAlgorithm algorithm;
+        MinCostFlowAlgorithm minCost = null;
+        try {
+            algorithm = MaxFlowAlgorithm.forName(algorithmName);
+            if (threads > 0 && algorithm instanceof ParallelPushRelabelAlgorithm) {
+                algorithm = new ParallelPushRelabelAlgorithm(pool);
+            }
+            if (minCostName != null) {
+                minCost = MinCostFlowAlgorithm.forName(minCostName);
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println("Error: " + e.getMessage());
+            return;
+        }
+        if (minCost != null && (reduce || flowIn != null || stats)) {
+            System.err.println("Error: --min-cost cannot be combined with --reduce, --flow-in or --stats");
+            return;
+        }
+        if (reduce && flowIn != null) {
+            System.err.println("Error: --flow-in cannot be combined with --reduce");
+            return;
+        }
+        if (serve) {
+            if (!positional.isEmpty() || minCost != null || reduce || flowIn != null || flowOut != null) {
+                System.err.println("Error: --serve takes requests instead of an input file and cannot be combined with --min-cost, --reduce, --flow-in or --flow-out");
+                return;
+            }
+            startServer(algorithmName, algorithm instanceof ParallelPushRelabelAlgorithm && threads > 0,
+                    pool, port, cacheMegabytes);
+            return;
+        }
+
+        String inputFile = positional.get(0);
         int source = -1;
         int sink = -1;
+        TerminalSet sources = null; // set when the terminals are given as sets
+        TerminalSet sinks = null;
 
         // Check if source and sink are provided as command-line arguments
-        if (args.length >= 3) {
+        if (positional.size() >= 3 && (TerminalSet.isList(positional.get(1)) || TerminalSet.isList(positional.get(2)))) {
+            try {
+                sources = TerminalSet.parse(positional.get(1));
+                sinks = TerminalSet.parse(positional.get(2));
+            } catch (IllegalArgumentException e) {
+                System.err.println("Error: " + e.getMessage());
+                return;
+            }
+        } else if (positional.size() >= 3) {
             try {
-                source = Integer.parseInt(args[1]);
-                sink = Integer.parseInt(args[2]);
+                source = Integer.parseInt(positional.get(1));
+                sink = Integer.parseInt(positional.get(2));
             } catch (NumberFormatException e) {
                 System.err.println("Error: Source and sink must be integers");
                 return;
@@ -28,7 +166,22 @@ public class Main {
 
         try {
             // Parse the input file and create the graph
-            GraphWithSourceSink graphWithSourceSink = Parser.parseFile(inputFile);
+            // Binary graph files are recognised by their magic number
+            // The primitive loaders produce a compact, read-only graph
+            GraphWithSourceSink graphWithSourceSink;
+            if (inputFile.equals("-")) {
+                graphWithSourceSink = StreamingGraphLoader.load(System.in);
+            } else if (streaming) {
+                graphWithSourceSink = StreamingGraphLoader.load(Paths.get(inputFile));
+            } else if (BinaryGraphFormat.isBinaryGraph(Paths.get(inputFile))) {
+                graphWithSourceSink = toCompactGraph(BinaryGraphFormat.read(Paths.get(inputFile)));
+            } else if (parallelParse) {
+                graphWithSourceSink = toCompactGraph(ParallelParser.parse(inputFile, pool));
+            } else if (mapped) {
+                graphWithSourceSink = toCompactGraph(Parser.parseFileMapped(inputFile));
+            } else {
+                graphWithSourceSink = Parser.parseFile(inputFile);
+            }
             Graph graph = graphWithSourceSink.getGraph();
             
             if (graph.getNumNodes() < 2) {
@@ -42,6 +195,16 @@ public class Main {
             // Command-line args have highest priority
             // If not provided, use ones from file
             // If still not available, prompt user
+            if (source == -1 && sources == null && graphWithSourceSink.hasTerminalSets()) {
+                sources = graphWithSourceSink.getSourceSet();
+                sinks = graphWithSourceSink.getSinkSet();
+            }
+            if (sources != null) {
+                solveTerminalSets(graph, algorithm, sources, sinks, minCost != null || reduce
+                        || flowIn != null || flowOut != null, paths, stats);
+                return;
+            }
+
             if (source == -1 && graphWithSourceSink.hasSource()) {
                 source = graphWithSourceSink.getSource();
             }
@@ -112,28 +275,33 @@ public class Main {
                 return;
             }
 
-            System.out.println("Running max flow algorithm with source=" + source + " and sink=" + sink);
+            if (minCost != null) {
+                solveMinCost(graph, minCost, source, sink, flowOut, paths);
+                return;
+            }
+
+            System.out.println("Running " + algorithm.getName() + " max flow algorithm with source=" + source
+                    + " and sink=" + sink);
 
             // Solve the maximum flow problem
-            MaxFlowSolver solver = new MaxFlowSolver(graph);
+            MaxFlowSolver solver = new MaxFlowSolver(graph, algorithm);
+            solver.setTracer(new StepRecorder());
+            solver.setReductionEnabled(reduce);
+            if (flowIn != null) {
+                // Start from a saved flow instead of from zero
+                FlowSnapshot snapshot = FlowSnapshot.read(Paths.get(flowIn));
+                int matched = snapshot.applyTo(graph);
+                solver.setWarmStart(true);
+                System.out.println("Warm start: " + matched + " of " + graph.getAllEdges().size()
+                        + " edges seeded from " + flowIn);
+            }
             try {
-                int maxFlow = solver.findMaxFlow(source, sink);
-                
-                System.out.println("\nMaximum Flow: " + maxFlow);
-                System.out.println("\nFlow details:");
-
-                // Print the flow on each edge
-                for (Edge edge : graph.getAllEdges()) {
-                    System.out.println("Edge " + edge.getSource() + "->" + edge.getDestination() +
-                            ": Flow = " + edge.getFlow() + " / Capacity = " + edge.getCapacity());
+                long maxFlow = solver.findMaxFlowLong(source, sink);
+                if (flowOut != null) {
+                    FlowSnapshot.capture(graph, source, sink).write(Paths.get(flowOut));
                 }
-
-                // Print steps for explanation
-                System.out.println("\nAlgorithm steps:");
-                for (String step : solver.getSteps()) {
-                    System.out.println(step);
-                }
-            } catch (IllegalArgumentException e) {
+                printMaxFlow(graph, solver, maxFlow, TerminalSet.of(source), TerminalSet.of(sink), paths, stats);
+            } catch (IllegalArgumentException | IllegalStateException e) {
                 System.err.println("Error in maximum flow algorithm: " + e.getMessage());
             }
 
@@ -144,4 +312,186 @@ public class Main {
             e.printStackTrace();
         }
     }
+
+    // Solve from a set of sources to a set of sinks, which only the plain max flow supports
+    private static void solveTerminalSets(Graph graph, MaxFlowAlgorithm algorithm, TerminalSet sources,
+                                          TerminalSet sinks, boolean unsupportedOptions, boolean paths,
+                                          boolean stats) {
+        if (unsupportedOptions) {
+            System.err.println("Error: source and sink sets cannot be combined with --min-cost, --reduce, --flow-in or --flow-out");
+            return;
+        }
+        System.out.println("Running " + algorithm.getName() + " max flow algorithm with sources=" + sources
+                + " and sinks=" + sinks);
+        MaxFlowSolver solver = new MaxFlowSolver(graph, algorithm);
+        solver.setTracer(new StepRecorder());
+        try {
+            long maxFlow = solver.findMaxFlowLong(sources, sinks);
+            printMaxFlow(graph, solver, maxFlow, sources, sinks, paths, stats);
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            System.err.println("Error in maximum flow algorithm: " + e.getMessage());
+        }
+    }
+
+    // Print the flow, minimum cut and steps of a solve
+    private static void printMaxFlow(Graph graph, MaxFlowSolver solver, long maxFlow, TerminalSet sources,
+                                     TerminalSet sinks, boolean paths, boolean stats) {
+        System.out.println("\nMaximum Flow: " + maxFlow);
+        System.out.println("\nFlow details:");
+
+        // Print the flow on each edge
+        for (Edge edge : graph.getAllEdges()) {
+            System.out.println("Edge " + edge.getSource() + "->" + edge.getDestination() +
+                    ": Flow = " + edge.getLongFlow() + " / Capacity = " + edge.getLongCapacity());
+        }
+
+        if (paths) {
+            printPaths(graph, sources, sinks);
+        }
+
+        // Print the bottleneck: the saturated edges of the minimum cut
+        MinCut cut = solver.getMinCut();
+        System.out.println("\nMinimum cut (source side has " + cut.getSourceSideSize() + " of "
+                + graph.getNumNodes() + " nodes):");
+        for (Edge edge : cut.getCutEdges(graph)) {
+            System.out.println("Edge " + edge.getSource() + "->" + edge.getDestination() +
+                    ": Capacity = " + edge.getLongCapacity());
+        }
+        // Limited terminals whose limit is part of the cut
+        for (int i = 0; i < sources.size(); i++) {
+            if (!cut.isOnSourceSide(sources.getNode(i))) {
+                System.out.println("Source " + sources.getNode(i) + ": Limit = " + sources.getLimit(i));
+            }
+        }
+        for (int i = 0; i < sinks.size(); i++) {
+            if (cut.isOnSourceSide(sinks.getNode(i))) {
+                System.out.println("Sink " + sinks.getNode(i) + ": Limit = " + sinks.getLimit(i));
+            }
+        }
+
+        // Print steps for explanation
+        System.out.println("\nAlgorithm steps:");
+        for (String step : solver.getSteps()) {
+            System.out.println(step);
+        }
+
+        // Metrics of the run as the last line, for scripts
+        if (stats) {
+            System.out.println(solver.getLastStats().toJson());
+        }
+    }
+
+    // Stream the flow as source-to-sink paths and cycles, one line each
+    private static void printPaths(Graph graph, TerminalSet sources, TerminalSet sinks) {
+        System.out.println("\nFlow paths:");
+        FlowDecomposition decomposition = FlowDecomposition.decompose(graph, sources, sinks, new FlowPathConsumer() {
+            @Override
+            public void onPath(int[] nodes, int[] edges, int length, long amount) {
+                System.out.println("Path " + formatNodes(nodes, length) + ": " + amount);
+            }
+
+            @Override
+            public void onCycle(int[] nodes, int[] edges, int length, long amount) {
+                System.out.println("Cycle " + formatNodes(nodes, length) + ": " + amount);
+            }
+        });
+        System.out.println(decomposition.getNumPaths() + " paths carrying " + decomposition.getPathFlow()
+                + ", " + decomposition.getNumCycles() + " cycles carrying " + decomposition.getCycleFlow());
+    }
+
+    private static String formatNodes(int[] nodes, int length) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i <= length; i++) {
+            if (i > 0) {
+                text.append(" -> ");
+            }
+            text.append(nodes[i]);
+        }
+        return text.toString();
+    }
+
+    // Solve for the cheapest maximum flow and print it like the max flow results
+    private static void solveMinCost(Graph graph, MinCostFlowAlgorithm algorithm, int source, int sink,
+                                     String flowOut, boolean paths) throws IOException {
+        System.out.println("Running " + algorithm.getName() + " min cost flow algorithm with source=" + source
+                + " and sink=" + sink);
+        MinCostFlowSolver solver = new MinCostFlowSolver(graph, algorithm);
+        solver.setTracer(new StepRecorder());
+        try {
+            long maxFlow = solver.findMinCostMaxFlow(source, sink);
+            if (flowOut != null) {
+                FlowSnapshot.capture(graph, source, sink).write(Paths.get(flowOut));
+            }
+
+            System.out.println("\nMaximum Flow: " + maxFlow);
+            System.out.println("Minimum Cost: " + solver.getTotalCost());
+            System.out.println("\nFlow details:");
+            for (Edge edge : graph.getAllEdges()) {
+                System.out.println("Edge " + edge.getSource() + "->" + edge.getDestination() +
+                        ": Flow = " + edge.getLongFlow() + " / Capacity = " + edge.getLongCapacity()
+                        + " / Cost = " + edge.getCost());
+            }
+            if (paths) {
+                printPaths(graph, TerminalSet.of(source), TerminalSet.of(sink));
+            }
+
+            System.out.println("\nAlgorithm steps:");
+            for (String step : solver.getSteps()) {
+                System.out.println(step);
+            }
+        } catch (IllegalArgumentException | ArithmeticException e) {
+            System.err.println("Error in min cost flow algorithm: " + e.getMessage());
+        }
+    }
+
+    // Serve requests until stdin ends, or forever on a port
+    private static void startServer(String algorithmName, boolean ownPool, ForkJoinPool pool, int port,
+                                    long cacheMegabytes) {
+        Supplier<MaxFlowAlgorithm> algorithms = ownPool
+                ? () -> new ParallelPushRelabelAlgorithm(pool)
+                : () -> MaxFlowAlgorithm.forName(algorithmName);
+        try {
+            FlowServer server = new FlowServer(algorithms, pool, Math.multiplyExact(cacheMegabytes, 1L << 20));
+            if (port < 0) {
+                server.serveStandardStreams();
+            } else {
+                try (ServerSocket socket = FlowServer.bind(port)) {
+                    System.out.println("Listening on " + socket.getInetAddress().getHostAddress() + ":"
+                            + socket.getLocalPort());
+                    server.serveSocket(socket);
+                }
+            }
+        } catch (ArithmeticException e) {
+            System.err.println("Error: --cache-mb is too large: " + cacheMegabytes);
+        } catch (IllegalArgumentException e) {
+            System.err.println("Error: " + e.getMessage());
+        } catch (IOException e) {
+            System.err.println("Server error: " + e.getMessage());
+        }
+    }
+
+    private static GraphWithSourceSink toCompactGraph(EdgeList edges) {
+        return edges.withTerminals(CompactGraph.fromEdgeList(edges));
+    }
+
+    private static void printUsage() {
+        System.out.println("Usage: java Main [--algorithm <name>] [--threads <n>] [--reduce] [--stats] [--min-cost[=<method>]] [--paths] [--flow-in <file>] [--flow-out <file>] [--mmap | --stream | --parallel-parse] <input_file> [source] [sink]");
+        System.out.println("If source and sink are not provided, they will be read from the file or you'll be prompted");
+        System.out.println("source and sink may also be sets of comma-separated nodes, each with an optional :limit, e.g. 0,1:50 6,7");
+        System.out.println("Algorithms: edmonds-karp (default), capacity-scaling, dinic, push-relabel, parallel-push-relabel");
+        System.out.println("--threads sets the worker count of parallel-push-relabel and --parallel-parse (default: all cores)");
+        System.out.println("--reduce prunes, merges and contracts the graph before solving; flows are still reported per edge");
+        System.out.println("--min-cost finds the cheapest maximum flow using the optional 4th column (cost) of each edge;");
+        System.out.println("  methods: successive-shortest-paths (default), cost-scaling");
+        System.out.println("--stats prints the metrics of the solve as a JSON object on the last line");
+        System.out.println("--paths prints the flow decomposed into source-to-sink paths and cycles");
+        System.out.println("--flow-out saves the computed flow; --flow-in warm-starts from a saved flow, repairing it if needed");
+        System.out.println("--mmap reads the input file through the memory-mapped parser");
+        System.out.println("--parallel-parse splits the input file into byte ranges parsed on all worker threads");
+        System.out.println("--stream loads the input in two streaming passes with bounded memory; use - for stdin");
+        System.out.println("Binary graph files written by BinaryGraphConverter are detected automatically");
+        System.out.println("Server: java Main --serve [--port <n>] [--cache-mb <n>] [--algorithm <name>] [--threads <n>]");
+        System.out.println("  answers \"maxflow <graph> [source] [sink]\", \"load <graph>\", \"stats\" and \"quit\" lines on stdin,");
+        System.out.println("  or on a loopback TCP port; graphs stay cached by path and modification time (default 1024 MB)");
+    }
 }
@@ -0,0 +1,83 @@
+/**
+ * Strategy interface for the engines that compute a maximum flow on a ResidualNetwork.
+ *
+ * Implementations start from the flow already present in the network (zero for a freshly
+ * built one), leave the final flow in its residual capacities and return the flow value.
+ * MaxFlowSolver takes care of validation and of writing flows back to the Edge objects.
+ */
+public interface MaxFlowAlgorithm {
+
+    /**
+     * @return The name used to select this engine, e.g. on the command line
+     */
+    String getName();
+
+    /**
+     * Compute a maximum flow from source to sink
+     *
+     * @param network The residual network, updated in place
+     * @param source The source node
+     * @param sink The sink node
+     * @param tracer Receives trace events; FlowTracer.NONE when tracing is off
+     * @return The value of the maximum flow, accumulated in a long so it cannot overflow
+     */
+    long computeMaxFlow(ResidualNetwork network, int source, int sink, FlowTracer tracer);
+
+    /**
+     * Compute a maximum flow on a network whose capacities need 64 bits
+     *
+     * @param network The long-capacity residual network, updated in place
+     * @param source The source node
+     * @param sink The sink node
+     * @param tracer Receives trace events; FlowTracer.NONE when tracing is off
+     * @return The value of the maximum flow
+     * @throws UnsupportedOperationException if the engine only handles int capacities
+     */
+    default long computeMaxFlow(LongResidualNetwork network, int source, int sink, FlowTracer tracer) {
+        throw new UnsupportedOperationException(getName() + " does not support long capacities");
+    }
+
+    /**
+     * @return Whether computeMaxFlow accepts a LongResidualNetwork
+     */
+    default boolean supportsLongCapacities() {
+        return false;
+    }
+
+    /**
+     * Copy the work counters of the last computeMaxFlow call into the stats. Engines keep the
+     * counters in plain fields while they run; the default leaves every counter at zero.
+     */
+    default void collectStats(SolveStats stats) {
+    }
+
+    /**
+     * Look up one of the built-in engines by name
+     *
+     * @param name "edmonds-karp", "capacity-scaling", "dinic", "push-relabel" or "parallel-push-relabel"
+     *             (case-insensitive)
+     * @return A new instance of the engine
+     * @throws IllegalArgumentException if the name is unknown
+     */
+    static MaxFlowAlgorithm forName(String name) {
+        switch (name.toLowerCase()) {
+            case "edmonds-karp":
+            case "ek":
+                return new EdmondsKarpAlgorithm();
+            case "capacity-scaling":
+            case "scaling":
+                return new EdmondsKarpAlgorithm(true);
+            case "dinic":
+                return new DinicAlgorithm();
+            case "push-relabel":
+            case "pr":
+                return new PushRelabelAlgorithm();
+            case "parallel-push-relabel":
+            case "ppr":
+                return new ParallelPushRelabelAlgorithm();
+            default:
+                throw new IllegalArgumentException("Unknown max flow algorithm: " + name
+                        + " (expected edmonds-karp, capacity-scaling, dinic, push-relabel or parallel-push-relabel)");
+        }
+    }
+}
@@ -1,18 +1,58 @@
-import java.util.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 public class MaxFlowSolver {
     private Graph graph;
-    private List<String> steps; // To store steps for explanation
+    private MaxFlowAlgorithm algorithm;
+    private FlowTracer tracer; // Off unless a tracer is installed
+    private ResidualNetwork lastResidual;         // final state of the last solve, for getMinCut
+    private LongResidualNetwork lastLongResidual;
+    private int lastSource;
+    private TerminalSet lastSources;              // sets of the last solve, null unless it ran between them
+    private TerminalSet lastSinks;
+    private TerminalSet lastSupply;               // the same sets with their limits bounded
+    private TerminalSet lastDemand;
+    private MinCut minCut;
+    private boolean reduce;                       // shrink the graph before solving
+    private GraphReduction lastReduction;
+    private boolean warmStart;                    // start from the flows held by the edges
+    private boolean matchingFastPath = true;      // solve bipartite matchings with Hopcroft-Karp
+    private BipartiteMatching lastMatching;
+    private long seedValue;                       // value of the repaired starting flow
+    private final List<SolveListener> listeners = new ArrayList<>();
+    private SolveStats lastStats;
 
     public MaxFlowSolver(Graph graph) {
+        this(graph, new EdmondsKarpAlgorithm());
+    }
+
+    public MaxFlowSolver(Graph graph, MaxFlowAlgorithm algorithm) {
         if (graph == null) {
             throw new IllegalArgumentException("Graph cannot be null");
         }
+        if (algorithm == null) {
+            throw new IllegalArgumentException("Algorithm cannot be null");
+        }
         this.graph = graph;
-        this.steps = new ArrayList<>();
+        this.algorithm = algorithm;
+        this.tracer = FlowTracer.NONE;
     }
 
+    /**
+     * Compute the maximum flow, which must fit in an int
+     *
+     * @throws ArithmeticException if the flow value exceeds Integer.MAX_VALUE; use findMaxFlowLong
+     */
     public int findMaxFlow(int source, int sink) {
+        return Math.toIntExact(findMaxFlowLong(source, sink));
+    }
+
+    /**
+     * Compute the maximum flow as a long. Graphs with capacities above the int range are
+     * solved on a LongResidualNetwork; engines without long support fall back to Dinic.
+     */
+    public long findMaxFlowLong(int source, int sink) {
         int numNodes = graph.getNumNodes();
         
         // Validate source and sink
@@ -26,102 +66,390 @@ public class MaxFlowSolver {
             throw new IllegalArgumentException("Source and sink cannot be the same node");
         }
         
-        // Create residual graph
-        int[][] residualCapacity = new int[numNodes][numNodes];
+        reset();
+        lastSource = source;
+
+        if (reduce && warmStart) {
+            throw new IllegalStateException("Warm start cannot be combined with graph reduction");
+        }
+        long start = System.nanoTime();
+        if (matchingFastPath && !warmStart) {
+            BipartiteMatching matching = BipartiteMatching.fromGraph(graph, source, sink);
+            if (matching != null) {
+                return solveMatching(matching, source, sink, start);
+            }
+        }
+        if (reduce) {
+            // Solve the reduced graph with the same engine, then map its flows back
+            GraphReduction reduction = GraphReduction.reduce(graph, source, sink);
+            Graph reduced = reduction.getReducedGraph();
+            if (tracer.isEnabled()) {
+                tracer.onMessage("Reduced the graph from " + numNodes + " nodes and " + graph.getAllEdges().size()
+                        + " edges to " + reduced.getNumNodes() + " nodes and " + reduced.getAllEdges().size() + " edges");
+            }
+            long reducedAt = System.nanoTime();
+            MaxFlowSolver inner = new MaxFlowSolver(reduced, algorithm);
+            inner.setTracer(tracer);
+            long maxFlow = inner.findMaxFlowLong(reduction.getSource(), reduction.getSink());
+            long solvedAt = System.nanoTime();
+            reduction.writeFlows();
+            lastReduction = reduction;
 
-        // Initialize residual capacities
-        for (Edge edge : graph.getAllEdges()) {
-            residualCapacity[edge.getSource()][edge.getDestination()] = edge.getCapacity();
+            // The engine counters are those of the inner solve; sizes and times cover the whole call
+            SolveStats stats = inner.getLastStats();
+            stats.reduced = true;
+            stats.prepareNanos = reducedAt - start;
+            stats.writeNanos += System.nanoTime() - solvedAt;
+            return finish(stats, source, sink, maxFlow, start);
         }
 
-        // Store parent array for BFS path construction
-        int[] parent = new int[numNodes];
-        int maxFlow = 0;
+        return solve(source, sink, null, null, start);
+    }
 
-        steps.add("Starting Edmonds-Karp algorithm from source " + source + " to sink " + sink);
+    /**
+     * Compute the maximum flow from a set of sources to a set of sinks, which must fit in an int
+     *
+     * @throws ArithmeticException if the flow value exceeds Integer.MAX_VALUE; use findMaxFlowLong
+     */
+    public int findMaxFlow(TerminalSet sources, TerminalSet sinks) {
+        return Math.toIntExact(findMaxFlowLong(sources, sinks));
+    }
 
-        // Augment flow while there is a path from source to sink
-        while (bfs(residualCapacity, source, sink, parent)) {
-            // Find the maximum flow through the path found by BFS
-            int pathFlow = Integer.MAX_VALUE;
+    /**
+     * Compute the maximum flow from a set of sources to a set of sinks, where every terminal
+     * supplies or absorbs at most its limit. The engine runs between two virtual terminals that
+     * the residual network appends to the graph's nodes, so the graph is neither copied nor
+     * rewritten with a super-source and super-sink. Sets of a single node without a limit are
+     * solved as findMaxFlowLong(int, int); others cannot be combined with reduction or warm start.
+     */
+    public long findMaxFlowLong(TerminalSet sources, TerminalSet sinks) {
+        TerminalSet.checkTerminals(sources, sinks, graph.getNumNodes());
+        if (sources.isSingle() && sinks.isSingle()) {
+            return findMaxFlowLong(sources.getNode(0), sinks.getNode(0));
+        }
+        if (reduce || warmStart) {
+            throw new IllegalStateException("Source and sink sets cannot be combined with graph reduction or warm start");
+        }
+        reset();
+        long start = System.nanoTime();
 
-            StringBuilder pathStr = new StringBuilder();
-            pathStr.append("Found path: ");
+        // A terminal never carries more than its edges, which keeps most virtual arcs in the int range
+        TerminalSet supply = sources.bounded(graph, true);
+        TerminalSet demand = sinks.bounded(graph, false);
+        lastSources = sources;
+        lastSinks = sinks;
+        lastSupply = supply;
+        lastDemand = demand;
+        if (tracer.isEnabled()) {
+            tracer.onMessage("Sources " + sources + " are fed by virtual node " + graph.getNumNodes()
+                    + " and sinks " + sinks + " drain into virtual node " + (graph.getNumNodes() + 1));
+        }
+        return solve(-1, -1, supply, demand, start);
+    }
 
-            // Construct the augmenting path and find bottleneck capacity
-            for (int v = sink; v != source; v = parent[v]) {
-                int u = parent[v];
-                pathFlow = Math.min(pathFlow, residualCapacity[u][v]);
-                pathStr.insert(11, "->" + v);
+    private void reset() {
+        lastResidual = null;
+        lastLongResidual = null;
+        lastReduction = null;
+        lastMatching = null;
+        lastStats = null;
+        lastSources = null;
+        lastSinks = null;
+        lastSupply = null;
+        lastDemand = null;
+        minCut = null;
+    }
 
-                if (v != sink) {
-                    pathStr.insert(11, " ");
+    // Solve on a freshly built residual network, between source and sink or, when the sets are
+    // given, between the virtual terminals joined to them
+    private long solve(int source, int sink, TerminalSet sources, TerminalSet sinks, long start) {
+        SolveStats stats = new SolveStats();
+        stats.warmStarted = warmStart;
+        int from = source;
+        int to = sink;
+        if (sources != null) {
+            from = graph.getNumNodes();
+            to = graph.getNumNodes() + 1;
+        }
+        lastSource = from;
+
+        if (graph.hasLongCapacities() || exceedsInt(sources) || exceedsInt(sinks)) {
+            MaxFlowAlgorithm engine = algorithm;
+            if (!engine.supportsLongCapacities()) {
+                engine = new DinicAlgorithm();
+                if (tracer.isEnabled()) {
+                    tracer.onMessage(algorithm.getName() + " does not support long capacities, using " + engine.getName());
+                }
+            }
+            LongResidualNetwork residual = sources == null ? new LongResidualNetwork(graph)
+                    : new LongResidualNetwork(graph, sources, sinks);
+            long builtAt = System.nanoTime();
+            long maxFlow = 0;
+            if (warmStart) {
+                long[] flows = seedFlows(source, sink);
+                for (int i = 0; i < flows.length; i++) {
+                    residual.setEdgeFlow(i, flows[i]);
                 }
+                maxFlow = seedValue;
             }
-            pathStr.insert(11, source);
+            long seededAt = System.nanoTime();
+            maxFlow += engine.computeMaxFlow(residual, from, to, tracer);
+            long solvedAt = System.nanoTime();
+            residual.writeFlows(graph);
+            lastLongResidual = residual;
 
-            steps.add(pathStr + " with bottleneck flow: " + pathFlow);
+            engine.collectStats(stats);
+            stats.algorithm = engine.getName();
+            stats.residualBytes = residual.getMemoryBytes();
+            stats.buildNanos = builtAt - start;
+            stats.prepareNanos = seededAt - builtAt;
+            stats.solveNanos = solvedAt - seededAt;
+            stats.writeNanos = System.nanoTime() - solvedAt;
+            return finish(stats, source, sink, maxFlow, start);
+        }
 
-            // Update residual capacities of the edges and reverse edges
-            for (int v = sink; v != source; v = parent[v]) {
-                int u = parent[v];
-                residualCapacity[u][v] -= pathFlow;
-                residualCapacity[v][u] += pathFlow; // For the reverse edge
+        // Create residual graph in compact CSR form
+        ResidualNetwork residual = sources == null ? new ResidualNetwork(graph)
+                : new ResidualNetwork(graph, sources, sinks);
+        long builtAt = System.nanoTime();
+        long maxFlow = 0;
+        if (warmStart) {
+            // Seed the residual network so the engine only searches for the missing flow
+            long[] flows = seedFlows(source, sink);
+            for (int i = 0; i < flows.length; i++) {
+                residual.setEdgeFlow(i, (int) flows[i]);
             }
-
-            // Add path flow to overall flow
-            maxFlow += pathFlow;
-            steps.add("Increased max flow to: " + maxFlow);
+            maxFlow = seedValue;
         }
+        long seededAt = System.nanoTime();
+
+        // Let the selected engine compute the flow in the residual network
+        maxFlow += algorithm.computeMaxFlow(residual, from, to, tracer);
+        long solvedAt = System.nanoTime();
 
         // Update the flow values in the original graph edges
-        updateOriginalGraphFlows(residualCapacity);
+        updateOriginalGraphFlows(residual);
+        lastResidual = residual;
 
-        return maxFlow;
+        algorithm.collectStats(stats);
+        stats.algorithm = algorithm.getName();
+        stats.residualBytes = residual.getMemoryBytes();
+        stats.buildNanos = builtAt - start;
+        stats.prepareNanos = seededAt - builtAt;
+        stats.solveNanos = solvedAt - seededAt;
+        stats.writeNanos = System.nanoTime() - solvedAt;
+        return finish(stats, source, sink, maxFlow, start);
     }
 
-    // Use BFS to find an augmenting path
-    private boolean bfs(int[][] residualCapacity, int source, int sink, int[] parent) {
-        int numNodes = graph.getNumNodes();
-        boolean[] visited = new boolean[numNodes];
-        Arrays.fill(visited, false);
-
-        Queue<Integer> queue = new LinkedList<>();
-        queue.add(source);
-        visited[source] = true;
-        parent[source] = -1;
-
-        while (!queue.isEmpty()) {
-            int u = queue.poll();
-
-            // Explore all adjacent vertices
-            for (int v = 0; v < numNodes; v++) {
-                // If there's available capacity and vertex not visited yet
-                if (!visited[v] && residualCapacity[u][v] > 0) {
-                    queue.add(v);
-                    parent[v] = u;
-                    visited[v] = true;
+    // Solve a unit-capacity bipartite network as a matching and write it back as edge flows
+    private long solveMatching(BipartiteMatching matching, int source, int sink, long start) {
+        long builtAt = System.nanoTime();
+        tracer.onStart("Hopcroft-Karp", source, sink);
+        long size = matching.solve(tracer);
+        long solvedAt = System.nanoTime();
+        matching.writeFlows(graph);
+        lastMatching = matching;
+
+        SolveStats stats = new SolveStats();
+        matching.collectStats(stats);
+        stats.algorithm = "hopcroft-karp";
+        stats.residualBytes = matching.getMemoryBytes();
+        stats.buildNanos = builtAt - start;
+        stats.solveNanos = solvedAt - builtAt;
+        stats.writeNanos = System.nanoTime() - solvedAt;
+        return finish(stats, source, sink, size, start);
+    }
+
+    // Whether a virtual arc of the bounded terminal set needs the long network
+    private static boolean exceedsInt(TerminalSet set) {
+        if (set != null) {
+            for (int i = 0; i < set.size(); i++) {
+                if (set.getLimit(i) > Integer.MAX_VALUE) {
+                    return true;
                 }
             }
         }
+        return false;
+    }
+
+    // Complete the stats of a solve, publish them and return the flow value
+    private long finish(SolveStats stats, int source, int sink, long maxFlow, long start) {
+        stats.numNodes = graph.getNumNodes();
+        stats.numEdges = graph.getAllEdges().size();
+        stats.source = source;
+        stats.sink = sink;
+        stats.maxFlow = maxFlow;
+        stats.totalNanos = System.nanoTime() - start;
+        lastStats = stats;
+        for (SolveListener listener : listeners) {
+            listener.onSolve(stats);
+        }
+        return maxFlow;
+    }
+
+    // Read the flows held by the edges and repair them into a feasible flow, whose value is
+    // left in seedValue
+    private long[] seedFlows(int source, int sink) {
+        List<Edge> edges = graph.getAllEdges();
+        int[] tails = new int[edges.size()];
+        int[] heads = new int[edges.size()];
+        long[] capacities = new long[edges.size()];
+        long[] flows = new long[edges.size()];
+        int index = 0;
+        for (Edge edge : edges) {
+            tails[index] = edge.getSource();
+            heads[index] = edge.getDestination();
+            capacities[index] = edge.getLongCapacity();
+            flows[index] = edge.getLongFlow();
+            index++;
+        }
 
-        // If we reached sink in BFS, then there is a path
-        return visited[sink];
+        FlowRepair repair = FlowRepair.repair(graph.getNumNodes(), tails, heads, capacities, flows, source, sink);
+        seedValue = repair.netOutflow(source);
+        if (tracer.isEnabled()) {
+            tracer.onMessage("Warm start from a flow of " + seedValue + " after clamping " + repair.getClampedEdges()
+                    + " edges and cancelling " + repair.getCancelledFlow() + " units to restore conservation");
+        }
+        return flows;
     }
 
     // Update the flow values in the original graph based on the residual graph
-    private void updateOriginalGraphFlows(int[][] residualCapacity) {
-        for (Edge edge : graph.getAllEdges()) {
-            int u = edge.getSource();
-            int v = edge.getDestination();
-            int capacity = edge.getCapacity();
+    private void updateOriginalGraphFlows(ResidualNetwork residual) {
+        // The flow on each edge is the capacity minus the residual capacity of its forward arc
+        residual.writeFlows(graph);
+    }
 
-            // The flow is the capacity minus the residual capacity
-            edge.setFlow(capacity - residualCapacity[u][v]);
+    /**
+     * Minimum cut of the last findMaxFlow call, derived from its final residual network
+     *
+     * @return The source-side node set and the saturated edges crossing the cut
+     * @throws IllegalStateException if no flow has been computed yet
+     */
+    public MinCut getMinCut() {
+        if (minCut == null) {
+            if (lastSources != null && lastResidual != null) {
+                minCut = MinCut.fromTerminalResidual(lastResidual, lastSources, lastSinks, lastSupply, lastDemand);
+            } else if (lastSources != null && lastLongResidual != null) {
+                minCut = MinCut.fromTerminalResidual(lastLongResidual, lastSources, lastSinks, lastSupply, lastDemand);
+            } else if (lastResidual != null) {
+                minCut = MinCut.fromResidual(lastResidual, lastSource);
+            } else if (lastLongResidual != null) {
+                minCut = MinCut.fromResidual(lastLongResidual, lastSource);
+            } else if (lastReduction != null || lastMatching != null) {
+                minCut = MinCut.fromFlows(graph, lastSource);
+            } else {
+                throw new IllegalStateException("Call findMaxFlow before asking for the minimum cut");
+            }
         }
+        return minCut;
+    }
+
+    /**
+     * Enable or disable the GraphReduction pass before each findMaxFlow call. Flows and the
+     * minimum cut are still reported on the original graph's edges.
+     */
+    public void setReductionEnabled(boolean reduce) {
+        this.reduce = reduce;
+    }
+
+    public boolean isReductionEnabled() {
+        return reduce;
+    }
+
+    /**
+     * Start the following findMaxFlow calls from the flows currently held by the graph's
+     * edges, e.g. those of a previous run or of a FlowSnapshot, instead of from zero.
+     * Flows outside [0, capacity] are clamped and conservation is restored by cancelling
+     * flow before the engine continues augmenting, so any assignment is accepted.
+     * Cannot be combined with setReductionEnabled.
+     */
+    public void setWarmStart(boolean warmStart) {
+        this.warmStart = warmStart;
+    }
+
+    public boolean isWarmStart() {
+        return warmStart;
+    }
+
+    /**
+     * Enable or disable the bipartite matching fast path, on by default. When the network is
+     * the unit-capacity encoding of a bipartite matching (see BipartiteMatching.fromGraph),
+     * findMaxFlow solves it with Hopcroft-Karp in O(E sqrt(V)) instead of the selected engine,
+     * skipping graph reduction, and writes the matching back as edge flows. Not used with
+     * warm start.
+     */
+    public void setMatchingFastPath(boolean matchingFastPath) {
+        this.matchingFastPath = matchingFastPath;
+    }
+
+    public boolean isMatchingFastPath() {
+        return matchingFastPath;
+    }
+
+    /**
+     * @return The matching solved by the last findMaxFlow call if it took the bipartite fast
+     *         path, or null
+     */
+    public BipartiteMatching getLastMatching() {
+        return lastMatching;
     }
 
+    /**
+     * @return The reduction used by the last findMaxFlow call, or null if none was used
+     */
+    public GraphReduction getLastReduction() {
+        return lastReduction;
+    }
+
+    /**
+     * @return Metrics of the last findMaxFlow call, or null if no flow has been computed yet
+     */
+    public SolveStats getLastStats() {
+        return lastStats;
+    }
+
+    /**
+     * Register a listener that receives the metrics of every following findMaxFlow call,
+     * e.g. a SolverMetrics MBean
+     */
+    public void addListener(SolveListener listener) {
+        if (listener == null) {
+            throw new IllegalArgumentException("Listener cannot be null");
+        }
+        listeners.add(listener);
+    }
+
+    public void removeListener(SolveListener listener) {
+        listeners.remove(listener);
+    }
+
+    public MaxFlowAlgorithm getAlgorithm() {
+        return algorithm;
+    }
+
+    /**
+     * Install a tracer for the following findMaxFlow calls, e.g. a StepRecorder
+     *
+     * @param tracer The tracer, or FlowTracer.NONE to switch tracing off
+     */
+    public void setTracer(FlowTracer tracer) {
+        if (tracer == null) {
+            throw new IllegalArgumentException("Tracer cannot be null; use FlowTracer.NONE");
+        }
+        this.tracer = tracer;
+    }
+
+    public FlowTracer getTracer() {
+        return tracer;
+    }
+
+    /**
+     * @return The steps held by the installed StepRecorder, formatted on demand; empty if none is installed
+     */
     public List<String> getSteps() {
-        return steps;
+        if (tracer instanceof StepRecorder) {
+            return ((StepRecorder) tracer).getSteps();
+        }
+        return Collections.emptyList();
     }
 }
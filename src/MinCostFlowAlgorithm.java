@@ -0,0 +1,48 @@
+/**
+ * Strategy interface for the engines that compute a minimum-cost maximum flow.
+ *
+ * Implementations receive a residual network with zero flow and the cost of every arc, where
+ * a reverse arc costs the negated cost of its forward arc. They leave a maximum flow of
+ * minimum total cost in the residual capacities and return its value. MinCostFlowSolver
+ * builds the inputs, writes the flows back to the Edge objects and sums the cost.
+ */
+public interface MinCostFlowAlgorithm {
+
+    /**
+     * @return The name used to select this engine, e.g. on the command line
+     */
+    String getName();
+
+    /**
+     * Compute a maximum flow of minimum cost from source to sink
+     *
+     * @param network The residual network, updated in place
+     * @param costs Cost per unit of flow of every arc of the network; edge costs are non-negative
+     * @param source The source node
+     * @param sink The sink node
+     * @param tracer Receives trace events; FlowTracer.NONE when tracing is off
+     * @return The value of the flow
+     */
+    long computeMinCostFlow(LongResidualNetwork network, long[] costs, int source, int sink, FlowTracer tracer);
+
+    /**
+     * Look up one of the built-in engines by name
+     *
+     * @param name "successive-shortest-paths" (or "ssp") or "cost-scaling" (case-insensitive)
+     * @return A new instance of the engine
+     * @throws IllegalArgumentException if the name is unknown
+     */
+    static MinCostFlowAlgorithm forName(String name) {
+        switch (name.toLowerCase()) {
+            case "successive-shortest-paths":
+            case "ssp":
+                return new SuccessiveShortestPathsAlgorithm();
+            case "cost-scaling":
+            case "cs":
+                return new CostScalingAlgorithm();
+            default:
+                throw new IllegalArgumentException("Unknown min cost flow algorithm: " + name
+                        + " (expected successive-shortest-paths or cost-scaling)");
+        }
+    }
+}
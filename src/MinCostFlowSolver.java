@@ -0,0 +1,128 @@
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Computes a maximum flow of minimum total cost, using the per-edge costs of the graph.
+ *
+ * The cost of an edge is charged per unit of flow (Edge.getCost, or the optional fourth
+ * column of the input file), must be non-negative and defaults to 0, in which case any
+ * maximum flow is optimal. Flows are written back to the graph's edges as with MaxFlowSolver.
+ */
+public class MinCostFlowSolver {
+    private final Graph graph;
+    private final MinCostFlowAlgorithm algorithm;
+    private FlowTracer tracer; // Off unless a tracer is installed
+    private long totalCost;
+
+    public MinCostFlowSolver(Graph graph) {
+        this(graph, new SuccessiveShortestPathsAlgorithm());
+    }
+
+    public MinCostFlowSolver(Graph graph, MinCostFlowAlgorithm algorithm) {
+        if (graph == null) {
+            throw new IllegalArgumentException("Graph cannot be null");
+        }
+        if (algorithm == null) {
+            throw new IllegalArgumentException("Algorithm cannot be null");
+        }
+        this.graph = graph;
+        this.algorithm = algorithm;
+        this.tracer = FlowTracer.NONE;
+    }
+
+    /**
+     * Compute a maximum flow from source to sink whose total cost is as small as possible
+     *
+     * @return The value of the flow; its cost is available from getTotalCost
+     * @throws ArithmeticException if the total cost exceeds the long range
+     */
+    public long findMinCostMaxFlow(int source, int sink) {
+        int numNodes = graph.getNumNodes();
+        if (source < 0 || source >= numNodes) {
+            throw new IllegalArgumentException("Invalid source node: " + source);
+        }
+        if (sink < 0 || sink >= numNodes) {
+            throw new IllegalArgumentException("Invalid sink node: " + sink);
+        }
+        if (source == sink) {
+            throw new IllegalArgumentException("Source and sink cannot be the same node");
+        }
+
+        LongResidualNetwork residual = new LongResidualNetwork(graph);
+        long[] costs = arcCosts(residual);
+        long flow = algorithm.computeMinCostFlow(residual, costs, source, sink, tracer);
+        residual.writeFlows(graph);
+
+        long cost = 0;
+        for (int i = 0; i < residual.getNumEdges(); i++) {
+            long edgeFlow = residual.getEdgeFlow(i);
+            if (edgeFlow != 0) {
+                cost = Math.addExact(cost, Math.multiplyExact(edgeFlow, costs[residual.getEdgeArc(i)]));
+            }
+        }
+        totalCost = cost;
+        if (tracer.isEnabled()) {
+            tracer.onMessage("Minimum cost of a flow of " + flow + ": " + totalCost);
+        }
+        return flow;
+    }
+
+    // Cost of every arc of the network: the edge cost forwards, its negation backwards
+    private long[] arcCosts(LongResidualNetwork residual) {
+        long[] costs = new long[residual.getNumArcs()];
+        int[] reverse = residual.reverse();
+        if (graph instanceof CompactGraph) {
+            CompactGraph compact = (CompactGraph) graph;
+            for (int i = 0; i < residual.getNumEdges(); i++) {
+                int arc = residual.getEdgeArc(i);
+                costs[arc] = compact.getCost(i);
+                costs[reverse[arc]] = -costs[arc];
+            }
+        } else {
+            int index = 0;
+            for (Edge edge : graph.getAllEdges()) {
+                int arc = residual.getEdgeArc(index++);
+                costs[arc] = edge.getCost();
+                costs[reverse[arc]] = -costs[arc];
+            }
+        }
+        return costs;
+    }
+
+    /**
+     * @return Total cost of the flow found by the last findMinCostMaxFlow call
+     */
+    public long getTotalCost() {
+        return totalCost;
+    }
+
+    public MinCostFlowAlgorithm getAlgorithm() {
+        return algorithm;
+    }
+
+    /**
+     * Install a tracer for the following calls, e.g. a StepRecorder
+     *
+     * @param tracer The tracer, or FlowTracer.NONE to switch tracing off
+     */
+    public void setTracer(FlowTracer tracer) {
+        if (tracer == null) {
+            throw new IllegalArgumentException("Tracer cannot be null; use FlowTracer.NONE");
+        }
+        this.tracer = tracer;
+    }
+
+    public FlowTracer getTracer() {
+        return tracer;
+    }
+
+    /**
+     * @return The steps held by the installed StepRecorder, formatted on demand; empty if none is installed
+     */
+    public List<String> getSteps() {
+        if (tracer instanceof StepRecorder) {
+            return ((StepRecorder) tracer).getSteps();
+        }
+        return Collections.emptyList();
+    }
+}
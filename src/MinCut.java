@@ -0,0 +1,291 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Minimum cut read off the final residual network of a maximum flow computation.
+ *
+ * The source side is every node still reachable from the source through arcs with residual
+ * capacity; the cut edges are the edges leading from that side to the rest of the graph,
+ * all of which are saturated. Both come from one O(V + E) search of the residual network.
+ *
+ * After a solve between source and sink sets, the limits of the terminals can be part of the
+ * cut too: a limited source whose supply is used up can end up off the source side, and a
+ * limited sink whose demand is met can end up on it. Such terminals are reported as cut
+ * sources and cut sinks, and their limits count towards the value.
+ */
+public class MinCut {
+    private static final int[] NONE = new int[0];
+
+    private final BitSet sourceSide;
+    private final int[] cutEdges;  // positions in getAllEdges() order
+    private final int[] cutSources;
+    private final int[] cutSinks;
+    private final long value;
+
+    private MinCut(BitSet sourceSide, int[] cutEdges, long value) {
+        this(sourceSide, cutEdges, NONE, NONE, value);
+    }
+
+    private MinCut(BitSet sourceSide, int[] cutEdges, int[] cutSources, int[] cutSinks, long value) {
+        this.sourceSide = sourceSide;
+        this.cutEdges = cutEdges;
+        this.cutSources = cutSources;
+        this.cutSinks = cutSinks;
+        this.value = value;
+    }
+
+    /**
+     * @param residual A residual network holding a maximum flow
+     * @param source The source the flow was computed from
+     * @return The minimum cut nearest to the source
+     */
+    public static MinCut fromResidual(ResidualNetwork residual, int source) {
+        return withCutEdges(residual, sourceSide(residual, source, new BfsWorkspace(residual.getNumNodes())));
+    }
+
+    // Cut edges and their total capacity for the given source side
+    private static MinCut withCutEdges(ResidualNetwork residual, BitSet side) {
+        int[] heads = residual.heads();
+        int[] reverse = residual.reverse();
+
+        int[] edges = new int[16];
+        int count = 0;
+        long value = 0;
+        for (int i = 0; i < residual.getNumEdges(); i++) {
+            int forward = residual.getEdgeArc(i);
+            int capacity = residual.getEdgeCapacity(i);
+            if (capacity > 0 && side.get(heads[reverse[forward]]) && !side.get(heads[forward])) {
+                if (count == edges.length) {
+                    edges = Arrays.copyOf(edges, 2 * count);
+                }
+                edges[count++] = i;
+                value += capacity;
+            }
+        }
+        return new MinCut(side, Arrays.copyOf(edges, count), value);
+    }
+
+    /**
+     * @param residual A long-capacity residual network holding a maximum flow
+     * @param source The source the flow was computed from
+     * @return The minimum cut nearest to the source
+     */
+    public static MinCut fromResidual(LongResidualNetwork residual, int source) {
+        return withCutEdges(residual, sourceSide(residual.offsets(), residual.heads(), null, residual.capacities(),
+                null, source, new BfsWorkspace(residual.getNumNodes())));
+    }
+
+    // Cut edges and their total capacity for the given source side
+    private static MinCut withCutEdges(LongResidualNetwork residual, BitSet side) {
+        int[] heads = residual.heads();
+        int[] reverse = residual.reverse();
+        int[] edges = new int[16];
+        int count = 0;
+        long value = 0;
+        for (int i = 0; i < residual.getNumEdges(); i++) {
+            int forward = residual.getEdgeArc(i);
+            long capacity = residual.getEdgeCapacity(i);
+            if (capacity > 0 && side.get(heads[reverse[forward]]) && !side.get(heads[forward])) {
+                if (count == edges.length) {
+                    edges = Arrays.copyOf(edges, 2 * count);
+                }
+                edges[count++] = i;
+                value += capacity;
+            }
+        }
+        return new MinCut(side, Arrays.copyOf(edges, count), value);
+    }
+
+    /**
+     * Minimum cut of a maximum flow already written to the graph's edges, e.g. one mapped
+     * back by GraphReduction
+     *
+     * @param graph A graph whose edge flows form a maximum flow
+     * @param source The source the flow was computed from
+     * @return The minimum cut nearest to the source
+     */
+    public static MinCut fromFlows(Graph graph, int source) {
+        LongResidualNetwork residual = new LongResidualNetwork(graph);
+        int index = 0;
+        for (Edge edge : graph.getAllEdges()) {
+            residual.setEdgeFlow(index++, edge.getLongFlow());
+        }
+        return fromResidual(residual, source);
+    }
+
+    /**
+     * Minimum cut of a solve between source and sink sets, from a residual network built with
+     * ResidualNetwork(Graph, TerminalSet, TerminalSet) and searched from its virtual source
+     *
+     * @param sources The source set as given to the solver
+     * @param sinks The sink set as given to the solver
+     * @param supply The source set the network was built with, its limits tightened by TerminalSet.bounded
+     * @param demand The sink set the network was built with, its limits tightened by TerminalSet.bounded
+     */
+    static MinCut fromTerminalResidual(ResidualNetwork residual, TerminalSet sources, TerminalSet sinks,
+                                       TerminalSet supply, TerminalSet demand) {
+        int numNodes = residual.getNumNodes() - 2;
+        BitSet open = openTerminalArcs(residual.offsets(), residual.heads(), numNodes, sources, sinks, supply, demand);
+        BitSet side = sourceSide(residual.offsets(), residual.heads(), residual.capacities(), null, open, numNodes,
+                new BfsWorkspace(residual.getNumNodes()));
+        return withCutTerminals(withCutEdges(residual, side), numNodes, sources, sinks);
+    }
+
+    /**
+     * Minimum cut of a solve between source and sink sets on a long-capacity residual network
+     *
+     * @see #fromTerminalResidual(ResidualNetwork, TerminalSet, TerminalSet, TerminalSet, TerminalSet)
+     */
+    static MinCut fromTerminalResidual(LongResidualNetwork residual, TerminalSet sources, TerminalSet sinks,
+                                       TerminalSet supply, TerminalSet demand) {
+        int numNodes = residual.getNumNodes() - 2;
+        BitSet open = openTerminalArcs(residual.offsets(), residual.heads(), numNodes, sources, sinks, supply, demand);
+        BitSet side = sourceSide(residual.offsets(), residual.heads(), null, residual.capacities(), open, numNodes,
+                new BfsWorkspace(residual.getNumNodes()));
+        return withCutTerminals(withCutEdges(residual, side), numNodes, sources, sinks);
+    }
+
+    // Virtual arcs whose terminal limit exceeds the tightened one can never fill up in the
+    // network the sets describe, so the search passes them even when they are saturated here
+    private static BitSet openTerminalArcs(int[] offsets, int[] heads, int numNodes, TerminalSet sources,
+                                           TerminalSet sinks, TerminalSet supply, TerminalSet demand) {
+        BitSet open = new BitSet();
+        for (int i = 0; i < sources.size(); i++) {
+            if (sources.getLimit(i) > supply.getLimit(i)) {
+                open.set(findArc(offsets, heads, numNodes, sources.getNode(i)));
+            }
+        }
+        for (int i = 0; i < sinks.size(); i++) {
+            if (sinks.getLimit(i) > demand.getLimit(i)) {
+                open.set(findArc(offsets, heads, sinks.getNode(i), numNodes + 1));
+            }
+        }
+        return open;
+    }
+
+    private static int findArc(int[] offsets, int[] heads, int u, int v) {
+        for (int arc = offsets[u], end = offsets[u + 1]; arc < end; arc++) {
+            if (heads[arc] == v) {
+                return arc;
+            }
+        }
+        throw new IllegalArgumentException("No arc from " + u + " to " + v);
+    }
+
+    // Drop the virtual terminals from the source side and add the limited terminals that the
+    // cut separates from their virtual terminal
+    private static MinCut withCutTerminals(MinCut cut, int numNodes, TerminalSet sources, TerminalSet sinks) {
+        BitSet side = cut.sourceSide.get(0, numNodes);
+        long value = cut.value;
+        int[] cutSources = new int[sources.size()];
+        int numCutSources = 0;
+        for (int i = 0; i < sources.size(); i++) {
+            if (!side.get(sources.getNode(i))) {
+                cutSources[numCutSources++] = sources.getNode(i);
+                value += sources.getLimit(i);
+            }
+        }
+        int[] cutSinks = new int[sinks.size()];
+        int numCutSinks = 0;
+        for (int i = 0; i < sinks.size(); i++) {
+            if (side.get(sinks.getNode(i))) {
+                cutSinks[numCutSinks++] = sinks.getNode(i);
+                value += sinks.getLimit(i);
+            }
+        }
+        return new MinCut(side, cut.cutEdges, Arrays.copyOf(cutSources, numCutSources),
+                Arrays.copyOf(cutSinks, numCutSinks), value);
+    }
+
+    // Nodes reachable from the source through arcs with residual capacity
+    static BitSet sourceSide(ResidualNetwork residual, int source, BfsWorkspace bfs) {
+        return sourceSide(residual.offsets(), residual.heads(), residual.capacities(), null, null, source, bfs);
+    }
+
+    // Breadth-first search over the arcs with residual capacity in either the int or the long
+    // capacity array, and over the open arcs regardless of their capacity
+    private static BitSet sourceSide(int[] offsets, int[] heads, int[] capacities, long[] longCapacities,
+                                     BitSet open, int source, BfsWorkspace bfs) {
+        BitSet side = new BitSet(offsets.length - 1);
+        bfs.reset();
+        bfs.visit(source, -1);
+        while (!bfs.isQueueEmpty()) {
+            int u = bfs.poll();
+            side.set(u);
+            for (int arc = offsets[u], end = offsets[u + 1]; arc < end; arc++) {
+                boolean residual = capacities != null ? capacities[arc] > 0 : longCapacities[arc] > 0;
+                if ((residual || open != null && open.get(arc)) && !bfs.isVisited(heads[arc])) {
+                    bfs.visit(heads[arc], arc);
+                }
+            }
+        }
+        return side;
+    }
+
+    /**
+     * @return Whether the node is on the source side of the cut
+     */
+    public boolean isOnSourceSide(int node) {
+        return sourceSide.get(node);
+    }
+
+    /**
+     * @return A copy of the source-side node set
+     */
+    public BitSet getSourceSide() {
+        return (BitSet) sourceSide.clone();
+    }
+
+    /**
+     * @return Number of nodes on the source side
+     */
+    public int getSourceSideSize() {
+        return sourceSide.cardinality();
+    }
+
+    /**
+     * @return Positions of the cut edges in the graph's getAllEdges() order
+     */
+    public int[] getCutEdgeIndices() {
+        return cutEdges.clone();
+    }
+
+    /**
+     * @param graph The graph the flow was computed on
+     * @return The saturated edges crossing the cut
+     */
+    public List<Edge> getCutEdges(Graph graph) {
+        List<Edge> all = graph.getAllEdges();
+        List<Edge> edges = new ArrayList<>(cutEdges.length);
+        for (int index : cutEdges) {
+            edges.add(all.get(index));
+        }
+        return edges;
+    }
+
+    /**
+     * @return Limited sources that the cut separates from the supply, i.e. whose limit is
+     *         used up; empty unless the flow was computed from source and sink sets
+     */
+    public int[] getCutSources() {
+        return cutSources.clone();
+    }
+
+    /**
+     * @return Limited sinks on the source side of the cut, i.e. whose limit is used up; empty
+     *         unless the flow was computed from source and sink sets
+     */
+    public int[] getCutSinks() {
+        return cutSinks.clone();
+    }
+
+    /**
+     * @return The total capacity of the cut edges plus the limits of the cut sources and
+     *         sinks, equal to the maximum flow
+     */
+    public long getValue() {
+        return value;
+    }
+}
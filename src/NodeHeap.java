@@ -0,0 +1,114 @@
+import java.util.Arrays;
+
+/**
+ * Indexed binary min-heap of node ids keyed by long distances, for Dijkstra.
+ *
+ * Nodes live in one int array with their positions tracked in another, so decreaseKey runs
+ * in O(log V) without boxing or stale duplicate entries. The arrays are allocated once and
+ * reused by clear(), which only touches the nodes that were inserted.
+ */
+final class NodeHeap {
+    private final int[] heap;       // node ids in heap order
+    private final int[] position;   // index of each node in heap, -1 when absent
+    private final long[] keys;
+    private int size;
+
+    NodeHeap(int numNodes) {
+        this.heap = new int[numNodes];
+        this.position = new int[numNodes];
+        this.keys = new long[numNodes];
+        Arrays.fill(position, -1);
+    }
+
+    int getNumNodes() {
+        return position.length;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    boolean contains(int node) {
+        return position[node] >= 0;
+    }
+
+    /**
+     * Insert the node, or lower its key if it is already in the heap with a larger one
+     */
+    void insertOrDecrease(int node, long key) {
+        int index = position[node];
+        if (index < 0) {
+            index = size++;
+            heap[index] = node;
+            position[node] = index;
+        } else if (key >= keys[node]) {
+            return;
+        }
+        keys[node] = key;
+        siftUp(index);
+    }
+
+    /**
+     * Remove and return the node with the smallest key
+     */
+    int poll() {
+        int top = heap[0];
+        position[top] = -1;
+        int last = heap[--size];
+        if (size > 0) {
+            heap[0] = last;
+            position[last] = 0;
+            siftDown(0);
+        }
+        return top;
+    }
+
+    /**
+     * Remove every node left in the heap
+     */
+    void clear() {
+        for (int i = 0; i < size; i++) {
+            position[heap[i]] = -1;
+        }
+        size = 0;
+    }
+
+    private void siftUp(int index) {
+        int node = heap[index];
+        long key = keys[node];
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            int other = heap[parent];
+            if (keys[other] <= key) {
+                break;
+            }
+            heap[index] = other;
+            position[other] = index;
+            index = parent;
+        }
+        heap[index] = node;
+        position[node] = index;
+    }
+
+    private void siftDown(int index) {
+        int node = heap[index];
+        long key = keys[node];
+        int half = size >>> 1;
+        while (index < half) {
+            int child = 2 * index + 1;
+            int right = child + 1;
+            if (right < size && keys[heap[right]] < keys[heap[child]]) {
+                child = right;
+            }
+            int other = heap[child];
+            if (key <= keys[other]) {
+                break;
+            }
+            heap[index] = other;
+            position[other] = index;
+            index = child;
+        }
+        heap[index] = node;
+        position[node] = index;
+    }
+}
@@ -0,0 +1,329 @@
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Multi-threaded variant of Parser.parseFileMapped for large edge lists.
+ *
+ * The header is read on the calling thread; the edge section is then split into byte ranges
+ * that end just after a newline, so no line spans two ranges. Each range is memory-mapped
+ * and tokenized by a pool worker into its own primitive buffers, and the buffers are copied
+ * into the final EdgeList in parallel at offsets given by the edge counts of the ranges
+ * before them. Edges keep their file order.
+ *
+ * A worker does not know how many lines precede its range, so it only records that its range
+ * is invalid. The first invalid range in file order is then parsed again on the calling thread
+ * starting from its true line number, which reports the same error, with the same line, as
+ * the sequential parsers.
+ */
+public class ParallelParser {
+    // Ranges per pool thread, so that uneven ranges still keep every worker busy
+    private static final int RANGES_PER_THREAD = 4;
+    private static final long MIN_RANGE_SIZE = 1L << 20;
+    // Largest range; a range is mapped as a single buffer
+    private static final long MAX_RANGE_SIZE = 1L << 30;
+    // Bytes scanned at a time when moving a range boundary to the next newline
+    private static final int PROBE_SIZE = 1 << 16;
+
+    /**
+     * Parse an input file on the common ForkJoinPool
+     *
+     * @see #parse(String, ForkJoinPool)
+     */
+    public static EdgeList parse(String filePath) throws IOException {
+        return parse(filePath, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Parse an input file into primitive edge arrays using the threads of the given pool.
+     * Accepts the same format and reports the same errors as Parser.parseFileMapped.
+     *
+     * @param filePath path to the input file
+     * @param pool The pool that parses the byte ranges
+     * @return EdgeList containing the edges in file order and the optional source/sink nodes
+     * @throws IOException if file cannot be read or is malformed
+     */
+    public static EdgeList parse(String filePath, ForkJoinPool pool) throws IOException {
+        if (pool == null) {
+            throw new IllegalArgumentException("Pool cannot be null");
+        }
+        Path path = Paths.get(filePath);
+        if (!Files.exists(path)) {
+            throw new IOException("File does not exist: " + filePath);
+        }
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size == 0) {
+                throw new IOException("Empty file");
+            }
+
+            Header header = readHeader(channel, size);
+            long[] bounds = splitRanges(channel, header, size, pool.getParallelism());
+            int numRanges = bounds.length - 1;
+
+            List<Future<Range>> parsing = new ArrayList<>(numRanges);
+            for (int i = 0; i < numRanges; i++) {
+                long from = bounds[i];
+                long to = bounds[i + 1];
+                parsing.add(pool.submit(() -> parseRange(channel, from, to, header.numNodes)));
+            }
+            Range[] ranges = new Range[numRanges];
+            for (int i = 0; i < numRanges; i++) {
+                ranges[i] = await(parsing.get(i));
+            }
+
+            // Edge offsets of the ranges, and the first invalid range with its true line numbers
+            long lineNumber = header.lines;
+            long[] firstEdge = new long[numRanges + 1];
+            for (int i = 0; i < numRanges; i++) {
+                Range range = ranges[i];
+                if (!range.valid) {
+                    Range failed = new Range(header.numNodes, 0);
+                    failed.parse(channel, bounds[i], bounds[i + 1], (int) lineNumber);
+                    throw new IllegalStateException("Range " + i + " parsed without error on the second attempt");
+                }
+                lineNumber += range.lines;
+                firstEdge[i + 1] = firstEdge[i] + range.size;
+            }
+            if (firstEdge[numRanges] > Integer.MAX_VALUE - 8) {
+                throw new IOException("Too many edges: " + firstEdge[numRanges]);
+            }
+
+            // Merge the thread-local buffers, one copy task per range
+            int numEdges = (int) firstEdge[numRanges];
+            int[] sources = new int[numEdges];
+            int[] destinations = new int[numEdges];
+            int[] capacities = new int[numEdges];
+            boolean withCosts = false;
+            for (Range range : ranges) {
+                withCosts |= range.costs != null;
+            }
+            int[] costs = withCosts ? new int[numEdges] : null;
+            List<Future<?>> copies = new ArrayList<>(numRanges);
+            for (int i = 0; i < numRanges; i++) {
+                Range range = ranges[i];
+                int offset = (int) firstEdge[i];
+                ranges[i] = null;
+                copies.add(pool.submit(() -> {
+                    System.arraycopy(range.sources, 0, sources, offset, range.size);
+                    System.arraycopy(range.destinations, 0, destinations, offset, range.size);
+                    System.arraycopy(range.capacities, 0, capacities, offset, range.size);
+                    if (range.costs != null) {
+                        System.arraycopy(range.costs, 0, costs, offset, range.size);
+                    }
+                }));
+            }
+            for (Future<?> copy : copies) {
+                await(copy);
+            }
+
+            EdgeList edges = new EdgeList(header.numNodes, sources, destinations, capacities, costs, numEdges);
+            if (header.terminals != null) {
+                edges.setTerminals(header.terminals[0], header.terminals[1]);
+            } else {
+                edges.setSourceSink(header.source, header.sink);
+            }
+            return edges;
+        }
+    }
+
+    // Read the optional "source sink" line and the number of nodes, as parseFileMapped does
+    private static Header readHeader(FileChannel channel, long size) throws IOException {
+        int length = (int) Math.min(MAX_RANGE_SIZE, size);
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+        ByteLineTokenizer tokenizer = new ByteLineTokenizer();
+        tokenizer.reset(buffer, 0, length);
+        Header header = new Header();
+        boolean sourceSinkLine = false;
+
+        while (tokenizer.nextLine()) {
+            header.lines++;
+            if (header.lines == 1 && tokenizer.tokenCount() == 2 && tokenizer.isValid()) {
+                header.source = tokenizer.value(0);
+                header.sink = tokenizer.value(1);
+                sourceSinkLine = true;
+                continue;
+            }
+            if (header.lines == 1 && tokenizer.tokenCount() == 2) {
+                header.terminals = Parser.parseTerminalLine(tokenizer.lineText(), header.lines);
+                if (header.terminals != null) {
+                    sourceSinkLine = true;
+                    continue;
+                }
+            }
+            if (tokenizer.tokenCount() != 1 || !tokenizer.isValid()) {
+                throw new IOException("Invalid format for number of nodes: " + tokenizer.lineText());
+            }
+            header.numNodes = tokenizer.value(0);
+            if (header.numNodes <= 0) {
+                throw new IOException("Invalid number of nodes: must be positive");
+            }
+            header.end = tokenizer.position();
+            return header;
+        }
+        throw new IOException(sourceSinkLine ? "Incomplete file" : "Empty file");
+    }
+
+    // Cut the edge section into ranges of roughly equal size, each ending just after a newline
+    private static long[] splitRanges(FileChannel channel, Header header, long size, int parallelism)
+            throws IOException {
+        long body = size - header.end;
+        long target = body / ((long) Math.max(1, parallelism) * RANGES_PER_THREAD);
+        target = Math.max(MIN_RANGE_SIZE, Math.min(MAX_RANGE_SIZE / 2, target));
+
+        long[] bounds = new long[16];
+        int count = 0;
+        bounds[count++] = header.end;
+        long start = header.end;
+        while (start < size) {
+            long end = start + target >= size ? size : nextLineStart(channel, start + target, size);
+            if (end - start > MAX_RANGE_SIZE) {
+                throw new IOException("Line too long at line " + (header.lines + countLines(channel, header.end, start) + 1));
+            }
+            if (count == bounds.length) {
+                bounds = Arrays.copyOf(bounds, 2 * count);
+            }
+            bounds[count++] = end;
+            start = end;
+        }
+        return Arrays.copyOf(bounds, count);
+    }
+
+    // Position just after the first newline at or after the given position, or the file size
+    private static long nextLineStart(FileChannel channel, long position, long size) throws IOException {
+        while (position < size) {
+            int length = (int) Math.min(PROBE_SIZE, size - position);
+            MappedByteBuffer probe = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+            for (int i = 0; i < length; i++) {
+                if (probe.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += length;
+        }
+        return size;
+    }
+
+    // Number of newlines in [from, to); only used to number an overlong line in its error
+    private static long countLines(FileChannel channel, long from, long to) throws IOException {
+        long lines = 0;
+        while (from < to) {
+            int length = (int) Math.min(MAX_RANGE_SIZE, to - from);
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, from, length);
+            for (int i = 0; i < length; i++) {
+                if (buffer.get(i) == '\n') {
+                    lines++;
+                }
+            }
+            from += length;
+        }
+        return lines;
+    }
+
+    // Worker task: parse one range into its own buffers, noting rather than reporting errors
+    private static Range parseRange(FileChannel channel, long from, long to, int numNodes) throws IOException {
+        Range range = new Range(numNodes, (int) ((to - from) / 16 + 1));
+        try {
+            range.parse(channel, from, to, 0);
+        } catch (IOException e) {
+            range.valid = false;
+        }
+        return range;
+    }
+
+    private static <T> T await(Future<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while parsing", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    private static class Header {
+        int source = -1;
+        int sink = -1;
+        TerminalSet[] terminals; // source and sink sets, if the header lists them
+        int numNodes;
+        int lines;  // lines before the edge section
+        long end;   // byte offset of the edge section
+    }
+
+    // Thread-local edge buffers of one byte range
+    private static class Range {
+        final int numNodes;
+        int[] sources;
+        int[] destinations;
+        int[] capacities;
+        int[] costs;    // allocated by the first edge with a non-zero cost
+        int size;
+        int lines;
+        boolean valid = true;
+
+        Range(int numNodes, int expectedEdges) {
+            this.numNodes = numNodes;
+            this.sources = new int[expectedEdges];
+            this.destinations = new int[expectedEdges];
+            this.capacities = new int[expectedEdges];
+        }
+
+        // Tokenize the bytes [from, to), numbering lines after the given line
+        void parse(FileChannel channel, long from, long to, int lineNumber) throws IOException {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, from, to - from);
+            ByteLineTokenizer tokenizer = new ByteLineTokenizer();
+            tokenizer.reset(buffer, 0, (int) (to - from));
+
+            while (tokenizer.nextLine()) {
+                lineNumber++;
+                lines++;
+                // Skip empty lines
+                if (tokenizer.tokenCount() == 0) {
+                    continue;
+                }
+                Parser.checkEdge(tokenizer, numNodes, lineNumber);
+                if (size == sources.length) {
+                    int grown = Math.max(size + 1, size + (size >> 1));
+                    sources = Arrays.copyOf(sources, grown);
+                    destinations = Arrays.copyOf(destinations, grown);
+                    capacities = Arrays.copyOf(capacities, grown);
+                    if (costs != null) {
+                        costs = Arrays.copyOf(costs, grown);
+                    }
+                }
+                sources[size] = tokenizer.value(0);
+                destinations[size] = tokenizer.value(1);
+                capacities[size] = tokenizer.value(2);
+                if (tokenizer.tokenCount() == 4 && tokenizer.value(3) != 0) {
+                    if (costs == null) {
+                        costs = new int[sources.length];
+                    }
+                    costs[size] = tokenizer.value(3);
+                }
+                size++;
+            }
+        }
+    }
+}
@@ -0,0 +1,364 @@
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Multi-threaded synchronous push-relabel running on a ForkJoinPool.
+ *
+ * Every round processes all active nodes concurrently in two parallel sweeps:
+ * <ol>
+ *   <li>push: each active node pushes its excess along admissible arcs. Heights are frozen
+ *       during the sweep, so an arc and its reverse are never both admissible and each arc
+ *       pair is written by one thread only; excess is updated with atomic adds.</li>
+ *   <li>relabel: nodes left with excess and no admissible arc compute their new height from
+ *       the frozen heights, which are then committed together.</li>
+ * </ol>
+ * Nodes that gain excess are collected into the next round's active list through a
+ * lock-free append. Exact heights are restored periodically by a parallel, level-synchronous
+ * global relabel. As in PushRelabelAlgorithm, heights go up to 2V so the result is a flow.
+ */
+public class ParallelPushRelabelAlgorithm implements MaxFlowAlgorithm {
+    // Global relabelling is triggered once relabel work exceeds ALPHA * V + E
+    private static final int ALPHA = 6;
+    // Ranges smaller than this are processed by a single task
+    private static final int GRAIN = 256;
+
+    private final ForkJoinPool pool;
+
+    private ResidualNetwork residual;
+    private int numNodes;
+    private int source;
+    private int sink;
+    private int[] height;
+    private int[] newHeight;
+    private AtomicLongArray excess;
+    private AtomicIntegerArray activeRound; // round in which a node was last queued
+    private AtomicIntegerArray bfsStamp;    // global relabel in which a node was last reached
+    private int[] active;
+    private int[] nextActive;
+    private AtomicInteger nextSize;
+    private int round;
+    private int globalRelabels;
+    private final AtomicLong pushes = new AtomicLong();
+    private final AtomicLong relabels = new AtomicLong();
+    private final AtomicLong relabelWork = new AtomicLong();
+    private long nodesScanned;
+    private final AtomicLong arcsScanned = new AtomicLong();
+
+    /**
+     * Creates an engine that runs on the common ForkJoinPool
+     */
+    public ParallelPushRelabelAlgorithm() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param pool The pool whose workers process the active nodes
+     */
+    public ParallelPushRelabelAlgorithm(ForkJoinPool pool) {
+        if (pool == null) {
+            throw new IllegalArgumentException("Pool cannot be null");
+        }
+        this.pool = pool;
+    }
+
+    @Override
+    public String getName() {
+        return "parallel-push-relabel";
+    }
+
+    public ForkJoinPool getPool() {
+        return pool;
+    }
+
+    @Override
+    public long computeMaxFlow(ResidualNetwork residual, int source, int sink, FlowTracer tracer) {
+        this.residual = residual;
+        this.source = source;
+        this.sink = sink;
+        allocate(residual.getNumNodes());
+        int[] offsets = residual.offsets();
+        int[] heads = residual.heads();
+        int[] capacities = residual.capacities();
+        int[] reverse = residual.reverse();
+
+        tracer.onStart("parallel push-relabel", source, sink);
+        if (tracer.isEnabled()) {
+            tracer.onMessage("Running with parallelism " + pool.getParallelism());
+        }
+
+        pushes.set(0);
+        relabels.set(0);
+        relabelWork.set(0);
+        globalRelabels = 0;
+        round = 0;
+        nodesScanned = 0;
+        arcsScanned.set(0);
+
+        // Saturate every arc leaving the source
+        for (int arc = offsets[source], end = offsets[source + 1]; arc < end; arc++) {
+            int amount = capacities[arc];
+            if (amount > 0) {
+                capacities[arc] = 0;
+                capacities[reverse[arc]] += amount;
+                excess.addAndGet(heads[arc], amount);
+                excess.addAndGet(source, -amount);
+            }
+        }
+
+        globalRelabel();
+        int activeCount = collectActive();
+        long workLimit = (long) ALPHA * numNodes + residual.getNumArcs();
+
+        while (activeCount > 0) {
+            round++;
+            nextSize.set(0);
+            final int count = activeCount;
+
+            parallelFor(count, this::pushRange);
+            parallelFor(count, this::relabelRange);
+            parallelFor(count, this::commitRange);
+
+            int[] swap = active;
+            active = nextActive;
+            nextActive = swap;
+            activeCount = nextSize.get();
+
+            if (relabelWork.get() > workLimit) {
+                globalRelabel();
+                activeCount = collectActive();
+                relabelWork.set(0);
+            }
+        }
+
+        if (tracer.isEnabled()) {
+            tracer.onMessage("Completed " + round + " rounds with " + pushes.get() + " pushes, " + relabels.get()
+                    + " relabels and " + globalRelabels + " global relabels");
+            tracer.onMessage("Increased max flow to: " + excess.get(sink));
+        }
+
+        return excess.get(sink);
+    }
+
+    @Override
+    public void collectStats(SolveStats stats) {
+        stats.phases = round;
+        stats.pushes = pushes.get();
+        stats.relabels = relabels.get();
+        stats.globalRelabels = globalRelabels;
+        stats.nodesScanned = nodesScanned;
+        stats.arcsScanned = arcsScanned.get();
+    }
+
+    private void allocate(int n) {
+        if (height == null || numNodes != n) {
+            numNodes = n;
+            height = new int[n];
+            newHeight = new int[n];
+            active = new int[n];
+            nextActive = new int[n];
+        }
+        // Atomic arrays cannot be cleared in bulk, so they are recreated for every solve
+        excess = new AtomicLongArray(n);
+        activeRound = new AtomicIntegerArray(n);
+        bfsStamp = new AtomicIntegerArray(n);
+        nextSize = new AtomicInteger();
+    }
+
+    // Sweep 1: push the excess of each active node along admissible arcs
+    private void pushRange(int from, int to) {
+        int[] offsets = residual.offsets();
+        int[] heads = residual.heads();
+        int[] capacities = residual.capacities();
+        int[] reverse = residual.reverse();
+        long localPushes = 0;
+
+        for (int i = from; i < to; i++) {
+            int v = active[i];
+            long remaining = excess.get(v);
+            int hv = height[v];
+            for (int arc = offsets[v], end = offsets[v + 1]; arc < end && remaining > 0; arc++) {
+                int w = heads[arc];
+                if (height[w] + 1 == hv && capacities[arc] > 0) {
+                    int amount = (int) Math.min(remaining, capacities[arc]);
+                    capacities[arc] -= amount;
+                    capacities[reverse[arc]] += amount;
+                    remaining -= amount;
+                    excess.addAndGet(v, -amount);
+                    excess.addAndGet(w, amount);
+                    if (w != source && w != sink) {
+                        enqueue(w);
+                    }
+                    localPushes++;
+                }
+            }
+        }
+        pushes.addAndGet(localPushes);
+    }
+
+    // Sweep 2: nodes that still hold excess and have no admissible arc pick a new height
+    private void relabelRange(int from, int to) {
+        int[] offsets = residual.offsets();
+        int[] heads = residual.heads();
+        int[] capacities = residual.capacities();
+        long localRelabels = 0;
+        long localWork = 0;
+
+        for (int i = from; i < to; i++) {
+            int v = active[i];
+            int hv = height[v];
+            newHeight[v] = hv;
+            if (excess.get(v) == 0) {
+                continue;
+            }
+            int lowest = 2 * numNodes;
+            boolean admissible = false;
+            for (int arc = offsets[v], end = offsets[v + 1]; arc < end; arc++) {
+                if (capacities[arc] > 0) {
+                    int hw = height[heads[arc]];
+                    if (hw + 1 == hv) {
+                        admissible = true;
+                        break;
+                    }
+                    lowest = Math.min(lowest, hw + 1);
+                }
+            }
+            if (!admissible) {
+                newHeight[v] = lowest;
+                localRelabels++;
+                localWork += offsets[v + 1] - offsets[v] + 12;
+            }
+        }
+        relabels.addAndGet(localRelabels);
+        relabelWork.addAndGet(localWork);
+    }
+
+    // Sweep 3: commit the new heights and keep nodes with excess active
+    private void commitRange(int from, int to) {
+        for (int i = from; i < to; i++) {
+            int v = active[i];
+            height[v] = newHeight[v];
+            if (excess.get(v) > 0) {
+                enqueue(v);
+            }
+        }
+    }
+
+    // Lock-free append to the next round's active list, at most once per round
+    private void enqueue(int v) {
+        if (activeRound.get(v) != round && activeRound.getAndSet(v, round) != round) {
+            nextActive[nextSize.getAndIncrement()] = v;
+        }
+    }
+
+    // Rebuild the active list from scratch after a global relabel
+    private int collectActive() {
+        int count = 0;
+        for (int v = 0; v < numNodes; v++) {
+            if (v != source && v != sink && excess.get(v) > 0 && height[v] < 2 * numNodes) {
+                active[count++] = v;
+                activeRound.set(v, round);
+            }
+        }
+        return count;
+    }
+
+    // Recompute exact heights: distance to the sink, or V plus the distance to the source
+    private void globalRelabel() {
+        globalRelabels++;
+        Arrays.fill(height, 2 * numNodes);
+        height[sink] = 0;
+        bfsStamp.set(sink, globalRelabels);
+        // Keep the source out of the sink search, it is labelled V below
+        bfsStamp.set(source, globalRelabels);
+        reverseBfs(sink);
+        height[source] = numNodes;
+        reverseBfs(source);
+    }
+
+    // Level-synchronous BFS over reverse residual arcs; each level is expanded in parallel
+    private void reverseBfs(int root) {
+        int[] frontier = active;
+        int[] next = nextActive;
+        frontier[0] = root;
+        int frontierSize = 1;
+
+        while (frontierSize > 0) {
+            nodesScanned += frontierSize;
+            nextSize.set(0);
+            final int[] current = frontier;
+            final int[] discovered = next;
+            parallelFor(frontierSize, (from, to) -> expandLevel(current, discovered, from, to));
+            frontierSize = nextSize.get();
+            int[] swap = frontier;
+            frontier = next;
+            next = swap;
+        }
+    }
+
+    private void expandLevel(int[] frontier, int[] discovered, int from, int to) {
+        int[] offsets = residual.offsets();
+        int[] heads = residual.heads();
+        int[] capacities = residual.capacities();
+        int[] reverse = residual.reverse();
+        int stamp = globalRelabels;
+        long localArcs = 0;
+
+        for (int i = from; i < to; i++) {
+            int u = frontier[i];
+            int hu = height[u];
+            localArcs += offsets[u + 1] - offsets[u];
+            for (int arc = offsets[u], end = offsets[u + 1]; arc < end; arc++) {
+                int w = heads[arc];
+                // The arc w->u is the reverse of u->w; claim w with a CAS so one thread labels it
+                if (capacities[reverse[arc]] > 0 && bfsStamp.get(w) != stamp
+                        && bfsStamp.getAndSet(w, stamp) != stamp) {
+                    height[w] = hu + 1;
+                    discovered[nextSize.getAndIncrement()] = w;
+                }
+            }
+        }
+        arcsScanned.addAndGet(localArcs);
+    }
+
+    private interface RangeBody {
+        void run(int from, int to);
+    }
+
+    // Run body over [0, count), splitting the range across the pool when it is large enough
+    private void parallelFor(int count, RangeBody body) {
+        if (count <= GRAIN || pool.getParallelism() == 1) {
+            body.run(0, count);
+        } else {
+            pool.invoke(new RangeTask(body, 0, count));
+        }
+    }
+
+    private static final class RangeTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final RangeBody body;
+        private final int from;
+        private final int to;
+
+        RangeTask(RangeBody body, int from, int to) {
+            this.body = body;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= GRAIN) {
+                body.run(from, to);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new RangeTask(body, from, mid), new RangeTask(body, mid, to));
+        }
+    }
+}
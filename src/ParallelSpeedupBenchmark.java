@@ -0,0 +1,67 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Speedup report for ParallelPushRelabelAlgorithm.
+ *
+ * Solves the same generated network with 1, 2, 4, 8 and 16 worker threads and prints the
+ * best wall time of several runs next to the speedup over one thread. The sequential
+ * PushRelabelAlgorithm is timed as well and every run must agree on the flow value.
+ *
+ * Usage: java ParallelSpeedupBenchmark [nodes] [edges] [runs]
+ */
+public class ParallelSpeedupBenchmark {
+    private static final int[] THREAD_COUNTS = {1, 2, 4, 8, 16};
+
+    public static void main(String[] args) {
+        int numNodes = args.length > 0 ? Integer.parseInt(args[0]) : 250_000;
+        int numEdges = args.length > 1 ? Integer.parseInt(args[1]) : 1_000_000;
+        int runs = args.length > 2 ? Integer.parseInt(args[2]) : 3;
+
+        System.out.println("==== Parallel push-relabel speedup ====");
+        System.out.println("Generating random sparse graph with " + numNodes + " nodes and " + numEdges + " edges");
+        Graph graph = GraphGenerator.randomSparse(numNodes, numEdges, 1000, 42);
+        int source = 0;
+        int sink = numNodes - 1;
+        System.out.println("Available processors: " + Runtime.getRuntime().availableProcessors());
+
+        long sequentialMillis = Long.MAX_VALUE;
+        long expectedFlow = 0;
+        for (int run = 0; run < runs; run++) {
+            long start = System.nanoTime();
+            expectedFlow = new MaxFlowSolver(graph, new PushRelabelAlgorithm()).findMaxFlowLong(source, sink);
+            sequentialMillis = Math.min(sequentialMillis, (System.nanoTime() - start) / 1_000_000);
+        }
+        System.out.println("Sequential push-relabel: flow = " + expectedFlow + ", best time = " + sequentialMillis + " ms");
+
+        System.out.println();
+        System.out.println(String.format("%8s %12s %10s", "threads", "best ms", "speedup"));
+        long baseMillis = -1;
+        List<String> mismatches = new ArrayList<>();
+        for (int threads : THREAD_COUNTS) {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            try {
+                long best = Long.MAX_VALUE;
+                for (int run = 0; run < runs; run++) {
+                    long start = System.nanoTime();
+                    long flow = new MaxFlowSolver(graph, new ParallelPushRelabelAlgorithm(pool)).findMaxFlowLong(source, sink);
+                    best = Math.min(best, (System.nanoTime() - start) / 1_000_000);
+                    if (flow != expectedFlow) {
+                        mismatches.add(threads + " threads returned " + flow);
+                    }
+                }
+                if (baseMillis < 0) {
+                    baseMillis = best;
+                }
+                System.out.println(String.format("%8d %12d %9.2fx", threads, best, (double) baseMillis / Math.max(1, best)));
+            } finally {
+                pool.shutdown();
+            }
+        }
+
+        if (!mismatches.isEmpty()) {
+            System.err.println("Flow mismatch against sequential push-relabel: " + mismatches);
+        }
+    }
+}
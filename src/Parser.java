@@ -1,11 +1,16 @@
 import java.io.BufferedReader;
 import java.io.FileReader;
 import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 
 public class Parser {
+    // Largest region mapped at once; files above this are mapped in newline-aligned windows
+    private static final long MAP_WINDOW = 1L << 30;
 
     /**
      * Parse an input file and create a flow network Graph with optional source and sink
@@ -33,8 +38,16 @@ public class Parser {
             int sourceNode = -1;
             int sinkNode = -1;
             int lineToParseForNumNodes = 1;
+            TerminalSet[] terminals = parseTerminalLine(firstLine, 1);
 
-            if (parts.length == 2) {
+            if (terminals != null) {
+                // First line lists source and sink sets
+                firstLine = reader.readLine();
+                if (firstLine == null) {
+                    throw new IOException("Incomplete file");
+                }
+                lineToParseForNumNodes = 2;
+            } else if (parts.length == 2) {
                 // First line contains source and sink
                 try {
                     sourceNode = Integer.parseInt(parts[0]);
@@ -77,15 +90,16 @@ public class Parser {
                 }
 
                 String[] edgeParts = line.trim().split("\\s+");
-                if (edgeParts.length != 3) {
+                if (edgeParts.length != 3 && edgeParts.length != 4) {
                     throw new IOException("Invalid edge format at line " + lineNumber + 
-                                         ". Expected 'source destination capacity'");
+                                         ". Expected 'source destination capacity [cost]'");
                 }
 
                 try {
                     int source = Integer.parseInt(edgeParts[0]);
                     int destination = Integer.parseInt(edgeParts[1]);
-                    int capacity = Integer.parseInt(edgeParts[2]);
+                    long capacity = Long.parseLong(edgeParts[2]); // may exceed the int range
+                    int cost = edgeParts.length == 4 ? Integer.parseInt(edgeParts[3]) : 0;
                     
                     // Validate node indices
                     if (source < 0 || source >= numNodes) {
@@ -99,8 +113,15 @@ public class Parser {
                     if (capacity < 0) {
                         throw new IOException("Negative capacity at line " + lineNumber + ": " + capacity);
                     }
+                    if (cost < 0) {
+                        throw new IOException("Negative cost at line " + lineNumber + ": " + cost);
+                    }
                     
-                    graph.addEdge(source, destination, capacity);
+                    if (cost == 0) {
+                        graph.addEdge(source, destination, capacity);
+                    } else {
+                        graph.addEdge(source, destination, capacity, cost);
+                    }
                 } catch (NumberFormatException e) {
                     throw new IOException("Invalid number format at line " + lineNumber + ": " + line);
                 }
@@ -109,8 +130,203 @@ public class Parser {
             }
 
             // Then return a structure that includes source and sink if provided
+            if (terminals != null) {
+                return new GraphWithSourceSink(graph, terminals[0], terminals[1]);
+            }
             GraphWithSourceSink result = new GraphWithSourceSink(graph, sourceNode, sinkNode);
             return result; // Return just the graph
         }
     }
+
+    /**
+     * Parse an input file into primitive edge arrays by memory-mapping it and tokenizing the
+     * integers straight from the bytes. Accepts the same format and reports the same errors
+     * as parseFile, but never creates per-line Strings or Edge objects.
+     *
+     * @param filePath path to the input file
+     * @return EdgeList containing the edges and optional source/sink nodes
+     * @throws IOException if file cannot be read or is malformed
+     */
+    public static EdgeList parseFileMapped(String filePath) throws IOException {
+        // Verify file exists
+        Path path = Paths.get(filePath);
+        if (!Files.exists(path)) {
+            throw new IOException("File does not exist: " + filePath);
+        }
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size == 0) {
+                throw new IOException("Empty file");
+            }
+
+            ByteLineTokenizer tokenizer = new ByteLineTokenizer();
+            EdgeList edges = null;
+            int sourceNode = -1;
+            int sinkNode = -1;
+            TerminalSet[] terminals = null;
+            int lineNumber = 0;
+            boolean sourceSinkLine = false;
+            long start = 0;
+
+            while (start < size) {
+                long length = Math.min(MAP_WINDOW, size - start);
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+                int limit = (int) length;
+                if (start + length < size) {
+                    // Cut the window after its last newline so no line spans two windows
+                    while (limit > 0 && buffer.get(limit - 1) != '\n') {
+                        limit--;
+                    }
+                    if (limit == 0) {
+                        throw new IOException("Line too long at line " + (lineNumber + 1));
+                    }
+                }
+                tokenizer.reset(buffer, 0, limit);
+
+                while (tokenizer.nextLine()) {
+                    lineNumber++;
+
+                    if (edges == null) {
+                        // Header: an optional "source sink" line followed by the number of nodes
+                        if (lineNumber == 1 && tokenizer.tokenCount() == 2 && tokenizer.isValid()) {
+                            sourceNode = tokenizer.value(0);
+                            sinkNode = tokenizer.value(1);
+                            sourceSinkLine = true;
+                            continue;
+                        }
+                        if (lineNumber == 1 && tokenizer.tokenCount() == 2) {
+                            terminals = parseTerminalLine(tokenizer.lineText(), lineNumber);
+                            if (terminals != null) {
+                                sourceSinkLine = true;
+                                continue;
+                            }
+                        }
+                        if (tokenizer.tokenCount() != 1 || !tokenizer.isValid()) {
+                            throw new IOException("Invalid format for number of nodes: " + tokenizer.lineText());
+                        }
+                        int numNodes = tokenizer.value(0);
+                        if (numNodes <= 0) {
+                            throw new IOException("Invalid number of nodes: must be positive");
+                        }
+                        // Size the arrays from the file length, assuming roughly 16 bytes per edge line
+                        edges = new EdgeList(numNodes, (int) Math.min(Integer.MAX_VALUE - 8, size / 16 + 1));
+                        continue;
+                    }
+
+                    // Skip empty lines
+                    if (tokenizer.tokenCount() == 0) {
+                        continue;
+                    }
+                    addEdge(edges, tokenizer, lineNumber);
+                }
+                start += limit;
+            }
+
+            if (edges == null) {
+                throw new IOException(sourceSinkLine ? "Incomplete file" : "Empty file");
+            }
+            if (terminals != null) {
+                edges.setTerminals(terminals[0], terminals[1]);
+            } else {
+                edges.setSourceSink(sourceNode, sinkNode);
+            }
+            return edges;
+        }
+    }
+
+    /**
+     * Parse a header line listing source and sink sets, e.g. "0,1:50 7,8" (see TerminalSet)
+     *
+     * @return The source and sink sets, or null if the line does not use the set syntax
+     * @throws IOException if the line uses the set syntax but is malformed
+     */
+    static TerminalSet[] parseTerminalLine(String line, int lineNumber) throws IOException {
+        String[] parts = line.trim().split("\\s+");
+        if (parts.length != 2 || !(TerminalSet.isList(parts[0]) || TerminalSet.isList(parts[1]))) {
+            return null;
+        }
+        try {
+            return new TerminalSet[] { TerminalSet.parse(parts[0]), TerminalSet.parse(parts[1]) };
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Invalid source and sink sets at line " + lineNumber + ": " + e.getMessage());
+        }
+    }
+
+    // Validate one tokenized edge line and append it
+    private static void addEdge(EdgeList edges, ByteLineTokenizer tokenizer, int lineNumber) throws IOException {
+        checkEdge(tokenizer, edges.getNumNodes(), lineNumber);
+        if (tokenizer.tokenCount() == 4) {
+            edges.addEdge(tokenizer.value(0), tokenizer.value(1), tokenizer.value(2), tokenizer.value(3));
+        } else {
+            edges.addEdge(tokenizer.value(0), tokenizer.value(1), tokenizer.value(2));
+        }
+    }
+
+    /**
+     * Validate the edge line held by the tokenizer, with the same messages as parseFile.
+     * The optional fourth value is the edge cost.
+     */
+    static void checkEdge(ByteLineTokenizer tokenizer, int numNodes, int lineNumber) throws IOException {
+        if (tokenizer.tokenCount() != 3 && tokenizer.tokenCount() != 4) {
+            throw new IOException("Invalid edge format at line " + lineNumber +
+                                 ". Expected 'source destination capacity [cost]'");
+        }
+
+        int source;
+        int destination;
+        long capacity;
+        if (tokenizer.isValid()) {
+            source = tokenizer.value(0);
+            destination = tokenizer.value(1);
+            capacity = tokenizer.value(2);
+        } else {
+            // Only on the error path: read the line as parseFile does to tell a capacity beyond
+            // the int range from a malformed number
+            String line = tokenizer.lineText();
+            String[] tokens = line.trim().split("[\\x00-\\x20]+");
+            try {
+                source = Integer.parseInt(tokens[0]);
+                destination = Integer.parseInt(tokens[1]);
+                capacity = Long.parseLong(tokens[2]);
+                if (tokens.length == 4) {
+                    Integer.parseInt(tokens[3]);
+                }
+            } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+                throw new IOException("Invalid number format at line " + lineNumber + ": " + line);
+            }
+        }
+
+        // Validate node indices
+        if (source < 0 || source >= numNodes) {
+            throw new IOException("Invalid source node at line " + lineNumber +
+                                 ": " + source + " (must be between 0 and " + (numNodes-1) + ")");
+        }
+        if (destination < 0 || destination >= numNodes) {
+            throw new IOException("Invalid destination node at line " + lineNumber +
+                                 ": " + destination + " (must be between 0 and " + (numNodes-1) + ")");
+        }
+        if (capacity < 0) {
+            throw new IOException("Negative capacity at line " + lineNumber + ": " + capacity);
+        }
+        if (capacity > Integer.MAX_VALUE) {
+            throw new IntCapacityException(lineNumber, capacity);
+        }
+        if (tokenizer.tokenCount() == 4 && tokenizer.value(3) < 0) {
+            throw new IOException("Negative cost at line " + lineNumber + ": " + tokenizer.value(3));
+        }
+    }
+
+    /**
+     * A capacity that parseFile accepts but that does not fit the int arrays of the
+     * memory-mapped, parallel and streaming loaders
+     */
+    static final class IntCapacityException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        IntCapacityException(int lineNumber, long capacity) {
+            super("Capacity above the int range at line " + lineNumber + ": " + capacity
+                    + "; this loader is int-only, use the default parser");
+        }
+    }
 }
@@ -0,0 +1,86 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Parse-throughput benchmark comparing Parser.parseFile, Parser.parseFileMapped and
+ * ParallelParser on the common ForkJoinPool.
+ *
+ * Writes a random edge list to a temporary file (or uses the given one), parses it several
+ * times with each parser and reports the best throughput in MB/s.
+ *
+ * Usage: java ParserBenchmark [edges | input_file] [runs]
+ */
+public class ParserBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        int runs = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        Path file;
+        boolean temporary = false;
+        if (args.length > 0 && Files.exists(Paths.get(args[0]))) {
+            file = Paths.get(args[0]);
+        } else {
+            int numEdges = args.length > 0 ? Integer.parseInt(args[0]) : 5_000_000;
+            file = writeRandomGraph(100_000, numEdges);
+            temporary = true;
+        }
+
+        try {
+            double megabytes = Files.size(file) / (1024.0 * 1024.0);
+            System.out.println("==== Parser throughput ====");
+            System.out.println(String.format("Input: %s (%.1f MB)", file, megabytes));
+
+            long best = Long.MAX_VALUE;
+            for (int run = 0; run < runs; run++) {
+                long start = System.nanoTime();
+                Parser.parseFile(file.toString());
+                best = Math.min(best, System.nanoTime() - start);
+            }
+            report("parseFile (BufferedReader)", megabytes, best);
+
+            best = Long.MAX_VALUE;
+            for (int run = 0; run < runs; run++) {
+                long start = System.nanoTime();
+                Parser.parseFileMapped(file.toString());
+                best = Math.min(best, System.nanoTime() - start);
+            }
+            report("parseFileMapped (mmap)", megabytes, best);
+
+            best = Long.MAX_VALUE;
+            for (int run = 0; run < runs; run++) {
+                long start = System.nanoTime();
+                ParallelParser.parse(file.toString());
+                best = Math.min(best, System.nanoTime() - start);
+            }
+            int threads = ForkJoinPool.commonPool().getParallelism();
+            report("ParallelParser (" + threads + " threads)", megabytes, best);
+        } finally {
+            if (temporary) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    private static void report(String name, double megabytes, long nanos) {
+        double seconds = nanos / 1e9;
+        System.out.println(String.format("%-28s %8.1f ms %10.1f MB/s", name, seconds * 1000, megabytes / seconds));
+    }
+
+    private static Path writeRandomGraph(int numNodes, int numEdges) throws IOException {
+        Path file = Files.createTempFile("maxflow-parse", ".txt");
+        Random random = new Random(42);
+        try (BufferedWriter writer = Files.newBufferedWriter(file)) {
+            writer.write("0 " + (numNodes - 1) + "\n");
+            writer.write(numNodes + "\n");
+            for (int i = 0; i < numEdges; i++) {
+                writer.write(random.nextInt(numNodes) + " " + random.nextInt(numNodes) + " "
+                        + (1 + random.nextInt(1_000_000)) + "\n");
+            }
+        }
+        return file;
+    }
+}
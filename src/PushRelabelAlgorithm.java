@@ -0,0 +1,259 @@
+import java.util.Arrays;
+
+/**
+ * Highest-label push-relabel with the gap and global-relabel heuristics.
+ *
+ * Heights may grow up to 2V so that excess which cannot reach the sink drains back to
+ * the source; when no active node is left the preflow is a valid flow and can be written
+ * straight back to the edges. Runs in O(V^2 sqrt(E)).
+ */
+public class PushRelabelAlgorithm implements MaxFlowAlgorithm {
+    // Global relabelling is triggered once relabel work exceeds ALPHA * V + E
+    private static final int ALPHA = 6;
+
+    private int numNodes;
+    private int[] height;
+    private long[] excess;      // long so totals at the source and sink cannot overflow
+    private int[] currentArc;
+    private int[] bucketHead;   // stack of active nodes at each height
+    private int[] bucketNext;
+    private int[] heightCount;  // number of nodes at each height below V, for gap detection
+    private int[] queue;
+    private int maxActive;
+
+    private long pushes;
+    private long relabels;
+    private int globalRelabels;
+    private long nodesScanned;
+    private long arcsScanned;
+
+    @Override
+    public String getName() {
+        return "push-relabel";
+    }
+
+    @Override
+    public long computeMaxFlow(ResidualNetwork residual, int source, int sink, FlowTracer tracer) {
+        allocate(residual.getNumNodes());
+        int[] offsets = residual.offsets();
+        int[] heads = residual.heads();
+        int[] capacities = residual.capacities();
+        int[] reverse = residual.reverse();
+
+        tracer.onStart("push-relabel", source, sink);
+
+        pushes = 0;
+        relabels = 0;
+        globalRelabels = 0;
+        nodesScanned = 0;
+        arcsScanned = 0;
+        Arrays.fill(excess, 0);
+
+        // Saturate every arc leaving the source
+        for (int arc = offsets[source], end = offsets[source + 1]; arc < end; arc++) {
+            int amount = capacities[arc];
+            if (amount > 0) {
+                int v = heads[arc];
+                capacities[arc] = 0;
+                capacities[reverse[arc]] += amount;
+                excess[v] += amount;
+                excess[source] -= amount;
+            }
+        }
+
+        globalRelabel(residual, source, sink);
+        long work = 0;
+        long workLimit = (long) ALPHA * numNodes + residual.getNumArcs();
+
+        while (maxActive >= 0) {
+            int v = bucketHead[maxActive];
+            if (v == -1) {
+                maxActive--;
+                continue;
+            }
+            bucketHead[maxActive] = bucketNext[v];
+
+            // A gap may have lifted the node since it was queued
+            if (height[v] != maxActive) {
+                activate(v);
+                continue;
+            }
+
+            work += discharge(residual, v, source, sink);
+
+            if (work > workLimit) {
+                globalRelabel(residual, source, sink);
+                work = 0;
+            }
+        }
+
+        if (tracer.isEnabled()) {
+            tracer.onMessage("Performed " + pushes + " pushes, " + relabels + " relabels and "
+                    + globalRelabels + " global relabels");
+            tracer.onMessage("Increased max flow to: " + excess[sink]);
+        }
+
+        return excess[sink];
+    }
+
+    @Override
+    public void collectStats(SolveStats stats) {
+        stats.pushes = pushes;
+        stats.relabels = relabels;
+        stats.globalRelabels = globalRelabels;
+        stats.nodesScanned = nodesScanned;
+        stats.arcsScanned = arcsScanned;
+    }
+
+    private void allocate(int n) {
+        if (height != null && numNodes == n) {
+            return;
+        }
+        numNodes = n;
+        height = new int[n];
+        excess = new long[n];
+        currentArc = new int[n];
+        bucketHead = new int[2 * n + 1];
+        bucketNext = new int[n];
+        heightCount = new int[n + 1];
+        queue = new int[n];
+    }
+
+    // Push the excess of v along admissible arcs, relabelling whenever it runs out of them
+    private long discharge(ResidualNetwork residual, int v, int source, int sink) {
+        int[] offsets = residual.offsets();
+        int[] heads = residual.heads();
+        int[] capacities = residual.capacities();
+        int[] reverse = residual.reverse();
+        long work = 0;
+
+        while (excess[v] > 0) {
+            int end = offsets[v + 1];
+            int arc = currentArc[v];
+            for (; arc < end; arc++) {
+                int w = heads[arc];
+                if (capacities[arc] > 0 && height[v] == height[w] + 1) {
+                    int amount = (int) Math.min(excess[v], capacities[arc]);
+                    capacities[arc] -= amount;
+                    capacities[reverse[arc]] += amount;
+                    excess[v] -= amount;
+                    if (excess[w] == 0 && w != source && w != sink) {
+                        excess[w] += amount;
+                        activate(w);
+                    } else {
+                        excess[w] += amount;
+                    }
+                    pushes++;
+                    if (excess[v] == 0) {
+                        break;
+                    }
+                }
+            }
+            currentArc[v] = arc;
+
+            if (excess[v] > 0) {
+                work += relabel(residual, v);
+            }
+        }
+
+        return work;
+    }
+
+    // Lift v just above its lowest residual neighbour, applying the gap heuristic
+    private long relabel(ResidualNetwork residual, int v) {
+        int[] offsets = residual.offsets();
+        int[] heads = residual.heads();
+        int[] capacities = residual.capacities();
+
+        int oldHeight = height[v];
+        int newHeight = 2 * numNodes;
+        for (int arc = offsets[v], end = offsets[v + 1]; arc < end; arc++) {
+            if (capacities[arc] > 0) {
+                newHeight = Math.min(newHeight, height[heads[arc]] + 1);
+            }
+        }
+        relabels++;
+
+        if (oldHeight < numNodes) {
+            heightCount[oldHeight]--;
+            if (heightCount[oldHeight] == 0) {
+                // Gap: nothing between here and V can reach the sink any more
+                for (int u = 0; u < numNodes; u++) {
+                    if (height[u] > oldHeight && height[u] < numNodes) {
+                        heightCount[height[u]]--;
+                        height[u] = numNodes + 1;
+                        currentArc[u] = offsets[u];
+                    }
+                }
+                newHeight = Math.max(newHeight, numNodes + 1);
+            }
+        }
+
+        height[v] = newHeight;
+        if (newHeight < numNodes) {
+            heightCount[newHeight]++;
+        }
+        currentArc[v] = offsets[v];
+        return offsets[v + 1] - offsets[v] + 12;
+    }
+
+    // Recompute exact heights: distance to the sink, or V plus the distance to the source
+    private void globalRelabel(ResidualNetwork residual, int source, int sink) {
+        int[] offsets = residual.offsets();
+
+        Arrays.fill(height, 2 * numNodes);
+        Arrays.fill(heightCount, 0);
+        height[sink] = 0;
+        reverseBfs(residual, sink, source);
+        height[source] = numNodes;
+        reverseBfs(residual, source, sink);
+
+        Arrays.fill(bucketHead, -1);
+        maxActive = -1;
+        for (int v = 0; v < numNodes; v++) {
+            if (height[v] < numNodes) {
+                heightCount[height[v]]++;
+            }
+            currentArc[v] = offsets[v];
+            if (excess[v] > 0 && v != source && v != sink) {
+                activate(v);
+            }
+        }
+        globalRelabels++;
+    }
+
+    // Label every node that has a residual path to root with its BFS distance above root
+    private void reverseBfs(ResidualNetwork residual, int root, int blocked) {
+        int[] offsets = residual.offsets();
+        int[] heads = residual.heads();
+        int[] capacities = residual.capacities();
+        int[] reverse = residual.reverse();
+        int limit = 2 * numNodes;
+
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = root;
+        while (head < tail) {
+            int u = queue[head++];
+            arcsScanned += offsets[u + 1] - offsets[u];
+            for (int arc = offsets[u], end = offsets[u + 1]; arc < end; arc++) {
+                int w = heads[arc];
+                // The arc w->u is the reverse of u->w
+                if (height[w] == limit && w != blocked && capacities[reverse[arc]] > 0) {
+                    height[w] = height[u] + 1;
+                    queue[tail++] = w;
+                }
+            }
+        }
+        nodesScanned += tail;
+    }
+
+    private void activate(int v) {
+        int h = height[v];
+        bucketNext[v] = bucketHead[h];
+        bucketHead[h] = v;
+        if (h > maxActive) {
+            maxActive = h;
+        }
+    }
+}
@@ -0,0 +1,334 @@
+import java.util.List;
+
+/**
+ * Compact residual network stored in compressed-sparse-row (CSR) form.
+ *
+ * Every original edge u->v becomes a forward arc u->v and a paired reverse arc v->u.
+ * All arcs leaving node u occupy the range [offsets[u], offsets[u + 1]) of the parallel
+ * heads / capacities / reverse arrays, so memory scales with O(V + E) instead of O(V^2).
+ */
+public class ResidualNetwork {
+    private final int numNodes;
+    private final int numEdges;
+    private final int[] offsets;    // first arc of each node, length numNodes + 1
+    private final int[] heads;      // head node of each arc
+    private final int[] capacities; // residual capacity of each arc
+    private final int[] reverse;    // index of the paired reverse arc
+    private final int[] edgeArcs;   // forward arc of each original edge, in getAllEdges() order
+
+    /**
+     * Builds the residual network for a graph with zero initial flow
+     *
+     * @param graph The flow network graph
+     */
+    public ResidualNetwork(Graph graph) {
+        // A compact graph already holds primitive arrays, so it is read without copying
+        this(graph instanceof CompactGraph ? ((CompactGraph) graph).asEdgeList() : EdgeList.fromGraph(graph));
+    }
+
+    /**
+     * Builds the residual network for a primitive edge list with zero initial flow
+     *
+     * @param edges The flow network edges
+     */
+    public ResidualNetwork(EdgeList edges) {
+        this(edges, null, null);
+    }
+
+    /**
+     * Builds the residual network of a graph whose flow enters at a set of sources and leaves
+     * at a set of sinks, with zero initial flow. Two virtual nodes follow the graph's nodes:
+     * node getNumNodes() - 2 feeds every source through an arc whose capacity is the source's
+     * limit, and node getNumNodes() - 1 drains every sink the same way, so any engine solves
+     * the problem between them without the graph being rewritten. Unlimited terminals get arcs
+     * of capacity Integer.MAX_VALUE.
+     *
+     * @param graph The flow network graph
+     * @param sources The source set
+     * @param sinks The sink set
+     * @throws IllegalArgumentException if a terminal is invalid or a limit exceeds the int range
+     */
+    public ResidualNetwork(Graph graph, TerminalSet sources, TerminalSet sinks) {
+        this(graph instanceof CompactGraph ? ((CompactGraph) graph).asEdgeList() : EdgeList.fromGraph(graph),
+                checked(sources, sinks, graph.getNumNodes()), sinks);
+    }
+
+    // Both terminal sets are null for a plain network without virtual terminals
+    private ResidualNetwork(EdgeList edges, TerminalSet sources, TerminalSet sinks) {
+        int graphNodes = edges.getNumNodes();
+        int terminalArcs = sources == null ? 0 : sources.size() + sinks.size();
+        this.numNodes = graphNodes + (sources == null ? 0 : 2);
+        this.numEdges = edges.getNumEdges();
+        this.offsets = new int[numNodes + 1];
+        this.heads = new int[2 * (numEdges + terminalArcs)];
+        this.capacities = new int[heads.length];
+        this.reverse = new int[heads.length];
+        this.edgeArcs = new int[numEdges];
+
+        // Count the out-degree of every node, each edge contributing one arc to both endpoints
+        for (int i = 0; i < numEdges; i++) {
+            offsets[edges.getSource(i) + 1]++;
+            offsets[edges.getDestination(i) + 1]++;
+        }
+        if (sources != null) {
+            offsets[graphNodes + 1] += sources.size();
+            offsets[graphNodes + 2] += sinks.size();
+            for (int i = 0; i < sources.size(); i++) {
+                offsets[sources.getNode(i) + 1]++;
+            }
+            for (int i = 0; i < sinks.size(); i++) {
+                offsets[sinks.getNode(i) + 1]++;
+            }
+        }
+        for (int i = 0; i < numNodes; i++) {
+            offsets[i + 1] += offsets[i];
+        }
+
+        // Place the forward and reverse arcs of every edge
+        int[] next = new int[numNodes];
+        System.arraycopy(offsets, 0, next, 0, numNodes);
+        for (int i = 0; i < numEdges; i++) {
+            int u = edges.getSource(i);
+            int v = edges.getDestination(i);
+            int forward = next[u]++;
+            int backward = next[v]++;
+
+            heads[forward] = v;
+            capacities[forward] = edges.getCapacity(i);
+            reverse[forward] = backward;
+
+            heads[backward] = u;
+            capacities[backward] = 0;
+            reverse[backward] = forward;
+
+            edgeArcs[i] = forward;
+        }
+
+        // The virtual arcs come after the edges, so edge positions are unaffected
+        if (sources != null) {
+            for (int i = 0; i < sources.size(); i++) {
+                placeArc(next, graphNodes, sources.getNode(i), terminalCapacity(sources, i));
+            }
+            for (int i = 0; i < sinks.size(); i++) {
+                placeArc(next, sinks.getNode(i), graphNodes + 1, terminalCapacity(sinks, i));
+            }
+        }
+    }
+
+    private static TerminalSet checked(TerminalSet sources, TerminalSet sinks, int numNodes) {
+        TerminalSet.checkTerminals(sources, sinks, numNodes);
+        return sources;
+    }
+
+    // Capacity of the virtual arc of a terminal
+    private static int terminalCapacity(TerminalSet set, int index) {
+        if (!set.hasLimit(index)) {
+            return Integer.MAX_VALUE;
+        }
+        long limit = set.getLimit(index);
+        if (limit > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Limit " + limit + " of terminal " + set.getNode(index)
+                    + " exceeds the int range; use LongResidualNetwork");
+        }
+        return (int) limit;
+    }
+
+    private void placeArc(int[] next, int u, int v, int capacity) {
+        int forward = next[u]++;
+        int backward = next[v]++;
+        heads[forward] = v;
+        capacities[forward] = capacity;
+        reverse[forward] = backward;
+        heads[backward] = u;
+        reverse[backward] = forward;
+    }
+
+    // Shares the topology of another network, with its own copy of the capacities
+    private ResidualNetwork(ResidualNetwork other) {
+        this.numNodes = other.numNodes;
+        this.numEdges = other.numEdges;
+        this.offsets = other.offsets;
+        this.heads = other.heads;
+        this.capacities = other.capacities.clone();
+        this.reverse = other.reverse;
+        this.edgeArcs = other.edgeArcs;
+    }
+
+    /**
+     * @return A network with the same arcs and current flow that shares this network's
+     *         read-only topology arrays, so only the capacities are copied
+     */
+    public ResidualNetwork copy() {
+        return new ResidualNetwork(this);
+    }
+
+    /**
+     * Overwrite the residual capacities with those of a network of the same topology,
+     * e.g. to return a reused network to its initial zero flow
+     *
+     * @param other A network created by copy() from the same origin
+     */
+    public void resetTo(ResidualNetwork other) {
+        if (other.offsets != offsets) {
+            throw new IllegalArgumentException("Networks do not share the same topology");
+        }
+        System.arraycopy(other.capacities, 0, capacities, 0, capacities.length);
+    }
+
+    public int getNumNodes() {
+        return numNodes;
+    }
+
+    public int getNumEdges() {
+        return numEdges;
+    }
+
+    public int getNumArcs() {
+        return heads.length;
+    }
+
+    /**
+     * @return Bytes held by the arrays of the network, excluding object headers
+     */
+    public long getMemoryBytes() {
+        return 4L * (offsets.length + heads.length + reverse.length + edgeArcs.length) + 4L * capacities.length;
+    }
+
+    /**
+     * @return The index of the first arc leaving the node
+     */
+    public int firstArc(int node) {
+        return offsets[node];
+    }
+
+    /**
+     * @return One past the index of the last arc leaving the node
+     */
+    public int endArc(int node) {
+        return offsets[node + 1];
+    }
+
+    public int getHead(int arc) {
+        return heads[arc];
+    }
+
+    public int getReverse(int arc) {
+        return reverse[arc];
+    }
+
+    public int getResidualCapacity(int arc) {
+        return capacities[arc];
+    }
+
+    /**
+     * Pushes flow along an arc, updating the residual capacity of the arc and its reverse
+     *
+     * @param arc The arc to push along
+     * @param amount The amount of flow to push
+     */
+    public void push(int arc, int amount) {
+        capacities[arc] -= amount;
+        capacities[reverse[arc]] += amount;
+    }
+
+    /**
+     * @return The forward arc that represents the edge at the given position of getAllEdges()
+     */
+    public int getEdgeArc(int edgeIndex) {
+        return edgeArcs[edgeIndex];
+    }
+
+    /**
+     * @return The flow currently carried by the edge at the given position
+     */
+    public int getEdgeFlow(int edgeIndex) {
+        return capacities[reverse[edgeArcs[edgeIndex]]];
+    }
+
+    /**
+     * @return The capacity of the edge at the given position, i.e. its flow plus its residual
+     */
+    public int getEdgeCapacity(int edgeIndex) {
+        int forward = edgeArcs[edgeIndex];
+        return capacities[forward] + capacities[reverse[forward]];
+    }
+
+    /**
+     * @return The flow of every edge, in getAllEdges() order
+     */
+    public int[] getEdgeFlows() {
+        int[] flows = new int[numEdges];
+        for (int i = 0; i < numEdges; i++) {
+            flows[i] = getEdgeFlow(i);
+        }
+        return flows;
+    }
+
+    /**
+     * Set the flow carried by an edge, keeping its capacity
+     *
+     * @param edgeIndex Position of the edge
+     * @param flow New flow, between 0 and the edge capacity
+     */
+    public void setEdgeFlow(int edgeIndex, int flow) {
+        int forward = edgeArcs[edgeIndex];
+        int capacity = capacities[forward] + capacities[reverse[forward]];
+        if (flow < 0 || flow > capacity) {
+            throw new IllegalArgumentException("Flow " + flow + " outside [0, " + capacity + "]");
+        }
+        capacities[forward] = capacity - flow;
+        capacities[reverse[forward]] = flow;
+    }
+
+    /**
+     * Change the capacity of an edge, keeping its flow
+     *
+     * @param edgeIndex Position of the edge
+     * @param capacity New capacity, at least the current flow
+     */
+    public void setEdgeCapacity(int edgeIndex, int capacity) {
+        int forward = edgeArcs[edgeIndex];
+        int flow = capacities[reverse[forward]];
+        if (capacity < flow) {
+            throw new IllegalArgumentException("Capacity " + capacity + " is below the current flow " + flow);
+        }
+        capacities[forward] = capacity - flow;
+    }
+
+    /**
+     * Write the flow on every forward arc back into the original graph edges
+     *
+     * @param graph The graph this network was built from
+     */
+    public void writeFlows(Graph graph) {
+        if (graph instanceof CompactGraph) {
+            CompactGraph compact = (CompactGraph) graph;
+            for (int i = 0; i < numEdges; i++) {
+                compact.setFlow(i, getEdgeFlow(i));
+            }
+            return;
+        }
+        List<Edge> edges = graph.getAllEdges();
+        for (int i = 0; i < numEdges; i++) {
+            // The flow is the amount pushed into the paired reverse arc
+            edges.get(i).setFlow(getEdgeFlow(i));
+        }
+    }
+
+    // Direct array access for the solver's inner loops
+    int[] offsets() {
+        return offsets;
+    }
+
+    int[] heads() {
+        return heads;
+    }
+
+    int[] capacities() {
+        return capacities;
+    }
+
+    int[] reverse() {
+        return reverse;
+    }
+}
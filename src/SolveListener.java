@@ -0,0 +1,15 @@
+/**
+ * Receives the metrics of every MaxFlowSolver run it is registered with.
+ *
+ * Listeners are called on the solving thread after the flows have been written back, so
+ * they should return quickly; SolverMetrics aggregates the runs for JMX.
+ */
+public interface SolveListener {
+
+    /**
+     * A findMaxFlow call completed
+     *
+     * @param stats Metrics of the run; the object is not modified afterwards and may be kept
+     */
+    void onSolve(SolveStats stats);
+}
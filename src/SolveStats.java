@@ -0,0 +1,233 @@
+import java.util.Arrays;
+
+/**
+ * Structured metrics of one MaxFlowSolver run.
+ *
+ * The engines count their work in plain fields while they run and copy the counters in here
+ * afterwards through MaxFlowAlgorithm.collectStats, so collecting stats costs a few additions
+ * per BFS rather than per arc. Counters an engine does not have stay at zero: augmenting
+ * paths for Edmonds-Karp and Dinic, pushes and relabels for the push-relabel engines. The
+ * BFS counters cover every breadth-first search the engine ran, which for push-relabel are
+ * its global relabels.
+ */
+public class SolveStats {
+    private static final long[] NO_PHASES = new long[0];
+
+    String algorithm;
+    int numNodes;
+    int numEdges;
+    int source;
+    int sink;
+    long maxFlow;
+    boolean reduced;
+    boolean warmStarted;
+
+    long augmentingPaths;
+    int phases;
+    long nodesScanned;
+    long arcsScanned;
+    long pushes;
+    long relabels;
+    int globalRelabels;
+    long residualBytes;
+    long[] phaseNanos = NO_PHASES;
+
+    long prepareNanos;
+    long buildNanos;
+    long solveNanos;
+    long writeNanos;
+    long totalNanos;
+
+    SolveStats() {
+    }
+
+    /**
+     * @return Name of the engine that computed the flow, as accepted by MaxFlowAlgorithm.forName
+     */
+    public String getAlgorithm() {
+        return algorithm;
+    }
+
+    /**
+     * @return Number of nodes of the input graph, before any reduction
+     */
+    public int getNumNodes() {
+        return numNodes;
+    }
+
+    /**
+     * @return Number of edges of the input graph, before any reduction
+     */
+    public int getNumEdges() {
+        return numEdges;
+    }
+
+    /**
+     * @return The source node, or -1 for a solve between source and sink sets
+     */
+    public int getSource() {
+        return source;
+    }
+
+    /**
+     * @return The sink node, or -1 for a solve between source and sink sets
+     */
+    public int getSink() {
+        return sink;
+    }
+
+    public long getMaxFlow() {
+        return maxFlow;
+    }
+
+    /**
+     * @return Whether the graph was reduced before solving
+     */
+    public boolean isReduced() {
+        return reduced;
+    }
+
+    /**
+     * @return Whether the solve started from the flows held by the edges
+     */
+    public boolean isWarmStarted() {
+        return warmStarted;
+    }
+
+    public long getAugmentingPaths() {
+        return augmentingPaths;
+    }
+
+    /**
+     * @return Dinic phases, or parallel push-relabel rounds
+     */
+    public int getPhases() {
+        return phases;
+    }
+
+    /**
+     * @return Nodes dequeued by the engine's breadth-first searches
+     */
+    public long getNodesScanned() {
+        return nodesScanned;
+    }
+
+    /**
+     * @return Residual arcs examined by the engine's breadth-first searches
+     */
+    public long getArcsScanned() {
+        return arcsScanned;
+    }
+
+    public long getPushes() {
+        return pushes;
+    }
+
+    public long getRelabels() {
+        return relabels;
+    }
+
+    public int getGlobalRelabels() {
+        return globalRelabels;
+    }
+
+    /**
+     * @return Bytes held by the arrays of the residual network, the largest structure of a solve
+     */
+    public long getResidualBytes() {
+        return residualBytes;
+    }
+
+    /**
+     * @return Wall time of each Dinic phase in nanoseconds; empty for the other engines
+     */
+    public long[] getPhaseNanos() {
+        return phaseNanos.clone();
+    }
+
+    /**
+     * @return Time spent reducing the graph or repairing the warm-start flow
+     */
+    public long getPrepareNanos() {
+        return prepareNanos;
+    }
+
+    /**
+     * @return Time spent building the residual network
+     */
+    public long getBuildNanos() {
+        return buildNanos;
+    }
+
+    /**
+     * @return Time spent in the engine
+     */
+    public long getSolveNanos() {
+        return solveNanos;
+    }
+
+    /**
+     * @return Time spent writing the flows back to the edges
+     */
+    public long getWriteNanos() {
+        return writeNanos;
+    }
+
+    /**
+     * @return Wall time of the whole findMaxFlow call
+     */
+    public long getTotalNanos() {
+        return totalNanos;
+    }
+
+    // Record the per-phase times of an engine, copying the first count entries
+    void setPhaseNanos(long[] nanos, int count) {
+        phaseNanos = count == 0 ? NO_PHASES : Arrays.copyOf(nanos, count);
+    }
+
+    /**
+     * Format the stats as a single-line JSON object with times in milliseconds
+     */
+    public String toJson() {
+        StringBuilder json = new StringBuilder(512);
+        json.append("{\"algorithm\":\"").append(algorithm).append('"')
+            .append(",\"nodes\":").append(numNodes)
+            .append(",\"edges\":").append(numEdges)
+            .append(",\"source\":").append(source)
+            .append(",\"sink\":").append(sink)
+            .append(",\"maxFlow\":").append(maxFlow)
+            .append(",\"reduced\":").append(reduced)
+            .append(",\"warmStart\":").append(warmStarted)
+            .append(",\"augmentingPaths\":").append(augmentingPaths)
+            .append(",\"phases\":").append(phases)
+            .append(",\"nodesScanned\":").append(nodesScanned)
+            .append(",\"arcsScanned\":").append(arcsScanned)
+            .append(",\"pushes\":").append(pushes)
+            .append(",\"relabels\":").append(relabels)
+            .append(",\"globalRelabels\":").append(globalRelabels)
+            .append(",\"residualBytes\":").append(residualBytes)
+            .append(",\"prepareMs\":").append(millis(prepareNanos))
+            .append(",\"buildMs\":").append(millis(buildNanos))
+            .append(",\"solveMs\":").append(millis(solveNanos))
+            .append(",\"writeMs\":").append(millis(writeNanos))
+            .append(",\"totalMs\":").append(millis(totalNanos))
+            .append(",\"phaseMs\":[");
+        for (int i = 0; i < phaseNanos.length; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append(millis(phaseNanos[i]));
+        }
+        return json.append("]}").toString();
+    }
+
+    // Milliseconds with microsecond precision
+    private static String millis(long nanos) {
+        return String.valueOf(Math.round(nanos / 1000.0) / 1000.0);
+    }
+
+    @Override
+    public String toString() {
+        return toJson();
+    }
+}
@@ -0,0 +1,200 @@
+import java.lang.management.ManagementFactory;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * SolveListener that aggregates solver runs and exposes them as a standard MBean.
+ *
+ * One instance can listen to any number of solvers, also on different threads. After
+ * register() the totals and the metrics of the last run are visible in JConsole or any other
+ * JMX client under "maxflow:type=SolverMetrics,name=&lt;name&gt;".
+ */
+public class SolverMetrics implements SolveListener, SolverMetricsMBean {
+    public static final String DOMAIN = "maxflow";
+
+    private long solveCount;
+    private long totalNanos;
+    private long totalAugmentingPaths;
+    private long totalPushes;
+    private long totalRelabels;
+    private long totalArcsScanned;
+    private long peakResidualBytes;
+    private SolveStats last;
+    private ObjectName objectName;
+
+    @Override
+    public synchronized void onSolve(SolveStats stats) {
+        solveCount++;
+        totalNanos += stats.getTotalNanos();
+        totalAugmentingPaths += stats.getAugmentingPaths();
+        totalPushes += stats.getPushes();
+        totalRelabels += stats.getRelabels();
+        totalArcsScanned += stats.getArcsScanned();
+        peakResidualBytes = Math.max(peakResidualBytes, stats.getResidualBytes());
+        last = stats;
+    }
+
+    /**
+     * Register this listener with the platform MBean server
+     *
+     * @param name Value of the "name" key, to tell several instances apart
+     * @return The name the MBean was registered under
+     * @throws IllegalStateException if it is already registered or the name is taken
+     */
+    public synchronized ObjectName register(String name) {
+        if (objectName != null) {
+            throw new IllegalStateException("Already registered as " + objectName);
+        }
+        try {
+            ObjectName candidate = new ObjectName(DOMAIN + ":type=SolverMetrics,name=" + ObjectName.quote(name));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, candidate);
+            objectName = candidate;
+            return candidate;
+        } catch (JMException e) {
+            throw new IllegalStateException("Cannot register solver metrics: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Remove this listener from the platform MBean server; does nothing if it is not registered
+     */
+    public synchronized void unregister() {
+        if (objectName == null) {
+            return;
+        }
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            if (server.isRegistered(objectName)) {
+                server.unregisterMBean(objectName);
+            }
+        } catch (JMException e) {
+            throw new IllegalStateException("Cannot unregister solver metrics: " + e.getMessage(), e);
+        }
+        objectName = null;
+    }
+
+    /**
+     * @return The metrics of the last recorded solve, or null if none was recorded
+     */
+    public synchronized SolveStats getLastStats() {
+        return last;
+    }
+
+    @Override
+    public synchronized long getSolveCount() {
+        return solveCount;
+    }
+
+    @Override
+    public synchronized double getTotalSolveTimeMillis() {
+        return totalNanos / 1e6;
+    }
+
+    @Override
+    public synchronized long getTotalAugmentingPaths() {
+        return totalAugmentingPaths;
+    }
+
+    @Override
+    public synchronized long getTotalPushes() {
+        return totalPushes;
+    }
+
+    @Override
+    public synchronized long getTotalRelabels() {
+        return totalRelabels;
+    }
+
+    @Override
+    public synchronized long getTotalArcsScanned() {
+        return totalArcsScanned;
+    }
+
+    @Override
+    public synchronized long getPeakResidualBytes() {
+        return peakResidualBytes;
+    }
+
+    @Override
+    public synchronized String getLastAlgorithm() {
+        return last == null ? null : last.getAlgorithm();
+    }
+
+    @Override
+    public synchronized long getLastMaxFlow() {
+        return last == null ? 0 : last.getMaxFlow();
+    }
+
+    @Override
+    public synchronized int getLastNumNodes() {
+        return last == null ? 0 : last.getNumNodes();
+    }
+
+    @Override
+    public synchronized int getLastNumEdges() {
+        return last == null ? 0 : last.getNumEdges();
+    }
+
+    @Override
+    public synchronized long getLastAugmentingPaths() {
+        return last == null ? 0 : last.getAugmentingPaths();
+    }
+
+    @Override
+    public synchronized int getLastPhases() {
+        return last == null ? 0 : last.getPhases();
+    }
+
+    @Override
+    public synchronized long getLastNodesScanned() {
+        return last == null ? 0 : last.getNodesScanned();
+    }
+
+    @Override
+    public synchronized long getLastArcsScanned() {
+        return last == null ? 0 : last.getArcsScanned();
+    }
+
+    @Override
+    public synchronized long getLastPushes() {
+        return last == null ? 0 : last.getPushes();
+    }
+
+    @Override
+    public synchronized long getLastRelabels() {
+        return last == null ? 0 : last.getRelabels();
+    }
+
+    @Override
+    public synchronized long getLastResidualBytes() {
+        return last == null ? 0 : last.getResidualBytes();
+    }
+
+    @Override
+    public synchronized double getLastSolveTimeMillis() {
+        return last == null ? 0 : last.getTotalNanos() / 1e6;
+    }
+
+    @Override
+    public synchronized double getLastEngineTimeMillis() {
+        return last == null ? 0 : last.getSolveNanos() / 1e6;
+    }
+
+    @Override
+    public synchronized String getLastStatsJson() {
+        return last == null ? null : last.toJson();
+    }
+
+    @Override
+    public synchronized void reset() {
+        solveCount = 0;
+        totalNanos = 0;
+        totalAugmentingPaths = 0;
+        totalPushes = 0;
+        totalRelabels = 0;
+        totalArcsScanned = 0;
+        peakResidualBytes = 0;
+        last = null;
+    }
+}
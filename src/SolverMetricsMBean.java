@@ -0,0 +1,55 @@
+/**
+ * JMX view of the solves recorded by a SolverMetrics listener. Times are in milliseconds.
+ */
+public interface SolverMetricsMBean {
+
+    long getSolveCount();
+
+    double getTotalSolveTimeMillis();
+
+    long getTotalAugmentingPaths();
+
+    long getTotalPushes();
+
+    long getTotalRelabels();
+
+    long getTotalArcsScanned();
+
+    long getPeakResidualBytes();
+
+    String getLastAlgorithm();
+
+    long getLastMaxFlow();
+
+    int getLastNumNodes();
+
+    int getLastNumEdges();
+
+    long getLastAugmentingPaths();
+
+    int getLastPhases();
+
+    long getLastNodesScanned();
+
+    long getLastArcsScanned();
+
+    long getLastPushes();
+
+    long getLastRelabels();
+
+    long getLastResidualBytes();
+
+    double getLastSolveTimeMillis();
+
+    double getLastEngineTimeMillis();
+
+    /**
+     * @return The last solve's metrics as a JSON line, see SolveStats.toJson
+     */
+    String getLastStatsJson();
+
+    /**
+     * Clear every total and forget the last solve
+     */
+    void reset();
+}
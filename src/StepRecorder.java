@@ -0,0 +1,168 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * FlowTracer that keeps the most recent trace events in a bounded ring buffer.
+ *
+ * Events are stored as primitives and augmenting paths as int arrays, with the arrays of
+ * overwritten slots reused, so recording stays cheap on long runs. The human-readable steps
+ * are only built when getSteps() is called.
+ */
+public class StepRecorder implements FlowTracer {
+    public static final int DEFAULT_CAPACITY = 1000;
+
+    private static final byte START = 0;
+    private static final byte PATH = 1;
+    private static final byte PHASE = 2;
+    private static final byte MESSAGE = 3;
+
+    private final byte[] kinds;
+    private final int[] ints;      // path length, or phase number, or source
+    private final int[] ints2;     // sink distance, or sink
+    private final long[] longs;    // bottleneck or phase flow
+    private final long[] longs2;   // max flow after the event
+    private final Object[] data;   // int[] path nodes, or String algorithm / message
+    private long recorded;         // events seen so far, including overwritten ones
+
+    public StepRecorder() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity Number of events kept; older events are overwritten
+     */
+    public StepRecorder(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        this.kinds = new byte[capacity];
+        this.ints = new int[capacity];
+        this.ints2 = new int[capacity];
+        this.longs = new long[capacity];
+        this.longs2 = new long[capacity];
+        this.data = new Object[capacity];
+    }
+
+    @Override
+    public void onStart(String algorithm, int source, int sink) {
+        int slot = nextSlot(START);
+        data[slot] = algorithm;
+        ints[slot] = source;
+        ints2[slot] = sink;
+    }
+
+    @Override
+    public void onAugmentingPath(int[] nodes, int length, long bottleneck, long maxFlow) {
+        int slot = nextSlot(PATH);
+        // Reuse the array of the event being overwritten when it is large enough
+        int[] copy = data[slot] instanceof int[] ? (int[]) data[slot] : null;
+        if (copy == null || copy.length < length) {
+            copy = new int[length];
+        }
+        System.arraycopy(nodes, 0, copy, 0, length);
+        data[slot] = copy;
+        ints[slot] = length;
+        longs[slot] = bottleneck;
+        longs2[slot] = maxFlow;
+    }
+
+    @Override
+    public void onPhase(int phase, int sinkDistance, long phaseFlow, long maxFlow) {
+        int slot = nextSlot(PHASE);
+        ints[slot] = phase;
+        ints2[slot] = sinkDistance;
+        longs[slot] = phaseFlow;
+        longs2[slot] = maxFlow;
+    }
+
+    @Override
+    public void onMessage(String message) {
+        int slot = nextSlot(MESSAGE);
+        data[slot] = message;
+    }
+
+    private int nextSlot(byte kind) {
+        int slot = (int) (recorded % kinds.length);
+        recorded++;
+        kinds[slot] = kind;
+        if (kind != PATH && data[slot] instanceof int[]) {
+            data[slot] = null;
+        }
+        return slot;
+    }
+
+    /**
+     * @return Number of events currently held
+     */
+    public int size() {
+        return (int) Math.min(recorded, kinds.length);
+    }
+
+    /**
+     * @return Number of events that were overwritten because the buffer was full
+     */
+    public long getDroppedEvents() {
+        return Math.max(0, recorded - kinds.length);
+    }
+
+    public void clear() {
+        recorded = 0;
+    }
+
+    /**
+     * @return Copies of the augmenting paths currently held, oldest first
+     */
+    public List<int[]> getPaths() {
+        List<int[]> paths = new ArrayList<>();
+        for (long i = recorded - size(); i < recorded; i++) {
+            int slot = (int) (i % kinds.length);
+            if (kinds[slot] == PATH) {
+                int[] path = new int[ints[slot]];
+                System.arraycopy((int[]) data[slot], 0, path, 0, path.length);
+                paths.add(path);
+            }
+        }
+        return paths;
+    }
+
+    /**
+     * Format the held events as human-readable steps, oldest first
+     */
+    public List<String> getSteps() {
+        List<String> steps = new ArrayList<>(2 * size() + 1);
+        if (getDroppedEvents() > 0) {
+            steps.add("(" + getDroppedEvents() + " earlier steps not recorded)");
+        }
+        for (long i = recorded - size(); i < recorded; i++) {
+            int slot = (int) (i % kinds.length);
+            switch (kinds[slot]) {
+                case START:
+                    steps.add("Starting " + data[slot] + " algorithm from source " + ints[slot]
+                            + " to sink " + ints2[slot]);
+                    break;
+                case PATH: {
+                    int[] nodes = (int[]) data[slot];
+                    StringBuilder path = new StringBuilder("Found path: ");
+                    for (int j = 0; j < ints[slot]; j++) {
+                        if (j > 0) {
+                            path.append("->");
+                        }
+                        path.append(nodes[j]);
+                    }
+                    steps.add(path.append(" with bottleneck flow: ").append(longs[slot]).toString());
+                    steps.add("Increased max flow to: " + longs2[slot]);
+                    break;
+                }
+                case PHASE:
+                    steps.add("Phase " + ints[slot] + ": level graph reaches sink at distance " + ints2[slot]
+                            + ", blocking flow: " + longs[slot]);
+                    steps.add("Increased max flow to: " + longs2[slot]);
+                    break;
+                default:
+                    steps.add((String) data[slot]);
+                    break;
+            }
+        }
+        return steps;
+    }
+}
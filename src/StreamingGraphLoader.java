@@ -0,0 +1,324 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Loads the text input format straight into a CompactGraph with two streaming passes, for
+ * inputs too large to hold as Edge objects or as an intermediate edge list.
+ *
+ * The first pass counts the out-degree of every node; the second places each edge directly
+ * at its CSR position in preallocated destination and capacity arrays. In both passes a
+ * background thread reads and parses the input into fixed-size chunks of edges while the
+ * calling thread consumes them, with a small fixed pool of chunks bounding the memory in
+ * flight. Peak memory is the final graph plus one int per node and a few megabytes of buffers.
+ *
+ * Standard input cannot be read twice, so it is copied to a temporary file during the first
+ * pass. Accepts the same format and reports the same errors as Parser.parseFileMapped,
+ * except that edge costs are rejected: they would need another array that the max flow
+ * engines never read.
+ */
+public class StreamingGraphLoader {
+    // Edges per chunk handed from the reader thread to the consumer
+    static final int CHUNK_EDGES = 1 << 16;
+    // Chunks in circulation; bounds the memory between the two threads
+    private static final int POOL_SIZE = 4;
+    // Bytes read from the input at a time; no line may be longer
+    private static final int BLOCK_SIZE = 1 << 20;
+
+    /**
+     * Load a graph file
+     *
+     * @param path The input file
+     * @return Compact graph with the optional source and sink from the file
+     * @throws IOException if the file cannot be read or is malformed
+     */
+    public static GraphWithSourceSink load(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            throw new IOException("File does not exist: " + path);
+        }
+        try (InputStream first = Files.newInputStream(path)) {
+            return load(first, null, path);
+        }
+    }
+
+    /**
+     * Load a graph from a stream such as System.in, spooling it to a temporary file
+     *
+     * @param in The input; read to its end but not closed
+     * @return Compact graph with the optional source and sink from the input
+     * @throws IOException if the input cannot be read or is malformed
+     */
+    public static GraphWithSourceSink load(InputStream in) throws IOException {
+        Path spool = Files.createTempFile("maxflow-input", ".txt");
+        try {
+            try (OutputStream copy = Files.newOutputStream(spool)) {
+                return load(in, copy, spool);
+            }
+        } finally {
+            Files.deleteIfExists(spool);
+        }
+    }
+
+    private static GraphWithSourceSink load(InputStream first, OutputStream copy, Path second) throws IOException {
+        // Pass 1: count the edges leaving every node
+        ChunkReader reader = new ChunkReader(first, copy);
+        int[] offsets = null;
+        long numEdges = 0;
+        try {
+            for (Chunk chunk = reader.take(); chunk != null; chunk = reader.take()) {
+                if (offsets == null) {
+                    offsets = new int[reader.numNodes + 1];
+                }
+                int[] edges = chunk.edges;
+                for (int i = 0, end = 3 * chunk.size; i < end; i += 3) {
+                    offsets[edges[i] + 1]++;
+                }
+                numEdges += chunk.size;
+                reader.recycle(chunk);
+            }
+        } finally {
+            reader.close();
+        }
+        if (copy != null) {
+            copy.close();
+        }
+        if (numEdges > Integer.MAX_VALUE - 8) {
+            throw new IOException("Too many edges: " + numEdges);
+        }
+        int numNodes = reader.numNodes;
+        int source = reader.source;
+        int sink = reader.sink;
+        TerminalSet[] terminals = reader.terminals;
+        if (offsets == null) {
+            offsets = new int[numNodes + 1];
+        }
+        for (int v = 0; v < numNodes; v++) {
+            offsets[v + 1] += offsets[v];
+        }
+
+        // Pass 2: place every edge at its CSR position
+        int[] next = new int[numNodes];
+        System.arraycopy(offsets, 0, next, 0, numNodes);
+        int[] destinations = new int[(int) numEdges];
+        int[] capacities = new int[(int) numEdges];
+        try (InputStream in = Files.newInputStream(second)) {
+            reader = new ChunkReader(in, null);
+            try {
+                for (Chunk chunk = reader.take(); chunk != null; chunk = reader.take()) {
+                    int[] edges = chunk.edges;
+                    for (int i = 0, end = 3 * chunk.size; i < end; i += 3) {
+                        int u = edges[i];
+                        if (next[u] == offsets[u + 1]) {
+                            throw new IOException("Input changed between the two passes");
+                        }
+                        int position = next[u]++;
+                        destinations[position] = edges[i + 1];
+                        capacities[position] = edges[i + 2];
+                    }
+                    reader.recycle(chunk);
+                }
+            } finally {
+                reader.close();
+            }
+        }
+        for (int v = 0; v < numNodes; v++) {
+            if (next[v] != offsets[v + 1]) {
+                throw new IOException("Input changed between the two passes");
+            }
+        }
+
+        CompactGraph graph = CompactGraph.fromCsr(numNodes, offsets, destinations, capacities);
+        if (terminals != null) {
+            return new GraphWithSourceSink(graph, terminals[0], terminals[1]);
+        }
+        return new GraphWithSourceSink(graph, source, sink);
+    }
+
+    // Edges as interleaved source, destination, capacity triples
+    private static final class Chunk {
+        final int[] edges;
+        int size;
+
+        Chunk(int capacity) {
+            this.edges = new int[3 * capacity];
+        }
+    }
+
+    // Background thread parsing the input into chunks
+    private static final class ChunkReader implements Runnable {
+        private static final Chunk END = new Chunk(0);
+
+        private final InputStream in;
+        private final OutputStream copy;
+        private final BlockingQueue<Chunk> free = new ArrayBlockingQueue<>(POOL_SIZE);
+        private final BlockingQueue<Chunk> full = new ArrayBlockingQueue<>(POOL_SIZE + 1);
+        private final Thread thread;
+        private volatile Exception error;
+
+        // Header values, published to the consumer by the first queue hand-off
+        int numNodes = -1;
+        int source = -1;
+        int sink = -1;
+        TerminalSet[] terminals; // source and sink sets, if the header lists them
+
+        ChunkReader(InputStream in, OutputStream copy) {
+            this.in = in;
+            this.copy = copy;
+            for (int i = 0; i < POOL_SIZE; i++) {
+                free.add(new Chunk(CHUNK_EDGES));
+            }
+            this.thread = new Thread(this, "graph-reader");
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        /**
+         * @return The next chunk of edges, or null at the end of the input
+         */
+        Chunk take() throws IOException {
+            Chunk chunk;
+            try {
+                chunk = full.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while reading the input", e);
+            }
+            if (chunk != END) {
+                return chunk;
+            }
+            if (error instanceof IOException) {
+                throw (IOException) error;
+            }
+            if (error != null) {
+                throw new IOException("Failed to read the input: " + error.getMessage(), error);
+            }
+            return null;
+        }
+
+        void recycle(Chunk chunk) {
+            chunk.size = 0;
+            free.add(chunk);
+        }
+
+        // Stop the reader if the consumer gave up early
+        void close() {
+            thread.interrupt();
+        }
+
+        @Override
+        public void run() {
+            try {
+                parse();
+            } catch (InterruptedException e) {
+                return;
+            } catch (Exception e) {
+                error = e;
+            }
+            try {
+                full.put(END);
+            } catch (InterruptedException e) {
+                // The consumer is gone
+            }
+        }
+
+        private void parse() throws IOException, InterruptedException {
+            byte[] block = new byte[BLOCK_SIZE];
+            ByteBuffer buffer = ByteBuffer.wrap(block);
+            ByteLineTokenizer tokenizer = new ByteLineTokenizer();
+            Chunk chunk = free.take();
+            int filled = 0;
+            int lineNumber = 0;
+            boolean sourceSinkLine = false;
+
+            while (true) {
+                int read = in.read(block, filled, block.length - filled);
+                boolean eof = read < 0;
+                if (!eof) {
+                    if (copy != null) {
+                        copy.write(block, filled, read);
+                    }
+                    filled += read;
+                }
+
+                // Only complete lines are parsed; the rest waits for the next read
+                int limit = filled;
+                if (!eof) {
+                    while (limit > 0 && block[limit - 1] != '\n') {
+                        limit--;
+                    }
+                    if (limit == 0) {
+                        if (filled == block.length) {
+                            throw new IOException("Line too long at line " + (lineNumber + 1));
+                        }
+                        continue;
+                    }
+                }
+                tokenizer.reset(buffer, 0, limit);
+
+                while (tokenizer.nextLine()) {
+                    lineNumber++;
+
+                    if (numNodes == -1) {
+                        // Header: an optional "source sink" line followed by the number of nodes
+                        if (lineNumber == 1 && tokenizer.tokenCount() == 2 && tokenizer.isValid()) {
+                            source = tokenizer.value(0);
+                            sink = tokenizer.value(1);
+                            sourceSinkLine = true;
+                            continue;
+                        }
+                        if (lineNumber == 1 && tokenizer.tokenCount() == 2) {
+                            terminals = Parser.parseTerminalLine(tokenizer.lineText(), lineNumber);
+                            if (terminals != null) {
+                                sourceSinkLine = true;
+                                continue;
+                            }
+                        }
+                        if (tokenizer.tokenCount() != 1 || !tokenizer.isValid()) {
+                            throw new IOException("Invalid format for number of nodes: " + tokenizer.lineText());
+                        }
+                        if (tokenizer.value(0) <= 0) {
+                            throw new IOException("Invalid number of nodes: must be positive");
+                        }
+                        numNodes = tokenizer.value(0);
+                        continue;
+                    }
+
+                    // Skip empty lines
+                    if (tokenizer.tokenCount() == 0) {
+                        continue;
+                    }
+                    Parser.checkEdge(tokenizer, numNodes, lineNumber);
+                    if (tokenizer.tokenCount() == 4) {
+                        throw new IOException("Edge costs are not supported by the streaming loader at line " + lineNumber);
+                    }
+                    int base = 3 * chunk.size++;
+                    chunk.edges[base] = tokenizer.value(0);
+                    chunk.edges[base + 1] = tokenizer.value(1);
+                    chunk.edges[base + 2] = tokenizer.value(2);
+                    if (chunk.size == CHUNK_EDGES) {
+                        full.put(chunk);
+                        chunk = free.take();
+                    }
+                }
+
+                System.arraycopy(block, limit, block, 0, filled - limit);
+                filled -= limit;
+                if (eof) {
+                    break;
+                }
+            }
+
+            if (numNodes == -1) {
+                throw new IOException(sourceSinkLine ? "Incomplete file" : "Empty file");
+            }
+            if (chunk.size > 0) {
+                full.put(chunk);
+            }
+        }
+    }
+}
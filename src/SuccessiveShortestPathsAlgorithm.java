@@ -0,0 +1,201 @@
+import java.util.Arrays;
+
+/**
+ * Successive shortest paths with Johnson potentials, augmenting a whole phase at a time.
+ *
+ * Each phase runs Dijkstra from the source over the reduced costs c(u,v) + p(u) - p(v),
+ * which the potentials keep non-negative, and stops as soon as the sink is settled. The
+ * potentials then advance by the distances, capped at the sink's, which gives every arc on
+ * a cheapest path a reduced cost of zero. Rather than augmenting along one path, the phase
+ * saturates all of them with Dinic blocking flows over the zero-cost residual arcs. Flow only
+ * ever moves along cheapest paths, so the result is a maximum flow of minimum cost.
+ * Edge costs must be non-negative so that zero potentials are a valid start.
+ */
+public class SuccessiveShortestPathsAlgorithm implements MinCostFlowAlgorithm {
+    private static final long UNREACHED = Long.MAX_VALUE;
+
+    private long[] potential;
+    private long[] distance;
+    private NodeHeap heap;
+    private int[] level;      // BFS distance over zero-cost arcs, -1 if unreached or dead
+    private int[] currentArc;
+    private int[] queue;
+    private int[] path;       // arcs of the partial path from the source
+
+    @Override
+    public String getName() {
+        return "successive-shortest-paths";
+    }
+
+    @Override
+    public long computeMinCostFlow(LongResidualNetwork network, long[] costs, int source, int sink,
+                                   FlowTracer tracer) {
+        int numNodes = network.getNumNodes();
+        if (heap == null || heap.getNumNodes() != numNodes) {
+            potential = new long[numNodes];
+            distance = new long[numNodes];
+            heap = new NodeHeap(numNodes);
+            level = new int[numNodes];
+            currentArc = new int[numNodes];
+            queue = new int[numNodes];
+            path = new int[numNodes];
+        }
+        Arrays.fill(potential, 0);
+
+        long flow = 0;
+        int phase = 0;
+
+        tracer.onStart("successive shortest paths", source, sink);
+
+        while (shortestPaths(network, costs, source, sink)) {
+            phase++;
+            long phaseFlow = 0;
+            // All paths of reduced cost zero are cheapest paths; saturate them before the next search
+            while (buildLevelGraph(network, costs, source, sink)) {
+                System.arraycopy(network.offsets(), 0, currentArc, 0, numNodes);
+                phaseFlow += blockingFlow(network, costs, source, sink);
+            }
+            flow += phaseFlow;
+
+            if (tracer.isEnabled()) {
+                tracer.onMessage("Phase " + phase + ": pushed " + phaseFlow + " units along paths costing "
+                        + (potential[sink] - potential[source]) + " per unit, total flow " + flow);
+            }
+        }
+
+        return flow;
+    }
+
+    // Dijkstra over reduced costs; on success advances the potentials and returns true
+    private boolean shortestPaths(LongResidualNetwork network, long[] costs, int source, int sink) {
+        int[] offsets = network.offsets();
+        int[] heads = network.heads();
+        long[] capacities = network.capacities();
+
+        Arrays.fill(distance, UNREACHED);
+        distance[source] = 0;
+        heap.insertOrDecrease(source, 0);
+        boolean reached = false;
+
+        while (!heap.isEmpty()) {
+            int u = heap.poll();
+            if (u == sink) {
+                reached = true;
+                break;
+            }
+            long base = distance[u] + potential[u];
+            for (int arc = offsets[u], end = offsets[u + 1]; arc < end; arc++) {
+                if (capacities[arc] > 0) {
+                    int v = heads[arc];
+                    long candidate = base + costs[arc] - potential[v];
+                    if (candidate < distance[v]) {
+                        distance[v] = candidate;
+                        heap.insertOrDecrease(v, candidate);
+                    }
+                }
+            }
+        }
+        heap.clear();
+
+        if (!reached) {
+            return false;
+        }
+        // Nodes not settled before the sink are at least as far, so capping keeps reduced costs non-negative
+        long sinkDistance = distance[sink];
+        for (int v = 0; v < potential.length; v++) {
+            potential[v] += Math.min(distance[v], sinkDistance);
+        }
+        return true;
+    }
+
+    // BFS from the source over residual arcs of reduced cost zero
+    private boolean buildLevelGraph(LongResidualNetwork network, long[] costs, int source, int sink) {
+        int[] offsets = network.offsets();
+        int[] heads = network.heads();
+        long[] capacities = network.capacities();
+
+        Arrays.fill(level, -1);
+        level[source] = 0;
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = source;
+
+        while (head < tail) {
+            int u = queue[head++];
+            if (level[sink] != -1 && level[u] >= level[sink]) {
+                break;
+            }
+            long pu = potential[u];
+            for (int arc = offsets[u], end = offsets[u + 1]; arc < end; arc++) {
+                int v = heads[arc];
+                if (capacities[arc] > 0 && level[v] == -1 && costs[arc] + pu == potential[v]) {
+                    level[v] = level[u] + 1;
+                    queue[tail++] = v;
+                }
+            }
+        }
+
+        return level[sink] != -1;
+    }
+
+    // Blocking flow in the level graph, as in DinicAlgorithm but restricted to zero-cost arcs
+    private long blockingFlow(LongResidualNetwork network, long[] costs, int source, int sink) {
+        int[] offsets = network.offsets();
+        int[] heads = network.heads();
+        long[] capacities = network.capacities();
+        int[] reverse = network.reverse();
+
+        long total = 0;
+        int depth = 0;
+        int u = source;
+
+        while (true) {
+            if (u == sink) {
+                long pathFlow = Long.MAX_VALUE;
+                for (int i = 0; i < depth; i++) {
+                    pathFlow = Math.min(pathFlow, capacities[path[i]]);
+                }
+                int firstSaturated = -1;
+                for (int i = 0; i < depth; i++) {
+                    int arc = path[i];
+                    capacities[arc] -= pathFlow;
+                    capacities[reverse[arc]] += pathFlow;
+                    if (firstSaturated == -1 && capacities[arc] == 0) {
+                        firstSaturated = i;
+                    }
+                }
+                total += pathFlow;
+
+                // Resume from the tail of the first saturated arc
+                depth = firstSaturated;
+                u = heads[reverse[path[depth]]];
+                continue;
+            }
+
+            int end = offsets[u + 1];
+            int arc = currentArc[u];
+            int nextLevel = level[u] + 1;
+            long pu = potential[u];
+            while (arc < end && (capacities[arc] == 0 || level[heads[arc]] != nextLevel
+                    || costs[arc] + pu != potential[heads[arc]])) {
+                arc++;
+            }
+            currentArc[u] = arc;
+
+            if (arc < end) {
+                path[depth++] = arc;
+                u = heads[arc];
+                continue;
+            }
+
+            // Dead end: retreat and drop u from the level graph
+            if (u == source) {
+                return total;
+            }
+            level[u] = -1;
+            depth--;
+            u = heads[reverse[path[depth]]];
+            currentArc[u]++;
+        }
+    }
+}
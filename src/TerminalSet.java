@@ -0,0 +1,211 @@
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * A set of source or sink nodes, each with an optional limit on the flow it may supply or absorb.
+ *
+ * MaxFlowSolver connects the nodes of a set to one virtual terminal inside the residual network,
+ * so a problem with many ingress and egress points is solved without adding a super-source and
+ * super-sink to the graph. Written as comma-separated nodes with an optional ":limit" each, e.g.
+ * "0,3:50,7" for nodes 0 and 7 without a limit and node 3 limited to 50 units.
+ */
+public final class TerminalSet {
+    /** Limit of a terminal that may carry any amount of flow */
+    public static final long UNLIMITED = Long.MAX_VALUE;
+
+    private final int[] nodes;
+    private final long[] limits;
+
+    /**
+     * @param nodes The terminal nodes, distinct and non-negative
+     * @param limits The limit of every node, UNLIMITED for none; null if no node is limited
+     */
+    public TerminalSet(int[] nodes, long[] limits) {
+        if (nodes == null || nodes.length == 0) {
+            throw new IllegalArgumentException("A terminal set needs at least one node");
+        }
+        if (limits != null && limits.length != nodes.length) {
+            throw new IllegalArgumentException("Expected " + nodes.length + " limits, got " + limits.length);
+        }
+        this.nodes = nodes.clone();
+        this.limits = new long[nodes.length];
+        Arrays.fill(this.limits, UNLIMITED);
+        for (int i = 0; i < nodes.length; i++) {
+            if (nodes[i] < 0) {
+                throw new IllegalArgumentException("Invalid terminal node: " + nodes[i]);
+            }
+            if (limits != null) {
+                if (limits[i] < 0) {
+                    throw new IllegalArgumentException("Negative limit for terminal " + nodes[i] + ": " + limits[i]);
+                }
+                this.limits[i] = limits[i];
+            }
+        }
+        int[] sorted = this.nodes.clone();
+        Arrays.sort(sorted);
+        for (int i = 1; i < sorted.length; i++) {
+            if (sorted[i] == sorted[i - 1]) {
+                throw new IllegalArgumentException("Duplicate terminal node: " + sorted[i]);
+            }
+        }
+    }
+
+    /**
+     * @return A set of the given nodes without limits
+     */
+    public static TerminalSet of(int... nodes) {
+        return new TerminalSet(nodes, null);
+    }
+
+    /**
+     * Parse a set written as comma-separated nodes with an optional ":limit" each, e.g. "0,3:50,7"
+     *
+     * @throws IllegalArgumentException if the text is not a valid terminal set
+     */
+    public static TerminalSet parse(String text) {
+        String[] parts = text.trim().split(",", -1);
+        int[] nodes = new int[parts.length];
+        long[] limits = new long[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            String part = parts[i].trim();
+            int colon = part.indexOf(':');
+            try {
+                if (colon < 0) {
+                    nodes[i] = Integer.parseInt(part);
+                    limits[i] = UNLIMITED;
+                } else {
+                    nodes[i] = Integer.parseInt(part.substring(0, colon).trim());
+                    limits[i] = Long.parseLong(part.substring(colon + 1).trim());
+                }
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid terminal '" + part + "' in " + text);
+            }
+        }
+        return new TerminalSet(nodes, limits);
+    }
+
+    /**
+     * @return Whether the text uses the list syntax of parse rather than being a single node
+     */
+    static boolean isList(String text) {
+        return text.indexOf(',') >= 0 || text.indexOf(':') >= 0;
+    }
+
+    public int size() {
+        return nodes.length;
+    }
+
+    public int getNode(int index) {
+        return nodes[index];
+    }
+
+    /**
+     * @return The limit of the terminal at the given position, UNLIMITED if it has none
+     */
+    public long getLimit(int index) {
+        return limits[index];
+    }
+
+    public boolean hasLimit(int index) {
+        return limits[index] != UNLIMITED;
+    }
+
+    /**
+     * @return A copy of the terminal nodes
+     */
+    public int[] getNodes() {
+        return nodes.clone();
+    }
+
+    /**
+     * @return Whether the set is one node without a limit, i.e. a plain source or sink
+     */
+    public boolean isSingle() {
+        return nodes.length == 1 && !hasLimit(0);
+    }
+
+    public boolean contains(int node) {
+        for (int terminal : nodes) {
+            if (terminal == node) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Check that both sets are given, that their nodes exist and that no node is in both
+     *
+     * @throws IllegalArgumentException if the sets cannot be solved on a graph of numNodes nodes
+     */
+    static void checkTerminals(TerminalSet sources, TerminalSet sinks, int numNodes) {
+        if (sources == null || sinks == null) {
+            throw new IllegalArgumentException("Source and sink sets cannot be null");
+        }
+        BitSet isSource = new BitSet();
+        for (int node : sources.nodes) {
+            if (node >= numNodes) {
+                throw new IllegalArgumentException("Invalid source node: " + node);
+            }
+            isSource.set(node);
+        }
+        for (int node : sinks.nodes) {
+            if (node >= numNodes) {
+                throw new IllegalArgumentException("Invalid sink node: " + node);
+            }
+            if (isSource.get(node)) {
+                throw new IllegalArgumentException("Node " + node + " cannot be both a source and a sink");
+            }
+        }
+    }
+
+    /**
+     * The set with every limit tightened to what the terminal can actually carry: the total
+     * capacity of its outgoing edges for a source, of its incoming edges for a sink. This keeps
+     * the virtual arcs of unlimited terminals as small as possible.
+     *
+     * @param graph The graph the terminals belong to
+     * @param outgoing True for a source set, false for a sink set
+     */
+    TerminalSet bounded(Graph graph, boolean outgoing) {
+        long[] total = new long[nodes.length];
+        int[] position = new int[graph.getNumNodes()];
+        Arrays.fill(position, -1);
+        for (int i = 0; i < nodes.length; i++) {
+            position[nodes[i]] = i;
+        }
+        for (Edge edge : graph.getAllEdges()) {
+            int index = position[outgoing ? edge.getSource() : edge.getDestination()];
+            if (index >= 0 && edge.getSource() != edge.getDestination()) {
+                total[index] = saturatedAdd(total[index], edge.getLongCapacity());
+            }
+        }
+        for (int i = 0; i < nodes.length; i++) {
+            total[i] = Math.min(total[i], limits[i]);
+        }
+        return new TerminalSet(nodes, total);
+    }
+
+    private static long saturatedAdd(long a, long b) {
+        long sum = a + b;
+        return sum < 0 ? Long.MAX_VALUE : sum;
+    }
+
+    /**
+     * @return The set in the syntax accepted by parse
+     */
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < nodes.length; i++) {
+            if (i > 0) {
+                text.append(',');
+            }
+            text.append(nodes[i]);
+            if (hasLimit(i)) {
+                text.append(':').append(limits[i]);
+            }
+        }
+        return text.toString();
+    }
+}
@@ -1,7 +1,20 @@
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
 
 public class TestRunner {
+    private static final String[] ALGORITHMS = {
+        "edmonds-karp", "capacity-scaling", "dinic", "push-relabel", "parallel-push-relabel"
+    };
+
+    private static int failures;
+
     public static void main(String[] args) {
         System.out.println("==== MaxFlowSolver Test Suite ====\n");
         
@@ -32,8 +45,14 @@ public class TestRunner {
         for (File file : testFiles) {
             runTest(file.getPath());
         }
+
+        runChecks(testDir, testFiles);
         
         System.out.println("\n==== All tests completed ====");
+        if (failures > 0) {
+            System.out.println(failures + " check(s) failed");
+            System.exit(1);
+        }
     }
     
     private static void runTest(String filePath) {
@@ -48,6 +67,352 @@ public class TestRunner {
         }
     }
     
+    // Compare results with known values, for the cases where printing them is not enough
+    private static void runChecks(String testDir, File[] testFiles) {
+        System.out.println("\n---- Checking expected results ----");
+        try {
+            for (File file : testFiles) {
+                checkEnginesAgree(file.getPath());
+            }
+            checkParallelEngine(testFiles);
+            checkReduction(testDir + "/reduction_graph.txt", 11);
+            checkDecomposition(testDir + "/multi_terminal_graph.txt");
+            checkDecomposition(testDir + "/complex_graph.txt");
+            checkMaxFlow(testDir + "/int_overflow_total_graph.txt", 4294967294L);
+            checkMaxFlow(testDir + "/long_capacity_graph.txt", 5147483647L);
+            checkCapacityBoundaries();
+            checkIntOnlyLoaders(testDir + "/long_capacity_graph.txt");
+            checkCacheFallback(testDir + "/long_capacity_graph.txt");
+            checkCompactGraphImmutable();
+            checkNonAsciiSeparators();
+            checkDetectedMatchingIsFrozen();
+
+            // Unlimited sources stay on the source side; a used-up limit is part of the cut
+            checkTerminalSetCut(testDir + "/multi_terminal_cut_graph.txt", 8, "{0, 1}", "[]", "[]");
+            checkTerminalSetCut(testDir + "/multi_terminal_graph.txt", 8, "{0, 2}", "[1]", "[]");
+        } catch (IOException | RuntimeException e) {
+            failures++;
+            System.out.println("FAIL: " + e);
+        }
+    }
+
+    // Every engine finds the Edmonds-Karp value and writes back a feasible flow
+    private static void checkEnginesAgree(String path) throws IOException {
+        GraphWithSourceSink input = Parser.parseFile(path);
+        Graph graph = input.getGraph();
+        TerminalSet sources = terminals(input, true);
+        TerminalSet sinks = terminals(input, false);
+        long expected = solve(graph, sources, sinks, MaxFlowAlgorithm.forName("edmonds-karp"));
+        for (String algorithm : ALGORITHMS) {
+            String name = path + " (" + algorithm + ")";
+            check(name + " agrees with edmonds-karp", expected,
+                    solve(graph, sources, sinks, MaxFlowAlgorithm.forName(algorithm)));
+            checkFeasible(name, graph, sources, sinks, expected);
+        }
+    }
+
+    // The parallel engine on 2 to 4 workers matches the sequential push-relabel engine, on the
+    // inputs and on generated networks large enough to split its rounds over several tasks
+    private static void checkParallelEngine(File[] testFiles) throws IOException {
+        for (int threads = 2; threads <= 4; threads++) {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            try {
+                for (File file : testFiles) {
+                    GraphWithSourceSink input = Parser.parseFile(file.getPath());
+                    checkParallelEngine(file.getPath(), input.getGraph(), terminals(input, true),
+                            terminals(input, false), pool);
+                }
+                for (String family : new String[] {"sparse", "wide", "grid", "dense"}) {
+                    Graph graph = GraphGenerator.generate(family, 20000, threads);
+                    checkParallelEngine(family + " network", graph, TerminalSet.of(0),
+                            TerminalSet.of(graph.getNumNodes() - 1), pool);
+                }
+            } finally {
+                pool.shutdown();
+            }
+        }
+    }
+
+    private static void checkParallelEngine(String name, Graph graph, TerminalSet sources, TerminalSet sinks,
+                                            ForkJoinPool pool) {
+        long expected = solve(graph, sources, sinks, MaxFlowAlgorithm.forName("push-relabel"));
+        name += " (parallel-push-relabel, " + pool.getParallelism() + " threads)";
+        check(name + " agrees with push-relabel", expected,
+                solve(graph, sources, sinks, new ParallelPushRelabelAlgorithm(pool)));
+        checkFeasible(name, graph, sources, sinks, expected);
+    }
+
+    // Reduction merges the parallel edges, contracts the chain and drops the dead ends, and the
+    // flow it maps back must still be a maximum flow of the original edges with the same cut
+    private static void checkReduction(String path, long flow) throws IOException {
+        GraphWithSourceSink input = Parser.parseFile(path);
+        Graph graph = input.getGraph();
+        TerminalSet sources = terminals(input, true);
+        TerminalSet sinks = terminals(input, false);
+        for (String algorithm : ALGORITHMS) {
+            MaxFlowSolver plain = new MaxFlowSolver(graph, MaxFlowAlgorithm.forName(algorithm));
+            check(path + " (" + algorithm + ") value", flow, plain.findMaxFlowLong(input.getSource(), input.getSink()));
+            MinCut cut = plain.getMinCut();
+
+            String name = path + " (" + algorithm + ", reduced)";
+            MaxFlowSolver reduced = new MaxFlowSolver(graph, MaxFlowAlgorithm.forName(algorithm));
+            reduced.setReductionEnabled(true);
+            check(name + " value", flow, reduced.findMaxFlowLong(input.getSource(), input.getSink()));
+            check(name + " edges", "fewer", reduced.getLastReduction().getReducedGraph().getAllEdges().size()
+                    < graph.getAllEdges().size() ? "fewer" : "not fewer");
+            checkFeasible(name, graph, sources, sinks, flow);
+            check(name + " cut value", cut.getValue(), reduced.getMinCut().getValue());
+            check(name + " source side", cut.getSourceSide(), reduced.getMinCut().getSourceSide());
+        }
+    }
+
+    // The paths and cycles of a decomposition follow the graph's edges, start at a source and
+    // end at a sink, and add back up to the edge flows and the flow value
+    private static void checkDecomposition(String path) throws IOException {
+        GraphWithSourceSink input = Parser.parseFile(path);
+        Graph graph = input.getGraph();
+        TerminalSet sources = terminals(input, true);
+        TerminalSet sinks = terminals(input, false);
+        List<Edge> edges = graph.getAllEdges();
+        for (String algorithm : ALGORITHMS) {
+            long value = solve(graph, sources, sinks, MaxFlowAlgorithm.forName(algorithm));
+            long[] rebuilt = new long[edges.size()];
+            long[] pathFlow = new long[1];
+            String[] problem = new String[1];
+            FlowDecomposition.decompose(graph, sources, sinks, new FlowPathConsumer() {
+                @Override
+                public void onPath(int[] nodes, int[] pathEdges, int length, long amount) {
+                    if (!sources.contains(nodes[0]) || !sinks.contains(nodes[length])) {
+                        problem[0] = "path from " + nodes[0] + " to " + nodes[length];
+                    }
+                    add(nodes, pathEdges, length, amount);
+                    pathFlow[0] += amount;
+                }
+
+                @Override
+                public void onCycle(int[] nodes, int[] cycleEdges, int length, long amount) {
+                    if (nodes[0] != nodes[length]) {
+                        problem[0] = "open cycle from " + nodes[0] + " to " + nodes[length];
+                    }
+                    add(nodes, cycleEdges, length, amount);
+                }
+
+                private void add(int[] nodes, int[] walkEdges, int length, long amount) {
+                    for (int i = 0; i < length; i++) {
+                        Edge edge = edges.get(walkEdges[i]);
+                        if (edge.getSource() != nodes[i] || edge.getDestination() != nodes[i + 1]) {
+                            problem[0] = "edge " + edge + " does not lead from " + nodes[i] + " to " + nodes[i + 1];
+                        }
+                        rebuilt[walkEdges[i]] += amount;
+                    }
+                }
+            });
+            String name = path + " (" + algorithm + ") decomposition";
+            long[] flows = new long[edges.size()];
+            for (int i = 0; i < flows.length; i++) {
+                flows[i] = edges.get(i).getLongFlow();
+            }
+            check(name + " walks", "valid", problem[0] == null ? "valid" : problem[0]);
+            check(name + " edge flows", Arrays.toString(flows), Arrays.toString(rebuilt));
+            check(name + " path flow", value, pathFlow[0]);
+        }
+    }
+
+    // The terminals named by the file, or node 0 and the last node as in Main
+    private static TerminalSet terminals(GraphWithSourceSink input, boolean source) {
+        if (input.hasTerminalSets()) {
+            return source ? input.getSourceSet() : input.getSinkSet();
+        }
+        if (source) {
+            return TerminalSet.of(input.hasSource() ? input.getSource() : 0);
+        }
+        return TerminalSet.of(input.hasSink() ? input.getSink() : input.getGraph().getNumNodes() - 1);
+    }
+
+    // Solve with the given engine, bypassing the matching fast path so the engine does the work
+    private static long solve(Graph graph, TerminalSet sources, TerminalSet sinks, MaxFlowAlgorithm algorithm) {
+        MaxFlowSolver solver = new MaxFlowSolver(graph, algorithm);
+        solver.setMatchingFastPath(false);
+        return solver.findMaxFlowLong(sources, sinks);
+    }
+
+    // The edge flows stay within capacity, are conserved at every node but the terminals,
+    // respect the terminal limits and add up to the flow value
+    private static void checkFeasible(String name, Graph graph, TerminalSet sources, TerminalSet sinks, long value) {
+        long[] net = new long[graph.getNumNodes()]; // outflow minus inflow
+        String problem = null;
+        for (Edge edge : graph.getAllEdges()) {
+            long flow = edge.getLongFlow();
+            if (flow < 0 || flow > edge.getLongCapacity()) {
+                problem = "flow " + flow + " on " + edge;
+            }
+            net[edge.getSource()] += flow;
+            net[edge.getDestination()] -= flow;
+        }
+        long supplied = 0;
+        for (int i = 0; i < sources.size(); i++) {
+            long out = net[sources.getNode(i)];
+            supplied += out;
+            if (out > sources.getLimit(i)) {
+                problem = "source " + sources.getNode(i) + " supplies " + out;
+            }
+        }
+        for (int i = 0; i < sinks.size(); i++) {
+            if (-net[sinks.getNode(i)] > sinks.getLimit(i)) {
+                problem = "sink " + sinks.getNode(i) + " absorbs " + -net[sinks.getNode(i)];
+            }
+        }
+        for (int v = 0; v < net.length; v++) {
+            if (net[v] != 0 && !sources.contains(v) && !sinks.contains(v)) {
+                problem = "node " + v + " has net outflow " + net[v];
+            }
+        }
+        if (problem == null && supplied != value) {
+            problem = "sources supply " + supplied + " instead of " + value;
+        }
+        check(name + " flow", "feasible", problem == null ? "feasible" : problem);
+    }
+
+    private static void checkMaxFlow(String path, long flow) throws IOException {
+        GraphWithSourceSink input = Parser.parseFile(path);
+        for (String algorithm : ALGORITHMS) {
+            MaxFlowSolver solver = new MaxFlowSolver(input.getGraph(), MaxFlowAlgorithm.forName(algorithm));
+            check(path + " (" + algorithm + ") flow", flow,
+                    solver.findMaxFlowLong(input.getSource(), input.getSink()));
+        }
+    }
+
+    // Capacities at the edge of the int range, and negative ones beyond it
+    private static void checkCapacityBoundaries() {
+        Graph graph = new Graph(2);
+        graph.addEdge(0, 1, (long) Integer.MAX_VALUE);
+        check("capacity Integer.MAX_VALUE needs long", false, graph.hasLongCapacities());
+        check("capacity Integer.MAX_VALUE flow", (long) Integer.MAX_VALUE,
+                new MaxFlowSolver(graph).findMaxFlowLong(0, 1));
+
+        graph = new Graph(2);
+        graph.addEdge(0, 1, Integer.MAX_VALUE + 1L);
+        check("capacity Integer.MAX_VALUE + 1 needs long", true, graph.hasLongCapacities());
+        check("capacity Integer.MAX_VALUE + 1 flow", Integer.MAX_VALUE + 1L,
+                new MaxFlowSolver(graph).findMaxFlowLong(0, 1));
+
+        for (long capacity : new long[] {-1L, -4294967295L, Long.MIN_VALUE}) {
+            String result = "accepted";
+            try {
+                new Graph(2).addEdge(0, 1, capacity);
+            } catch (IllegalArgumentException e) {
+                result = "rejected";
+            }
+            check("capacity " + capacity, "rejected", result);
+        }
+    }
+
+    // The int-only loaders name a capacity beyond the int range instead of calling it malformed
+    private static void checkIntOnlyLoaders(String path) {
+        String expected = "Capacity above the int range at line 3: 3000000000; this loader is int-only, use the default parser";
+        String[] names = {"mapped parser", "parallel parser", "streaming loader"};
+        List<Callable<?>> loaders = Arrays.asList(
+                () -> Parser.parseFileMapped(path),
+                () -> ParallelParser.parse(path),
+                () -> StreamingGraphLoader.load(Paths.get(path)));
+        for (int i = 0; i < names.length; i++) {
+            String message = "accepted";
+            try {
+                loaders.get(i).call();
+            } catch (Exception e) {
+                message = e.getMessage();
+            }
+            check(path + " " + names[i] + " error", expected, message);
+        }
+    }
+
+    // The graph cache loads 64-bit capacities through parseFile once the mapped parser refuses them
+    private static void checkCacheFallback(String path) throws IOException {
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            GraphCache cache = new GraphCache(1 << 20, () -> MaxFlowAlgorithm.forName("dinic"), pool);
+            GraphCache.Entry entry = cache.get(path);
+            check(path + " cached with 64-bit capacities", true, entry.getGraph().getGraph().hasLongCapacities());
+            check(path + " cached max flow", 5147483647L, new MaxFlowSolver(entry.getGraph().getGraph())
+                    .findMaxFlowLong(entry.getGraph().getSource(), entry.getGraph().getSink()));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    // Edges of a CompactGraph take flows but keep their capacity and cost
+    private static void checkCompactGraphImmutable() {
+        Edge edge = new CompactGraph.Builder(2).addEdge(0, 1, 5).build().getAllEdges().get(0);
+        String capacity = "changed";
+        try {
+            edge.setCapacity(7);
+        } catch (UnsupportedOperationException e) {
+            capacity = "rejected";
+        }
+        check("CompactGraph edge setCapacity", "rejected", capacity);
+        String cost = "changed";
+        try {
+            edge.setCost(3);
+        } catch (UnsupportedOperationException e) {
+            cost = "rejected";
+        }
+        check("CompactGraph edge setCost", "rejected", cost);
+    }
+
+    // Only ASCII whitespace separates numbers; a no-break space makes the token invalid as in Parser.parseFile
+    private static void checkNonAsciiSeparators() {
+        String[] names = {"no-break space after a number", "no-break space between numbers", "U+00FF after a number"};
+        String[] lines = {"0 1\u00a0 4", "1\u00a02 3", "0 1 4\u00ff"};
+        for (int i = 0; i < lines.length; i++) {
+            byte[] bytes = lines[i].getBytes(StandardCharsets.UTF_8);
+            ByteLineTokenizer tokenizer = new ByteLineTokenizer();
+            tokenizer.reset(ByteBuffer.wrap(bytes), 0, bytes.length);
+            tokenizer.nextLine();
+            check("tokenizer valid with " + names[i], false, tokenizer.isValid());
+        }
+    }
+
+    // Pairs of a matching detected in a graph stand for its edges, so none can be added
+    private static void checkDetectedMatchingIsFrozen() {
+        Graph path = new Graph(4);
+        path.addEdge(0, 1, 1);
+        path.addEdge(1, 2, 1);
+        path.addEdge(2, 3, 1);
+        BipartiteMatching matching = BipartiteMatching.fromGraph(path, 0, 3);
+        String result = "added";
+        try {
+            matching.addEdge(0, 0);
+        } catch (IllegalStateException e) {
+            result = "rejected";
+        }
+        check("addEdge on a detected matching", "rejected", result);
+        check("detected matching size", 1, matching.solve());
+    }
+
+    private static void checkTerminalSetCut(String path, long flow, String sourceSide, String cutSources,
+                                            String cutSinks) throws IOException {
+        GraphWithSourceSink input = Parser.parseFile(path);
+        for (String algorithm : ALGORITHMS) {
+            MaxFlowSolver solver = new MaxFlowSolver(input.getGraph(), MaxFlowAlgorithm.forName(algorithm));
+            String name = path + " (" + algorithm + ")";
+            check(name + " flow", flow, solver.findMaxFlowLong(input.getSourceSet(), input.getSinkSet()));
+            MinCut cut = solver.getMinCut();
+            check(name + " cut value", flow, cut.getValue());
+            check(name + " source side", sourceSide, cut.getSourceSide().toString());
+            check(name + " cut sources", cutSources, Arrays.toString(cut.getCutSources()));
+            check(name + " cut sinks", cutSinks, Arrays.toString(cut.getCutSinks()));
+        }
+    }
+
+    private static void check(String name, Object expected, Object actual) {
+        if (expected.equals(actual)) {
+            System.out.println("PASS: " + name + " = " + actual);
+        } else {
+            failures++;
+            System.out.println("FAIL: " + name + ": expected " + expected + ", got " + actual);
+        }
+    }
+    
     private static void createSampleTests(String testDir) {
         try {
             // Create sample test files